@@ -0,0 +1,122 @@
+package org.benchmark;
+
+import com.epic.morse.service.MorseCode;
+import org.TextToMorse.ConversionEngine;
+import org.TextToMorse.MorseTransformer;
+import org.common.DuplicateFilter;
+import org.common.Metrics;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.protocol.WireFormat;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the whole handling of an input event by the transformer, from the callback to
+ * the publish, against a stub publisher: the former callback body with the library and the
+ * string payloads, and the current {@link MorseTransformer} path run inline on one thread.
+ * <p>
+ * The benchmark cycles over a few thousand prebuilt messages with distinct ids so that none
+ * of them is dropped as a duplicate. The console output of the callback is discarded during
+ * the trial, as it would otherwise dominate the measurement.
+ *
+ * @version 16.10.2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CallbackBenchmark {
+    private static final int MESSAGES = 4096;
+    private static final String INPUT_TOPIC = "E/KeyboardEvent";
+    private static final String OUTPUT_TOPIC = "E/textInMorse";
+
+    @Param({"8", "64", "1024"})
+    int length;
+
+    @Param({"LETTERS", "ALPHANUMERIC", "PUNCTUATED"})
+    Inputs.Charset charset;
+
+    private final MqttMessage[] legacyMessages = new MqttMessage[MESSAGES];
+    private final MqttMessage[] wireMessages = new MqttMessage[MESSAGES];
+    private int next;
+    private Blackhole blackhole;
+    private PrintStream console;
+
+    // State of the former callback
+    private String lastMessageId = "";
+
+    private MorseTransformer transformer;
+    private ConversionEngine.MessageHandler worker;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        for (int i = 0; i < MESSAGES; i++) {
+            String text = Inputs.text(length, charset, i);
+            UUID id = UUID.randomUUID();
+            legacyMessages[i] = new MqttMessage(("msg: " + text + " id: " + id).getBytes());
+            wireMessages[i] = new MqttMessage(WireFormat.encodeText(id, text.getBytes(StandardCharsets.UTF_8)));
+        }
+        // The filter only has to outlive a cycle of the messages when repeated ids are expected
+        transformer = new MorseTransformer(this::publish, OUTPUT_TOPIC, new DuplicateFilter(64),
+                new Metrics("benchmark"));
+        worker = transformer.newWorker();
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    private void publish(String topic, MqttMessage message) {
+        blackhole.consume(message);
+    }
+
+    /**
+     * The callback of the transformer before the binary format and the table-driven encoder.
+     */
+    @Benchmark
+    public void legacy() throws MqttException {
+        MqttMessage message = legacyMessages[next++ & (MESSAGES - 1)];
+        String topic = INPUT_TOPIC;
+        System.out.println("Message arrived. Topic: " + topic +
+                " Message: " + new String(message.getPayload()));
+        String payload = new String(message.getPayload());
+        if (topic.equals(INPUT_TOPIC)) {
+            int start = payload.indexOf("msg: ") + 5;
+            int end = payload.indexOf(" id:");
+            String messageText = payload.substring(start, end).trim();
+            String messageId = payload.substring(end).trim();
+            if (!lastMessageId.equals(messageId)) {
+                lastMessageId = messageId;
+                String messageMorse = MorseCode.convertToMorseCode(messageText);
+                String messageWithId = "msg: " + messageMorse + " id: " + UUID.randomUUID();
+                MqttMessage mqttMessage = new MqttMessage(messageWithId.getBytes());
+                publish(OUTPUT_TOPIC, mqttMessage);
+            }
+        }
+    }
+
+    /**
+     * The current path: validation on the callback, then duplicate check, conversion and
+     * publish as done by a worker, without the hand-over between the two.
+     */
+    @Benchmark
+    public void transformer() throws Exception {
+        MqttMessage message = wireMessages[next++ & (MESSAGES - 1)];
+        if (transformer.accept(INPUT_TOPIC, message)) {
+            worker.handle(INPUT_TOPIC, message);
+        }
+    }
+}
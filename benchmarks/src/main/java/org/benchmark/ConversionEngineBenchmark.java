@@ -0,0 +1,108 @@
+package org.benchmark;
+
+import org.TextToMorse.ConversionEngine;
+import org.TextToMorse.MorseConverter;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.openjdk.jmh.annotations.*;
+import org.protocol.WireFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the throughput of the transformer with the publish replaced by a pause, which
+ * stands for the broker round trip of a QoS 1 publish: conversion and publish inline on one
+ * thread, as the callback used to do, against the {@link ConversionEngine} with platform
+ * workers, one per core, and with a virtual worker per ordering key.
+ * <p>
+ * Every invocation hands a batch of messages, spread over the keys, to the executor and waits
+ * until all of them are published, so the score counts messages, not batches.
+ *
+ * @version 16.10.2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ConversionEngineBenchmark {
+    private static final int BATCH = 4096;
+    private static final int KEYS = 64;
+    private static final int LENGTH = 64;
+
+    @Param({"INLINE", "PLATFORM", "VIRTUAL"})
+    String executor;
+
+    @Param({"0", "50"})
+    int publishMicros;
+
+    private final MqttMessage[] messages = new MqttMessage[BATCH];
+    private final String[] topics = new String[KEYS];
+    private long publishNanos;
+    private MorseConverter converter;
+    private ConversionEngine engine;
+    private volatile CountDownLatch done;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < BATCH; i++) {
+            byte[] text = Inputs.text(LENGTH, Inputs.Charset.ALPHANUMERIC, i).getBytes(StandardCharsets.UTF_8);
+            messages[i] = new MqttMessage(WireFormat.encodeText(UUID.randomUUID(), text));
+        }
+        for (int i = 0; i < KEYS; i++) {
+            topics[i] = "E/KeyboardEvent/source" + i;
+        }
+        publishNanos = TimeUnit.MICROSECONDS.toNanos(publishMicros);
+        converter = new MorseConverter();
+        if (!executor.equals("INLINE")) {
+            ConversionEngine.Mode mode = ConversionEngine.Mode.valueOf(executor);
+            int partitions = mode == ConversionEngine.Mode.VIRTUAL ? KEYS : Runtime.getRuntime().availableProcessors();
+            engine = new ConversionEngine(mode, partitions, 256, partition -> {
+                MorseConverter worker = new MorseConverter();
+                return (topic, message) -> {
+                    worker.convert(message.getPayload());
+                    publish();
+                    done.countDown();
+                };
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (engine != null) {
+            engine.close();
+        }
+    }
+
+    private void publish() {
+        if (publishNanos > 0) {
+            LockSupport.parkNanos(publishNanos);
+        }
+    }
+
+    /**
+     * Converts and publishes a batch of messages.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void convertAndPublish() throws InterruptedException {
+        if (engine == null) {
+            for (MqttMessage message : messages) {
+                converter.convert(message.getPayload());
+                publish();
+            }
+            return;
+        }
+        done = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            String topic = topics[i % KEYS];
+            engine.submit(topic, topic, messages[i]);
+        }
+        done.await();
+    }
+}
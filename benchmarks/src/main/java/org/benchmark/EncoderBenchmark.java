@@ -0,0 +1,64 @@
+package org.benchmark;
+
+import com.epic.morse.service.MorseCode;
+import org.TextToMorse.MorseEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.protocol.WireFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the text to Morse translations: the {@code morse-code-translator} library the
+ * transformer used to call, the table-driven {@link MorseEncoder} producing dots and dashes
+ * as text, and the packed symbols the transformer actually publishes.
+ *
+ * @version 16.10.2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class EncoderBenchmark {
+
+    @Param({"8", "64", "1024"})
+    int length;
+
+    @Param({"LETTERS", "ALPHANUMERIC", "PUNCTUATED"})
+    Inputs.Charset charset;
+
+    private String text;
+    private byte[] utf8;
+    private byte[] textOut;
+    private byte[] symbolOut;
+
+    @Setup
+    public void setUp() {
+        text = Inputs.text(length, charset, 42);
+        utf8 = text.getBytes(StandardCharsets.UTF_8);
+        textOut = new byte[MorseEncoder.maxEncodedLength(text.length())];
+        symbolOut = new byte[WireFormat.HEADER_LENGTH + WireFormat.packedLength(MorseEncoder.maxSymbolCount(utf8.length))];
+    }
+
+    @Benchmark
+    public String library() {
+        return MorseCode.convertToMorseCode(text);
+    }
+
+    @Benchmark
+    public String encoderToString() {
+        return MorseEncoder.encode(text);
+    }
+
+    @Benchmark
+    public int encoderToBuffer() {
+        return MorseEncoder.encode(text, textOut, 0);
+    }
+
+    @Benchmark
+    public int encoderToSymbols() {
+        return MorseEncoder.encodeSymbols(utf8, 0, utf8.length, symbolOut, WireFormat.HEADER_LENGTH);
+    }
+}
@@ -0,0 +1,53 @@
+package org.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic benchmark inputs: random texts of a given length drawn from a character set,
+ * with spaces between words, so that every run and every fork measures the same messages.
+ *
+ * @version 16.10.2026
+ */
+final class Inputs {
+
+    /**
+     * The character sets of the generated texts. All of them are ASCII, which both the
+     * library and {@link org.TextToMorse.MorseEncoder} can translate.
+     */
+    enum Charset {
+        LETTERS("abcdefghijklmnopqrstuvwxyz"),
+        ALPHANUMERIC("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"),
+        PUNCTUATED("abcdefghijklmnopqrstuvwxyz0123456789.,?!'/()&:;=+-_\"$@");
+
+        private final String characters;
+
+        Charset(String characters) {
+            this.characters = characters;
+        }
+    }
+
+    private Inputs() {
+    }
+
+    /**
+     * @param length  The length of the text.
+     * @param charset The characters of the words.
+     * @param seed    The seed of the generator, to get distinct but reproducible texts.
+     * @return A text of words of 1 to 8 characters separated by single spaces.
+     */
+    static String text(int length, Charset charset, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder text = new StringBuilder(length);
+        int wordLeft = 1 + random.nextInt(8);
+        while (text.length() < length) {
+            if (wordLeft == 0 && text.length() < length - 1) {
+                text.append(' ');
+                wordLeft = 1 + random.nextInt(8);
+            } else {
+                text.append(charset.characters.charAt(random.nextInt(charset.characters.length())));
+                wordLeft--;
+            }
+        }
+        return text.toString();
+    }
+}
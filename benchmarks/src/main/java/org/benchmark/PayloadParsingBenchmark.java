@@ -0,0 +1,80 @@
+package org.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the decoding of an incoming payload: the former {@code "msg: <text> id: <uuid>"}
+ * format, which {@code TextToMorse} and {@code MorseDisplay} both parsed by decoding the
+ * payload twice and cutting it with {@code indexOf} and {@code substring}, against the
+ * binary {@link WireFormat} read in place by {@link WireMessage}.
+ *
+ * @version 16.10.2026
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PayloadParsingBenchmark {
+
+    @Param({"8", "64", "1024"})
+    int length;
+
+    @Param({"LETTERS", "ALPHANUMERIC", "PUNCTUATED"})
+    Inputs.Charset charset;
+
+    private byte[] legacyPayload;
+    private byte[] wirePayload;
+    private final WireMessage message = new WireMessage();
+
+    @Setup
+    public void setUp() {
+        String text = Inputs.text(length, charset, 42);
+        UUID id = UUID.randomUUID();
+        legacyPayload = ("msg: " + text + " id: " + id).getBytes();
+        wirePayload = WireFormat.encodeText(id, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The parsing the components did before the binary format, including the second decoding
+     * done to log the message.
+     */
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        blackhole.consume(new String(legacyPayload));
+        String payload = new String(legacyPayload);
+        int start = payload.indexOf("msg: ") + 5;
+        int end = payload.indexOf(" id:");
+        blackhole.consume(payload.substring(start, end).trim());
+        blackhole.consume(payload.substring(end).trim());
+    }
+
+    /**
+     * Validating the header and reading the id, which is all the transformer does on the
+     * callback thread.
+     */
+    @Benchmark
+    public void wireHeader(Blackhole blackhole) {
+        blackhole.consume(message.wrap(wirePayload));
+        blackhole.consume(message.idMostSignificantBits());
+        blackhole.consume(message.idLeastSignificantBits());
+    }
+
+    /**
+     * Same as {@link #wireHeader}, also decoding the text to a string as the legacy path does.
+     */
+    @Benchmark
+    public void wireText(Blackhole blackhole) {
+        wireHeader(blackhole);
+        blackhole.consume(new String(message.buffer(), message.bodyOffset(), message.bodyLength(),
+                StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,223 @@
+package org.KeyboardEntry;
+
+import org.common.Config;
+import org.common.Log;
+import org.common.Metrics;
+import org.common.Timestamps;
+import org.common.Transport;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.protocol.BatchWriter;
+import org.protocol.WireFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The non-interactive publishing mode of the {@link KeyboardEntry} sensor, meant to replay
+ * text dumps at full speed.
+ * <p>
+ * Lines are read from a file or from a standard input pipe instead of the interactive prompt
+ * and published with an {@link MqttAsyncClient}. Instead of waiting for the acknowledgement of
+ * every publish, messages are kept in flight within the adaptive window of a {@link Transport},
+ * at most {@code keyboardEntry.inflight} unless {@code transport.maxInflight} is set; a slot
+ * is freed when the broker acknowledges a message. Optionally, several
+ * lines are packed into a single {@link WireFormat#TYPE_TEXT_BATCH} payload, which the
+ * {@link org.TextToMorse.TextToMorse} transformer unpacks line by line, or every line is
+ * streamed in chunks by a {@link TextStreamer}, which bounds the memory for very long lines.
+ * <p>
+ * The window shrinks when the acknowledgements slow down, and when the receive maximum of the
+ * broker is reached. The time from publish to acknowledgement ({@code ack}) and the window
+ * are recorded in the {@link Metrics} of the sensor and printed with the throughput at the
+ * end of the run.
+ *
+ * @version 16.10.2026
+ */
+public class BatchPublisher {
+    private static final Log.Limiter failureLog = Log.get("BatchPublisher").limiter(Log.Level.WARN);
+
+    private final MqttAsyncClient client;
+    private final String eventTopic;
+    private final int batchLines;
+    private final int batchBytes;
+    private final int chunkChars;
+    private final Transport transport;
+    private final int qos;
+    private final AtomicLong failures = new AtomicLong();
+    private long publishes;
+    private final Metrics metrics;
+    private final LongAdder publishedCount;
+    private final MqttActionListener acknowledged = new MqttActionListener() {
+        @Override
+        public void onSuccess(IMqttToken token) {
+            publishedCount.increment();
+        }
+
+        @Override
+        public void onFailure(IMqttToken token, Throwable exception) {
+            failures.incrementAndGet();
+            if (failureLog.permit()) {
+                failureLog.log("publishFailed", "reason", exception.getMessage(), null, null);
+            }
+        }
+    };
+
+    /**
+     * @param client     The connected client to publish with.
+     * @param eventTopic The topic of the text events.
+     * @param batchLines The maximum number of lines per publish, 1 to publish every line on its own.
+     * @param batchBytes The payload size from which a batch is published even if not full.
+     * @param chunkChars The number of characters per chunk to stream every line, or 0.
+     * @param transport  The transport keeping the window of unacknowledged publishes.
+     * @param metrics    The metrics of the sensor, which the transport also records to.
+     */
+    BatchPublisher(MqttAsyncClient client, String eventTopic, int batchLines, int batchBytes,
+                   int chunkChars, Transport transport, Metrics metrics) {
+        this.client = client;
+        this.metrics = metrics;
+        this.publishedCount = metrics.counter("published");
+        this.eventTopic = eventTopic;
+        this.batchLines = batchLines;
+        this.batchBytes = batchBytes;
+        this.chunkChars = chunkChars;
+        this.transport = transport;
+        this.qos = transport.qos(Transport.Traffic.TEXT);
+    }
+
+    /**
+     * Runs the batch mode: connects, publishes every line of the source, waits for all
+     * acknowledgements and disconnects, keeping the same status conventions as the
+     * interactive mode.
+     *
+     * @param server      The broker URI.
+     * @param clientId    The client id.
+     * @param eventTopic  The topic of the text events.
+     * @param statusTopic The status topic of the sensor.
+     * @param source      The path of the file to read, or {@code "-"} for the standard input.
+     * @param chunkChars  The number of characters per chunk to stream every line, or 0.
+     * @param config      The settings of the process, for the in-flight window, batches and QoS.
+     * @throws MqttException        if there is an error connecting to the broker or publishing messages.
+     * @throws IOException          if the source cannot be read.
+     * @throws InterruptedException if interrupted while waiting for acknowledgements.
+     */
+    static void run(String server, String clientId, String eventTopic, String statusTopic, String source,
+                    int chunkChars, Config config) throws MqttException, IOException, InterruptedException {
+        Metrics metrics = Metrics.start(clientId, config);
+        Log.configure(config, metrics);
+        Transport transport = new Transport(config, metrics, config.integer("keyboardEntry.inflight", 64));
+        // Nothing is kept across restarts anyway (clean start), so skip the per-message file persistence
+        MqttAsyncClient client = new MqttAsyncClient(server, clientId, new MemoryPersistence());
+        MqttConnectionOptions options = transport.connectionOptions();
+        // The run ends with the source; a lost connection fails the publishes rather than waiting
+        options.setAutomaticReconnect(false);
+        MqttMessage willMessage = new MqttMessage("Offline".getBytes());
+        willMessage.setQos(1);
+        willMessage.setRetained(true);
+        options.setWill(statusTopic, willMessage);
+
+        client.connect(options).waitForCompletion();
+        metrics.exportJmx();
+        client.publish(statusTopic, "Online".getBytes(), 1, true).waitForCompletion();
+
+        BatchPublisher publisher = new BatchPublisher(client, eventTopic,
+                config.integer("keyboardEntry.batchLines", 1),
+                config.integer("keyboardEntry.batchBytes", 64 * 1024),
+                chunkChars, transport, metrics);
+        try (BufferedReader reader = "-".equals(source)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            publisher.publishAll(reader);
+        } finally {
+            client.publish(statusTopic, willMessage).waitForCompletion();
+            client.disconnect().waitForCompletion();
+            client.close();
+            publisher.metrics.close();
+        }
+    }
+
+    /**
+     * Publishes every line of a reader, then waits until all publishes are acknowledged.
+     *
+     * @param reader The source of the lines.
+     * @throws MqttException        if a publish is refused by the client.
+     * @throws IOException          if the source cannot be read.
+     * @throws InterruptedException if interrupted while waiting for the acknowledgements.
+     */
+    void publishAll(BufferedReader reader) throws MqttException, IOException, InterruptedException {
+        long start = System.nanoTime();
+        long lines = chunkChars > 0 ? streamAll(reader) : publishLines(reader);
+        // Nothing in flight means every publish has been acknowledged or has failed
+        transport.awaitIdle();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Published %d lines in %d messages in %.2f s (%.0f lines/s), %d failed%n",
+                lines, publishes, seconds, lines / seconds, failures.get());
+        System.out.println(metrics.getSnapshot());
+    }
+
+    /**
+     * Publishes every line of a reader as a text message, or in batches of lines.
+     *
+     * @param reader The source of the lines.
+     * @return The number of lines.
+     */
+    private long publishLines(BufferedReader reader) throws MqttException, IOException, InterruptedException {
+        BatchWriter batch = new BatchWriter();
+        long lines = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            byte[] utf8 = line.getBytes(StandardCharsets.UTF_8);
+            lines++;
+            if (batchLines <= 1) {
+                publish(WireFormat.encodeText(UUID.randomUUID(), utf8));
+                continue;
+            }
+            batch.add(UUID.randomUUID(), utf8);
+            if (batch.count() >= batchLines || batch.size() >= batchBytes) {
+                publish(batch.toPayload());
+                batch.reset();
+            }
+        }
+        if (batch.count() > 0) {
+            publish(batch.toPayload());
+        }
+        return lines;
+    }
+
+    /**
+     * Streams every line of a reader in chunks, without ever holding a whole line.
+     *
+     * @param reader The source of the lines.
+     * @return The number of lines.
+     */
+    private long streamAll(BufferedReader reader) throws MqttException, IOException, InterruptedException {
+        TextStreamer streamer = new TextStreamer(chunkChars, null, this::publish);
+        long lines = 0;
+        while (streamer.streamLine(reader) == TextStreamer.Line.SENT) {
+            lines++;
+        }
+        return lines;
+    }
+
+    private void publish(byte[] payload) throws MqttException, InterruptedException {
+        publishes++;
+        MqttMessage message = new MqttMessage(payload);
+        message.setQos(qos);
+        message.setRetained(false);
+        Timestamps.stamp(message, Timestamps.SENT, Timestamps.nowMicros());
+        transport.publish(client, eventTopic, message, acknowledged);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+}
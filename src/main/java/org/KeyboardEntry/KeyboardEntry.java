@@ -1,17 +1,31 @@
 package org.KeyboardEntry;
 
+import org.common.Config;
+import org.common.LatencyHistogram;
+import org.common.Log;
+import org.common.Metrics;
+import org.common.Timestamps;
+import org.common.Transport;
 import org.eclipse.paho.mqttv5.client.*;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
 import org.eclipse.paho.mqttv5.common.MqttException;
 import org.eclipse.paho.mqttv5.common.MqttMessage;
 import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.protocol.WireFormat;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents the "sensor" component in the distributed Morse code system.
  * This class is responsible for capturing user input from the command line and
- * publishing it as an event to an MQTT broker. It demonstrates the first step
+ * publishing it as an event to an MQTT broker, encoded in the binary
+ * {@link WireFormat} together with a unique message id. It demonstrates the first step
  * in a process control pipeline: data acquisition.
  * <p>
  * As a publisher, this process is entirely decoupled from the other components.
@@ -23,27 +37,60 @@ import java.util.UUID;
  * @version 20.10.2025
  */
 public class KeyboardEntry {
-    private static final String server = "tcp://localhost:1883";
-    private static final String clientId = "KeyboardEntry";
-    private static final String eventTopic = "E/KeyboardEvent";
+    // Settings from the file, environment and system properties, see Config
+    private static final Config config = Config.load();
+    private static final String server = config.string("morse.server", "tcp://localhost:1883");
+    private static final String clientId = config.string("keyboardEntry.clientId", "KeyboardEntry");
+    // With a channel, the events go to a sub-topic, shown as a light of its own by the display
+    private static final String channel = config.string("keyboardEntry.channel", null);
+    private static final String eventTopic = channel == null ? "E/KeyboardEvent" : "E/KeyboardEvent/" + channel;
     private static final String statusTopic = "S/KeyboardEvent";
+    // Characters per chunk in streaming mode, 0 to send every line as a single message
+    private static final int chunkChars = config.integer("keyboardEntry.chunkChars", 0);
+    private static final Log log = Log.get("KeyboardEntry");
+    private static final Log.Limiter deliveryLog = log.limiter(Log.Level.DEBUG);
 
     /**
      * The main entry point for the KeyboardEntry process.
      * Initializes and configures the MQTT client, connects to the broker,
      * and enters a loop to read user input from the console. Publishes each
-     * line of input as a message to the event topic.
+     * line of input as a message to the event topic: {@code E/KeyboardEvent}, or its
+     * sub-topic named by the {@code keyboardEntry.channel} setting.
      * <p>
      * The loop terminates when the user types "quit", at which point the
      * client performs a graceful shutdown.
+     * <p>
+     * When the {@code keyboardEntry.input} setting names a file, or {@code "-"} for a
+     * standard input pipe, the process runs the non-interactive {@link BatchPublisher} instead.
+     * <p>
+     * When the {@code keyboardEntry.chunkChars} setting is set, every line is streamed
+     * in chunks of at most that many characters by a {@link TextStreamer}, each chunk being
+     * sent as soon as it is read.
+     * <p>
+     * Every event is stamped with its sending time (see {@link Timestamps}) so that the
+     * downstream components can measure the pipeline latency.
      *
-     * @throws MqttException if there is an error connecting to the broker or publishing messages.
+     * @throws MqttException        if there is an error connecting to the broker or publishing messages.
+     * @throws IOException          if the input cannot be read.
+     * @throws InterruptedException if interrupted while the batch mode waits for acknowledgements.
      */
-    static void main() throws MqttException {
-        MqttClient client = new MqttClient(server, clientId);
-        MqttConnectionOptions options = new MqttConnectionOptions();
-        options.setCleanStart(true);
-        options.setAutomaticReconnect(true);
+    static void main() throws MqttException, IOException, InterruptedException {
+        String batchSource = config.string("keyboardEntry.input", null);
+        if (batchSource != null) {
+            BatchPublisher.run(server, clientId, eventTopic, statusTopic, batchSource, chunkChars, config);
+            return;
+        }
+        Metrics metrics = Metrics.start(clientId, config);
+        Log.configure(config, metrics);
+        LatencyHistogram publishLatency = metrics.histogram("publish");
+        LongAdder publishedCount = metrics.counter("published");
+        // Publishes one event at a time and waits for each, so only the settings of the transport are used
+        Transport transport = new Transport(config, metrics);
+        int qos = transport.qos(Transport.Traffic.TEXT);
+        // In memory: a clean start discards the session anyway, and the lock of a file store left by
+        // a killed process would delay its restart
+        MqttClient client = new MqttClient(server, clientId, new MemoryPersistence());
+        MqttConnectionOptions options = transport.connectionOptions();
 
         byte[] willPayload = "Offline".getBytes();
         int willQos = 1;
@@ -58,33 +105,51 @@ public class KeyboardEntry {
 
             @Override
             public void disconnected(MqttDisconnectResponse mqttDisconnectResponse) {
-                System.out.println(mqttDisconnectResponse);
+                log.warn("disconnected", "reason", mqttDisconnectResponse.getReasonString());
             }
 
             @Override
             public void mqttErrorOccurred(MqttException e) {
-                System.out.println(e.getMessage());
+                log.error("mqttError", "reason", e.getMessage());
             }
 
             @Override
             public void messageArrived(String s, MqttMessage mqttMessage) throws Exception {
-                System.err.println("A message has arrived, however no message where expected: " + s);
+                if (s.equals(metrics.requestTopic())) {
+                    client.publish(metrics.topic(), metrics.snapshotMessage());
+                    return;
+                }
+                if (s.equals(Config.topic(clientId)) || s.equals(Config.broadcastTopic())) {
+                    config.apply(mqttMessage.getPayload());
+                    return;
+                }
+                log.error("unexpectedMessage", "topic", s);
                 throw new RuntimeException("A message has arrived, however no message where expected: " + s);
             }
 
             @Override
             public void deliveryComplete(IMqttToken iMqttToken) {
-                System.out.println("Delivery complete");
+                if (deliveryLog.permit()) {
+                    deliveryLog.log("deliveryComplete", "messageId", iMqttToken.getMessageId(), null, null);
+                }
             }
 
             @Override
             public void connectComplete(boolean b, String s) {
-                System.out.println("Connection complete" + b);
+                log.info("connected", "reconnect", b, "uri", s);
+                metrics.exportJmx();
+                try {
+                    client.subscribe(metrics.requestTopic(), 0);
+                    client.subscribe(Config.topic(clientId), 1);
+                    client.subscribe(Config.broadcastTopic(), 1);
+                } catch (MqttException e) {
+                    throw new RuntimeException(e);
+                }
             }
 
             @Override
             public void authPacketArrived(int i, MqttProperties mqttProperties) {
-                System.out.println("Auth packet arrived" + i);
+                log.info("authPacketArrived", "reasonCode", i);
             }
         });
         client.connect(options);
@@ -92,24 +157,54 @@ public class KeyboardEntry {
         onlineMessage.setQos(1);
         onlineMessage.setRetained(true);
         client.publish(statusTopic, onlineMessage);
-        System.out.println("Online status published : " + onlineMessage);
-        Scanner scanner = new Scanner(System.in);
-        System.out.print("Enter Message: ");
-        String input = scanner.nextLine();
-        while (!input.equals("quit")) {
-            System.out.println(input);
-            String message = "msg: " + input + " id: " + UUID.randomUUID();
-            MqttMessage mqttMessage = new MqttMessage(message.getBytes());
-            mqttMessage.setQos(1);
-            mqttMessage.setRetained(false);
-            client.publish(eventTopic, mqttMessage);
-            System.out.println("Enter Message: ");
-            input = scanner.nextLine();
+        log.info("statusPublished", "topic", statusTopic, "status", "Online");
+        if (chunkChars > 0) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            TextStreamer streamer = new TextStreamer(chunkChars, "quit",
+                    payload -> publishEvent(client, payload, qos, publishLatency, publishedCount));
+            System.out.print("Enter Message: ");
+            while (streamer.streamLine(reader) == TextStreamer.Line.SENT) {
+                System.out.println("Enter Message: ");
+            }
+        } else {
+            Scanner scanner = new Scanner(System.in);
+            System.out.print("Enter Message: ");
+            String input = scanner.nextLine();
+            while (!input.equals("quit")) {
+                System.out.println(input);
+                byte[] message = WireFormat.encodeText(UUID.randomUUID(), input.getBytes(StandardCharsets.UTF_8));
+                publishEvent(client, message, qos, publishLatency, publishedCount);
+                System.out.println("Enter Message: ");
+                input = scanner.nextLine();
+            }
+            scanner.close();
         }
-        scanner.close();
         client.publish(statusTopic, willMessage);
         client.disconnect();
         client.close();
+        metrics.close();
         System.out.println("Quit command received, client is stopped");
     }
+
+    /**
+     * Publishes a text event stamped with its sending time and records the publish latency.
+     *
+     * @param client         The connected client.
+     * @param payload        The text message or text chunk.
+     * @param qos            The QoS of the text events.
+     * @param publishLatency Receives the time spent publishing.
+     * @param publishedCount Counts the published events.
+     * @throws MqttException if the publish fails.
+     */
+    private static void publishEvent(MqttClient client, byte[] payload, int qos, LatencyHistogram publishLatency,
+                                     LongAdder publishedCount) throws MqttException {
+        MqttMessage mqttMessage = new MqttMessage(payload);
+        mqttMessage.setQos(qos);
+        mqttMessage.setRetained(false);
+        long start = System.nanoTime();
+        Timestamps.stamp(mqttMessage, Timestamps.SENT, Timestamps.nowMicros());
+        client.publish(eventTopic, mqttMessage);
+        publishLatency.record(System.nanoTime() - start);
+        publishedCount.increment();
+    }
 }
@@ -0,0 +1,124 @@
+package org.KeyboardEntry;
+
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.protocol.WireFormat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * The streaming mode of the {@link KeyboardEntry} sensor: every line is sent as a stream of
+ * {@link WireFormat#TYPE_TEXT_CHUNK} messages instead of a single text message.
+ * <p>
+ * Characters are read into a fixed buffer and a chunk is sent each time the buffer is full,
+ * so the first chunks of a long line are on their way, converted and displayed while the rest
+ * of the line is still being read, and the memory used does not depend on the length of the
+ * line. The last chunk of a line is flagged as such. Chunks never split a surrogate pair, so
+ * every chunk is valid UTF-8 on its own.
+ *
+ * @version 16.10.2026
+ */
+public class TextStreamer {
+
+    /**
+     * Sends the payload of a chunk, e.g. by publishing it on the event topic.
+     */
+    @FunctionalInterface
+    interface ChunkSender {
+        void send(byte[] payload) throws MqttException, InterruptedException;
+    }
+
+    /**
+     * The outcome of {@link #streamLine}.
+     */
+    enum Line {
+        /** A line has been sent. */
+        SENT,
+        /** The line was the stop word, nothing has been sent. */
+        STOPPED,
+        /** The end of the input was reached before any character of a new line. */
+        END
+    }
+
+    private final ChunkSender sender;
+    private final String stopWord;
+    private final char[] chars;
+    private final CharBuffer pending;
+    private final ByteBuffer utf8;
+    // Unpaired surrogates are replaced rather than failing the whole line
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * @param chunkChars The maximum number of characters per chunk.
+     * @param stopWord   A line ending the input instead of being sent, or {@code null}.
+     * @param sender     Sends the chunks.
+     */
+    TextStreamer(int chunkChars, String stopWord, ChunkSender sender) {
+        int capacity = Math.max(Math.max(2, chunkChars), stopWord == null ? 0 : stopWord.length() + 1);
+        this.sender = sender;
+        this.stopWord = stopWord;
+        this.chars = new char[capacity];
+        this.pending = CharBuffer.wrap(chars);
+        this.utf8 = ByteBuffer.allocate((int) (capacity * encoder.maxBytesPerChar()));
+    }
+
+    /**
+     * Reads a line and sends it chunk by chunk as it is read.
+     *
+     * @param reader The source of the text. Line terminators are not sent.
+     * @return Whether a line has been sent, the stop word read, or the end of the input reached.
+     * @throws IOException          if the source cannot be read.
+     * @throws MqttException        if a chunk cannot be sent.
+     * @throws InterruptedException if interrupted while sending.
+     */
+    Line streamLine(Reader reader) throws IOException, MqttException, InterruptedException {
+        UUID stream = UUID.randomUUID();
+        int sequence = 0;
+        int length = 0;
+        boolean read = false;
+        while (true) {
+            int c = reader.read();
+            if (c == '\r') {
+                continue;
+            }
+            if (c == -1 || c == '\n') {
+                if (c == -1 && !read) {
+                    return Line.END;
+                }
+                if (sequence == 0 && stopWord != null && stopWord.contentEquals(CharBuffer.wrap(chars, 0, length))) {
+                    return Line.STOPPED;
+                }
+                send(stream, sequence, true, length);
+                return Line.SENT;
+            }
+            read = true;
+            chars[length++] = (char) c;
+            // Keep a high surrogate with the low one that follows
+            if (length == chars.length && !Character.isHighSurrogate((char) c)) {
+                send(stream, sequence++, false, length);
+                length = 0;
+            } else if (length == chars.length) {
+                send(stream, sequence++, false, length - 1);
+                chars[0] = (char) c;
+                length = 1;
+            }
+        }
+    }
+
+    private void send(UUID stream, int sequence, boolean last, int length)
+            throws MqttException, InterruptedException {
+        pending.clear().limit(length);
+        utf8.clear();
+        encoder.reset().encode(pending, utf8, true);
+        encoder.flush(utf8);
+        sender.send(WireFormat.encodeTextChunk(stream, sequence, last, utf8.array(), 0, utf8.position()));
+    }
+}
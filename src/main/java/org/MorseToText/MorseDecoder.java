@@ -0,0 +1,227 @@
+package org.MorseToText;
+
+import org.TextToMorse.MorseEncoder;
+import org.common.StreamTracker;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+/**
+ * Table-driven Morse code to text decoder used by the {@link MorseToText} process.
+ * <p>
+ * The codes of the {@link MorseEncoder} table are stored once, when the class is loaded, as
+ * a binary tree laid out in an array: the root is node 1 and a dot leads from node {@code n}
+ * to node {@code 2n}, a dash to node {@code 2n + 1}. Decoding a letter is therefore a shift
+ * per signal and a single array read at the following gap, whatever the length of the code.
+ * Letters are decoded in upper case; a code with no character, or longer than any code of
+ * the table, is decoded as {@link #UNKNOWN}.
+ * <p>
+ * Packed symbols ({@link WireFormat#TYPE_MORSE} and {@link WireFormat#TYPE_MORSE_CHUNK}) carry
+ * their gaps and are decoded on their own. Keying messages ({@link WireFormat#TYPE_KEYING})
+ * only carry durations, which are classified against an estimate of the duration of a unit
+ * of the key: a key-down period shorter than 2 units is a dot, a longer one a dash; a key-up
+ * period shorter than 2 units separates signals, one shorter than 5 units separates letters,
+ * a longer one words. The estimate follows the speed of the operator: it is updated by every
+ * dot, dash and signal gap, and reset outright by a signal impossible at the current speed.
+ * <p>
+ * The estimate and the letter in progress of a keyed stream are packed into the
+ * {@link StreamTracker.Stream#state} of the stream, so following any number of streams
+ * needs no object besides the tracker entries, and decoding allocates nothing. An instance
+ * only holds settings and may be shared.
+ *
+ * @version 16.10.2026
+ */
+public final class MorseDecoder {
+    /**
+     * The character standing for a code that has none.
+     */
+    public static final byte UNKNOWN = '*';
+
+    private static final int ROOT = 1;
+    // Reached by a code longer than any of the table, stays so until the next gap
+    private static final int INVALID = 0;
+    // Codes of up to 7 signals
+    private static final int TREE_SIZE = 256;
+    private static final byte[] TREE = new byte[TREE_SIZE];
+
+    // Stream state: the unit estimate in 1/16 ms above the 8 bits of the node in progress
+    private static final int NODE_MASK = 0xFF;
+    private static final int UNIT_SHIFT = 8;
+    private static final int SUBDIVISIONS = 16;
+    private static final int MAX_UNIT = (1 << (32 - UNIT_SHIFT - 1)) - 1;
+
+    static {
+        // In increasing order, so that upper case letters come before lower case ones
+        for (char c = 0; c < 128; c++) {
+            byte[] code = MorseEncoder.codeOf(c);
+            if (code == null) {
+                continue;
+            }
+            int node = ROOT;
+            for (byte signal : code) {
+                node = next(node, signal == '-');
+            }
+            if (node != INVALID && TREE[node] == 0) {
+                TREE[node] = (byte) c;
+            }
+        }
+    }
+
+    private final int initialUnit;
+    private final int minPeriod;
+
+    /**
+     * @param initialWpm       The speed assumed for a new keyed stream, in words per minute.
+     * @param minPeriodMillis  Key periods shorter than this are ignored as contact bounce.
+     */
+    public MorseDecoder(int initialWpm, int minPeriodMillis) {
+        if (initialWpm < 1 || minPeriodMillis < 0) {
+            throw new IllegalArgumentException("invalid decoder settings");
+        }
+        // PARIS timing: a unit lasts 1200 ms / WPM
+        this.initialUnit = 1200 * SUBDIVISIONS / initialWpm;
+        this.minPeriod = minPeriodMillis * SUBDIVISIONS;
+    }
+
+    /**
+     * Returns an upper bound of the number of bytes a decoding writes for a message body.
+     *
+     * @param bodyLength The number of symbols or keying elements of the body.
+     * @return The maximum number of bytes the decoded text can take.
+     */
+    public static int maxDecodedLength(int bodyLength) {
+        return 2 * bodyLength + 1;
+    }
+
+    /**
+     * @return The {@link StreamTracker.Stream#state} of a new keyed stream.
+     */
+    public int initialState() {
+        return initialUnit << UNIT_SHIFT | ROOT;
+    }
+
+    /**
+     * @param state The state of a keyed stream.
+     * @return The estimated speed of its key in words per minute.
+     */
+    public static int wpm(int state) {
+        return 1200 * SUBDIVISIONS / Math.max(1, state >>> UNIT_SHIFT);
+    }
+
+    /**
+     * Decodes the packed symbols of a Morse message or chunk into ASCII text.
+     * The array must have at least {@link #maxDecodedLength(int)} bytes available.
+     *
+     * @param morse  The Morse message.
+     * @param out    The destination array.
+     * @param offset The index in {@code out} of the first byte to write.
+     * @return The index in {@code out} right after the last byte written.
+     */
+    public int decodeSymbols(WireMessage morse, byte[] out, int offset) {
+        byte[] buffer = morse.buffer();
+        int bodyOffset = morse.bodyOffset();
+        int node = ROOT;
+        int position = offset;
+        for (int i = 0, count = morse.bodyLength(); i < count; i++) {
+            switch (WireFormat.symbolAt(buffer, bodyOffset, i)) {
+                case WireFormat.SYMBOL_DOT -> node = next(node, false);
+                case WireFormat.SYMBOL_DASH -> node = next(node, true);
+                case WireFormat.SYMBOL_LETTER_GAP -> {
+                    position = emit(node, out, position);
+                    node = ROOT;
+                }
+                default -> {
+                    position = emit(node, out, position);
+                    node = ROOT;
+                    out[position++] = ' ';
+                }
+            }
+        }
+        return emit(node, out, position);
+    }
+
+    /**
+     * Decodes the elements of a keying message into ASCII text, carrying the letter in
+     * progress and the speed estimate over to the next message of the stream.
+     * The array must have at least {@link #maxDecodedLength(int)} bytes available.
+     *
+     * @param keying The keying message.
+     * @param stream The stream of the message, whose state is updated.
+     * @param out    The destination array.
+     * @param offset The index in {@code out} of the first byte to write.
+     * @return The index in {@code out} right after the last byte written.
+     */
+    public int decodeKeying(WireMessage keying, StreamTracker.Stream stream, byte[] out, int offset) {
+        byte[] buffer = keying.buffer();
+        int bodyOffset = keying.bodyOffset();
+        int node = stream.state & NODE_MASK;
+        int unit = stream.state >>> UNIT_SHIFT;
+        if (stream.missed() > 0) {
+            // The letter in progress lost some signals
+            node = ROOT;
+        }
+        int position = offset;
+        for (int i = 0, count = keying.bodyLength(); i < count; i++) {
+            int element = WireFormat.keyingAt(buffer, bodyOffset, i);
+            int period = (element & WireFormat.MAX_KEYING_MILLIS) * SUBDIVISIONS;
+            if (period < minPeriod) {
+                continue;
+            }
+            if ((element & WireFormat.KEY_DOWN) != 0) {
+                boolean dash;
+                if (period < unit / 2) {
+                    // Too short even for a dot: the operator sped up
+                    dash = false;
+                    unit = period;
+                } else if (period > 5 * unit) {
+                    // Too long even for a dash: the operator slowed down
+                    dash = true;
+                    unit = period / 3;
+                } else {
+                    dash = period >= 2 * unit;
+                    unit += ((dash ? period / 3 : period) - unit) >> 2;
+                }
+                node = next(node, dash);
+            } else if (period < 2 * unit) {
+                // Gaps within a letter vary more than signals, so they weigh less
+                unit += (period - unit) >> 3;
+            } else if (period < 5 * unit) {
+                position = emit(node, out, position);
+                node = ROOT;
+            } else if (node != ROOT) {
+                position = emit(node, out, position);
+                node = ROOT;
+                out[position++] = ' ';
+            }
+        }
+        if (keying.isLastChunk()) {
+            position = emit(node, out, position);
+            node = ROOT;
+        }
+        stream.state = Math.clamp(unit, 1, MAX_UNIT) << UNIT_SHIFT | node;
+        return position;
+    }
+
+    /**
+     * @param node A node of the tree, or {@link #INVALID}.
+     * @param dash Whether the next signal is a dash.
+     * @return The node reached, or {@link #INVALID} if the code gets too long.
+     */
+    private static int next(int node, boolean dash) {
+        if (node == INVALID || node >= TREE_SIZE / 2) {
+            return INVALID;
+        }
+        return node << 1 | (dash ? 1 : 0);
+    }
+
+    /**
+     * Writes the character of a completed letter, if any.
+     */
+    private static int emit(int node, byte[] out, int position) {
+        if (node == ROOT) {
+            return position;
+        }
+        byte c = node == INVALID ? 0 : TREE[node];
+        out[position] = c == 0 ? UNKNOWN : c;
+        return position + 1;
+    }
+}
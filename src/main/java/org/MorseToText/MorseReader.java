@@ -0,0 +1,205 @@
+package org.MorseToText;
+
+import org.TextToMorse.ConversionEngine;
+import org.common.DuplicateFilter;
+import org.common.LatencyHistogram;
+import org.common.Log;
+import org.common.Metrics;
+import org.common.StreamTracker;
+import org.common.Timestamps;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The message path of the {@link MorseToText} decoder, independent of the MQTT client so that
+ * it can be driven by tools with a stub publisher; the counterpart of the
+ * {@link org.TextToMorse.MorseTransformer}.
+ * <p>
+ * {@link #accept} is called by the MQTT callback thread for every input message and only
+ * validates it, while the handlers created by {@link #newWorker()} run on the
+ * {@link ConversionEngine} workers, drop duplicates, decode and publish. A Morse message is
+ * published as a text message with the same id, which the transformer took from the source
+ * text, so that a round trip through both transformers can be checked message by message
+ * against the typed text; a Morse chunk as a text chunk of the same stream. Every keying
+ * message of a key is published as a text chunk of its stream holding the letters completed
+ * by that message. The text is published on the output topic followed by the sub-topic of
+ * the input, e.g. {@code E/MorseKeying/station1} is decoded to {@code <output>/station1}.
+ * <p>
+ * All messages of a stream come from the same topic and thus reach the same worker, which
+ * keeps the speed estimate and the letter in progress of each key in its
+ * {@link StreamTracker}. A worker decodes into a reusable buffer: the published payload is
+ * the only allocation per message.
+ *
+ * @version 16.10.2026
+ */
+public final class MorseReader {
+    // Streams followed by each worker; older ones are forgotten, which bounds the memory
+    private static final int STREAMS_PER_WORKER = 1024;
+    private static final Log log = Log.get("MorseReader");
+
+    /**
+     * Publishes an outgoing message, e.g. {@code MqttClient::publish}.
+     */
+    @FunctionalInterface
+    public interface Publisher {
+        void publish(String topic, MqttMessage message) throws MqttException;
+    }
+
+    private final Publisher publisher;
+    private final String outputTopic;
+    private final DuplicateFilter processedMessages;
+    private final MorseDecoder decoder;
+
+    // Reusable decoding view, only touched by the MQTT callback thread
+    private final WireMessage inputMessage = new WireMessage();
+    private final Log.Limiter malformedLog = log.limiter(Log.Level.WARN);
+
+    private final LatencyHistogram transitLatency;
+    private final LatencyHistogram decodeLatency;
+    private final LatencyHistogram publishLatency;
+    private final LongAdder receivedCount;
+    private final LongAdder publishedCount;
+    private final LongAdder duplicateCount;
+    private final LongAdder missingChunkCount;
+    private final LongAdder decodedCount;
+    private final LongAdder unknownCount;
+    // Speed of the key decoded last, for the gauge
+    private volatile int lastWpm;
+
+    /**
+     * @param publisher         Publishes the text messages.
+     * @param outputTopic       The base topic of the text messages.
+     * @param processedMessages Remembers the ids of the processed Morse messages.
+     * @param decoder           The decoder, with the keying settings.
+     * @param metrics           Receives the latency of each stage and the message counts.
+     */
+    public MorseReader(Publisher publisher, String outputTopic, DuplicateFilter processedMessages,
+                       MorseDecoder decoder, Metrics metrics) {
+        this.publisher = publisher;
+        this.outputTopic = outputTopic;
+        this.processedMessages = processedMessages;
+        this.decoder = decoder;
+        this.transitLatency = metrics.histogram("transit");
+        this.decodeLatency = metrics.histogram("decode");
+        this.publishLatency = metrics.histogram("publish");
+        this.receivedCount = metrics.counter("received");
+        this.publishedCount = metrics.counter("published");
+        this.duplicateCount = metrics.counter("duplicates");
+        this.missingChunkCount = metrics.counter("missingChunks");
+        this.decodedCount = metrics.counter("decodedChars");
+        this.unknownCount = metrics.counter("unknownCodes");
+        metrics.gauge("keyingWpm", () -> lastWpm);
+    }
+
+    /**
+     * Validates an input message on the callback thread. Not thread-safe, as it reuses a
+     * decoding view: only the MQTT callback thread may call it.
+     *
+     * @param topic   The topic the message arrived on.
+     * @param message The message.
+     * @return {@code true} if the message is a Morse message, a Morse chunk or a keying
+     * message to hand over to a worker.
+     */
+    public boolean accept(String topic, MqttMessage message) {
+        receivedCount.increment();
+        long sentMicros = Timestamps.read(message, Timestamps.SENT);
+        if (sentMicros >= 0) {
+            transitLatency.record((Timestamps.nowMicros() - sentMicros) * 1_000);
+        }
+        if (!inputMessage.wrap(message.getPayload())
+                || (!WireFormat.isMorse(inputMessage.type()) && inputMessage.type() != WireFormat.TYPE_KEYING)) {
+            if (malformedLog.permit()) {
+                malformedLog.log("malformedMessage", "topic", topic, null, null);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Creates the handler of a worker, with its own buffer, decoding view and streams.
+     *
+     * @return A handler for the messages accepted by {@link #accept}.
+     */
+    public ConversionEngine.MessageHandler newWorker() {
+        return new Worker();
+    }
+
+    private final class Worker implements ConversionEngine.MessageHandler {
+        private final WireMessage frame = new WireMessage();
+        private final StreamTracker streams = new StreamTracker(STREAMS_PER_WORKER, decoder.initialState());
+        private byte[] text = new byte[WireFormat.CHUNK_HEADER_LENGTH + 256];
+
+        @Override
+        public void handle(String topic, MqttMessage message) throws MqttException {
+            long start = System.nanoTime();
+            frame.wrap(message.getPayload());
+            int needed = WireFormat.CHUNK_HEADER_LENGTH + MorseDecoder.maxDecodedLength(frame.bodyLength());
+            if (text.length < needed) {
+                text = new byte[Math.max(needed, 2 * text.length)];
+            }
+            int bodyOffset;
+            int end;
+            if (frame.type() == WireFormat.TYPE_MORSE) {
+                if (processedMessages.isDuplicate(frame.idMostSignificantBits(), frame.idLeastSignificantBits())) {
+                    duplicateCount.increment();
+                    return;
+                }
+                bodyOffset = WireFormat.HEADER_LENGTH;
+                end = decoder.decodeSymbols(frame, text, bodyOffset);
+                WireFormat.writeHeader(text, 0, WireFormat.TYPE_TEXT, frame.idMostSignificantBits(),
+                        frame.idLeastSignificantBits(), end - bodyOffset);
+            } else {
+                StreamTracker.Stream stream = streams.accept(frame.idMostSignificantBits(),
+                        frame.idLeastSignificantBits(), frame.sequence(), frame.isLastChunk());
+                if (stream == null) {
+                    duplicateCount.increment();
+                    return;
+                }
+                missingChunkCount.add(stream.missed());
+                bodyOffset = WireFormat.CHUNK_HEADER_LENGTH;
+                if (frame.type() == WireFormat.TYPE_KEYING) {
+                    end = decoder.decodeKeying(frame, stream, text, bodyOffset);
+                    lastWpm = MorseDecoder.wpm(stream.state);
+                } else {
+                    end = decoder.decodeSymbols(frame, text, bodyOffset);
+                }
+                WireFormat.writeChunkHeader(text, 0, WireFormat.TYPE_TEXT_CHUNK, frame.idMostSignificantBits(),
+                        frame.idLeastSignificantBits(), frame.sequence(), frame.isLastChunk(), end - bodyOffset);
+            }
+            for (int i = bodyOffset; i < end; i++) {
+                if (text[i] == MorseDecoder.UNKNOWN) {
+                    unknownCount.increment();
+                }
+            }
+            decodedCount.add(end - bodyOffset);
+            long decoded = System.nanoTime();
+            decodeLatency.record(decoded - start);
+
+            MqttMessage output = new MqttMessage(Arrays.copyOf(text, end));
+            long sentMicros = Timestamps.read(message, Timestamps.SENT);
+            if (sentMicros >= 0) {
+                Timestamps.stamp(output, Timestamps.SENT, sentMicros);
+            }
+            Timestamps.stamp(output, Timestamps.DECODED, Timestamps.nowMicros());
+            publisher.publish(outputTopicOf(topic), output);
+            publishLatency.record(System.nanoTime() - decoded);
+            publishedCount.increment();
+        }
+    }
+
+    /**
+     * @param inputTopic The topic of an input message, e.g. {@code E/MorseKeying/station1}.
+     * @return The output topic followed by the sub-topic of the input, if any.
+     */
+    private String outputTopicOf(String inputTopic) {
+        int base = inputTopic.indexOf('/');
+        int subTopic = base < 0 ? -1 : inputTopic.indexOf('/', base + 1);
+        return subTopic < 0 ? outputTopic : outputTopic + inputTopic.substring(subTopic);
+    }
+}
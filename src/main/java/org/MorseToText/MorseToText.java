@@ -0,0 +1,202 @@
+package org.MorseToText;
+
+import org.TextToMorse.ConversionEngine;
+import org.common.Config;
+import org.common.DuplicateFilter;
+import org.common.Log;
+import org.common.Metrics;
+import org.common.Transport;
+import org.eclipse.paho.mqttv5.client.*;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents the "decoder" component of the distributed Morse code system, the reverse of
+ * the {@link org.TextToMorse.TextToMorse} transformer: it subscribes to Morse code, either
+ * the symbols published by the transformer or the timing of a Morse key, and publishes the
+ * decoded text.
+ * <p>
+ * It runs as its own process next to the transformer, with the same conventions: a retained
+ * "Online" status, an "Offline" will, metrics on demand, and a pool of workers so that the
+ * MQTT callback thread never decodes nor publishes itself. It is used to verify round trips,
+ * the decoded text carrying the id of the original text, and to ingest hand-keyed signals.
+ *
+ * @version 16.10.2026
+ */
+public class MorseToText {
+    // Settings from the file, environment and system properties, see Config
+    private static final Config config = Config.load();
+    private static final String server = config.string("morse.server", "tcp://localhost:1883");
+    private static final String clientId = config.string("morseToText.clientId", "morseToText");
+    private static final String morseTopic = "E/textInMorse";
+    private static final String keyingTopic = "E/MorseKeying";
+    private static final String outputTopic = "E/morseInText";
+    private static final String inputStatusTopic = "S/textInMorse";
+    private static final String outputStatusTopic = "S/morseInText";
+    // Ids of the recently decoded Morse messages, to drop QoS 1 redeliveries
+    private static final DuplicateFilter processedMessages = new DuplicateFilter(
+            config.integer("morseToText.dedupCapacity", 4096));
+
+    // --- Worker pool settings ---
+    private static final ConversionEngine.Mode workerMode =
+            config.choice("morseToText.workerMode", ConversionEngine.Mode.PLATFORM);
+    private static final int workerCount =
+            config.integer("morseToText.workers", Runtime.getRuntime().availableProcessors());
+    // At least transport.receiveMaximum, see main
+    private static final int workerQueueCapacity = config.integer("morseToText.queueCapacity", 256);
+
+    // --- Keying settings ---
+    private static final int initialWpm = config.integer("morseToText.initialWpm", 15);
+    private static final int minPeriodMillis = config.integer("morseToText.minPeriodMillis", 8);
+
+    // Latency and throughput of each stage, see Metrics for the exports
+    private static final Metrics metrics = Metrics.start(clientId, config);
+    private static final Log log = Log.get("MorseToText");
+    private static final Log.Limiter overflowLog = log.limiter(Log.Level.WARN);
+    // QoS per traffic class and adaptive window of unacknowledged publishes, see Transport
+    private static final Transport transport = new Transport(config, metrics);
+    private static final int inputQos = transport.qos(Transport.Traffic.MORSE);
+    private static final int qos = transport.qos(Transport.Traffic.DECODED);
+
+    /**
+     * The main entry point for the MorseToText process.
+     * Subscribes to {@code E/textInMorse} and {@code E/MorseKeying} and their sub-topics,
+     * the topic being the ordering key of the {@link ConversionEngine} workers, and publishes
+     * the decoded text on {@code E/morseInText} and the matching sub-topic, see {@link MorseReader}.
+     * The main thread terminates after setup, the work being done by the MQTT client threads
+     * and the workers. An input message is acknowledged to the broker once its worker has
+     * decoded it, so that every queue, as large as {@code transport.receiveMaximum}, has room
+     * for all the messages the broker may push ahead. Only a message delivered at QoS 0 can
+     * find its queue full: it is then dropped and counted as {@code dropped}.
+     *
+     * @throws MqttException if there is an error connecting to the broker.
+     */
+    static void main() throws MqttException {
+        Log.configure(config, metrics);
+        MqttAsyncClient client = new MqttAsyncClient(server, clientId, new MemoryPersistence());
+        client.setManualAcks(true);
+        MqttConnectionOptions options = transport.connectionOptions();
+
+        MqttMessage willMessage = new MqttMessage("Offline".getBytes());
+        willMessage.setQos(1);
+        willMessage.setRetained(true);
+        options.setWill(outputStatusTopic, willMessage);
+
+        MorseReader reader = new MorseReader((topic, message) -> {
+            message.setQos(qos);
+            publish(client, topic, message);
+        }, outputTopic, processedMessages, new MorseDecoder(initialWpm, minPeriodMillis), metrics);
+        int queueCapacity = Math.max(workerQueueCapacity, transport.receiveMaximum());
+        ConversionEngine engine = new ConversionEngine(workerMode, workerCount, queueCapacity, partition -> {
+            ConversionEngine.MessageHandler worker = reader.newWorker();
+            return (topic, message) -> {
+                try {
+                    worker.handle(topic, message);
+                } finally {
+                    Transport.acknowledge(client, message);
+                }
+            };
+        }, metrics.histogram("queue"));
+        LongAdder dropped = metrics.counter("dropped");
+        client.setCallback(new MqttCallback() {
+            @Override
+            public void disconnected(MqttDisconnectResponse disconnectResponse) {
+                log.warn("disconnected", "reason", disconnectResponse.getReasonString());
+            }
+
+            @Override
+            public void mqttErrorOccurred(MqttException exception) {
+                log.error("mqttError", "reason", exception.getMessage());
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) throws Exception {
+                if (isInput(topic, morseTopic) || isInput(topic, keyingTopic)) {
+                    if (reader.accept(topic, message)) {
+                        if (engine.offer(topic, topic, message)) {
+                            // Acknowledged by its worker once decoded
+                            return;
+                        }
+                        // Never wait on this thread, see ConversionEngine
+                        dropped.increment();
+                        if (overflowLog.permit()) {
+                            overflowLog.log("inputDropped", "topic", topic, null, null);
+                        }
+                    }
+                } else if (topic.equals(metrics.requestTopic())) {
+                    client.publish(metrics.topic(), metrics.snapshotMessage());
+                } else if (topic.equals(Config.topic(clientId)) || topic.equals(Config.broadcastTopic())) {
+                    config.apply(message.getPayload());
+                } else if (topic.equals(inputStatusTopic)) {
+                    String payload = new String(message.getPayload());
+                    if (payload.equals("Offline")) {
+                        log.warn("inputOffline", "topic", topic);
+                    } else {
+                        log.info("inputOnline", "topic", topic);
+                    }
+                }
+                Transport.acknowledge(client, message);
+            }
+
+            @Override
+            public void deliveryComplete(IMqttToken token) {
+                // Acknowledgements are not tracked
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                log.info("connected", "reconnect", reconnect, "uri", serverURI);
+                metrics.exportJmx();
+                try {
+                    client.subscribe(morseTopic, inputQos);
+                    client.subscribe(morseTopic + "/+", inputQos);
+                    client.subscribe(keyingTopic, inputQos);
+                    client.subscribe(keyingTopic + "/+", inputQos);
+                    client.subscribe(inputStatusTopic, 1);
+                    client.subscribe(metrics.requestTopic(), 0);
+                    client.subscribe(Config.topic(clientId), 1);
+                    client.subscribe(Config.broadcastTopic(), 1);
+                } catch (MqttException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public void authPacketArrived(int reasonCode, MqttProperties properties) {
+                // Not used here
+            }
+        });
+        client.connect(options).waitForCompletion();
+        MqttMessage onlineMessage = new MqttMessage("Online".getBytes());
+        onlineMessage.setQos(1);
+        onlineMessage.setRetained(true);
+        client.publish(outputStatusTopic, onlineMessage).waitForCompletion();
+        log.info("statusPublished", "topic", outputStatusTopic, "status", "Online");
+    }
+
+    /**
+     * @param topic The topic of a received message.
+     * @param base  An input topic.
+     * @return {@code true} if the topic is the input topic or one of its sub-topics.
+     */
+    private static boolean isInput(String topic, String base) {
+        return topic.startsWith(base) && (topic.length() == base.length() || topic.charAt(base.length()) == '/');
+    }
+
+    /**
+     * Publishes a message without waiting for its acknowledgement, waiting for a slot when
+     * the window of the {@link Transport} is full.
+     *
+     * @param client  The client to publish with.
+     * @param topic   The topic.
+     * @param message The message.
+     * @throws MqttException if the publish is refused.
+     */
+    private static void publish(MqttAsyncClient client, String topic, MqttMessage message) throws MqttException {
+        transport.publish(client, topic, message, null);
+    }
+}
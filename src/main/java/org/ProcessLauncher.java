@@ -14,7 +14,7 @@ import java.util.List;
  * It provides a convenient way to start and observe all parts of the distributed
  * system simultaneously during development and testing. The implementation is
  * OS-aware, generating the appropriate commands for Windows, macOS, and Linux
- * environments.
+ * environments. On a machine without a desktop, use the {@link org.supervisor.Supervisor}.
  *
  * @version 20.10.2025
  */
@@ -0,0 +1,184 @@
+package org.TextToMorse;
+
+import org.common.LatencyHistogram;
+import org.common.Log;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntFunction;
+
+/**
+ * Hands arrived messages over from the MQTT callback thread to a pool of workers,
+ * so that the conversion and the blocking publish do not stall the callback thread.
+ * <p>
+ * Messages are routed to a fixed set of partitions by a key such as the sub-topic or
+ * the source of the message. Each partition has its own bounded queue drained by a
+ * single worker, so messages with the same key are processed in arrival order while
+ * different keys are processed in parallel. The workers are either platform threads,
+ * one per core being the natural choice, or virtual threads, which makes many more
+ * partitions affordable when the handler mostly waits on the broker.
+ * <p>
+ * The MQTT callback thread hands messages over with {@link #offer}, which never blocks:
+ * when the queue of a partition is full the message is refused, and the caller drops it
+ * or leaves it in its journal. Blocking that thread instead would also stop the client
+ * from reading the acknowledgements of the publishes the workers are waiting for, and
+ * the two would wait for each other for good. {@link #submit} waits for space, for
+ * threads that the workers do not depend on, e.g. to resubmit journaled messages.
+ * <p>
+ * A caller acknowledging each message to the broker only once it is processed, with queues
+ * as large as its receive maximum, never finds a queue full with QoS 1 messages.
+ *
+ * @version 16.10.2026
+ */
+public final class ConversionEngine implements AutoCloseable {
+
+    /**
+     * The kind of threads running the partition workers.
+     */
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    /**
+     * Processes the messages of one partition. Each partition gets its own handler,
+     * which is only ever called by the worker of that partition.
+     */
+    @FunctionalInterface
+    public interface MessageHandler {
+        void handle(String topic, MqttMessage message) throws Exception;
+    }
+
+    private record Job(String topic, MqttMessage message, long enqueuedNanos) {
+    }
+
+    private static final Job STOP = new Job(null, null, 0);
+    private static final Log.Limiter failureLog = Log.get("ConversionEngine").limiter(Log.Level.ERROR);
+
+    private final List<BlockingQueue<Job>> queues;
+    private final List<Thread> workers;
+    private final LatencyHistogram queueLatency;
+
+    /**
+     * Creates the partitions and starts their workers.
+     *
+     * @param mode           The kind of threads running the workers.
+     * @param partitions     The number of partitions, i.e. of messages processed in parallel.
+     * @param queueCapacity  The maximum number of messages waiting in each partition.
+     * @param handlerFactory Creates the handler of each partition from its index.
+     */
+    public ConversionEngine(Mode mode, int partitions, int queueCapacity, IntFunction<MessageHandler> handlerFactory) {
+        this(mode, partitions, queueCapacity, handlerFactory, null);
+    }
+
+    /**
+     * Creates the partitions and starts their workers, recording how long messages wait in the queues.
+     *
+     * @param mode           The kind of threads running the workers.
+     * @param partitions     The number of partitions, i.e. of messages processed in parallel.
+     * @param queueCapacity  The maximum number of messages waiting in each partition.
+     * @param handlerFactory Creates the handler of each partition from its index.
+     * @param queueLatency   Receives the time in nanoseconds each message waited, or {@code null}.
+     */
+    public ConversionEngine(Mode mode, int partitions, int queueCapacity, IntFunction<MessageHandler> handlerFactory,
+                            LatencyHistogram queueLatency) {
+        if (partitions < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("partitions and queueCapacity must be positive");
+        }
+        this.queueLatency = queueLatency;
+        queues = new ArrayList<>(partitions);
+        workers = new ArrayList<>(partitions);
+        Thread.Builder builder = mode == Mode.VIRTUAL
+                ? Thread.ofVirtual().name("morse-worker-", 0)
+                : Thread.ofPlatform().name("morse-worker-", 0).daemon(true);
+        for (int i = 0; i < partitions; i++) {
+            BlockingQueue<Job> queue = new ArrayBlockingQueue<>(queueCapacity);
+            MessageHandler handler = handlerFactory.apply(i);
+            queues.add(queue);
+            workers.add(builder.start(() -> drain(queue, handler, queueLatency)));
+        }
+    }
+
+    /**
+     * @return The number of partitions.
+     */
+    public int partitions() {
+        return queues.size();
+    }
+
+    /**
+     * Queues a message on the partition selected by its key, unless the partition is full.
+     * Never blocks, so it can be called from the MQTT callback thread.
+     *
+     * @param key     The ordering key; messages with equal keys are processed in order.
+     * @param topic   The topic the message arrived on.
+     * @param message The message.
+     * @return {@code false} if the partition is full and the message was not queued.
+     */
+    public boolean offer(String key, String topic, MqttMessage message) {
+        return queues.get(partitionOf(key)).offer(new Job(topic, message, queueLatency != null ? System.nanoTime() : 0));
+    }
+
+    /**
+     * Queues a message on the partition selected by its key, waiting for space if the
+     * partition is full. Must not be called from the MQTT callback thread, see {@link #offer}.
+     *
+     * @param key     The ordering key; messages with equal keys are processed in order.
+     * @param topic   The topic the message arrived on.
+     * @param message The message.
+     * @throws InterruptedException if interrupted while waiting for space.
+     */
+    public void submit(String key, String topic, MqttMessage message) throws InterruptedException {
+        queues.get(partitionOf(key)).put(new Job(topic, message, queueLatency != null ? System.nanoTime() : 0));
+    }
+
+    /**
+     * @param key The ordering key.
+     * @return The index of the partition processing the messages of that key.
+     */
+    public int partitionOf(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, queues.size());
+    }
+
+    /**
+     * Lets the workers finish the messages already queued, then stops them.
+     * If interrupted while waiting, returns early with the interrupt status set.
+     */
+    @Override
+    public void close() {
+        try {
+            for (BlockingQueue<Job> queue : queues) {
+                queue.put(STOP);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void drain(BlockingQueue<Job> queue, MessageHandler handler, LatencyHistogram queueLatency) {
+        try {
+            for (Job job = queue.take(); job != STOP; job = queue.take()) {
+                if (queueLatency != null) {
+                    queueLatency.record(System.nanoTime() - job.enqueuedNanos());
+                }
+                try {
+                    handler.handle(job.topic(), job.message());
+                } catch (Exception e) {
+                    if (failureLog.permit()) {
+                        failureLog.log("processingFailed", "topic", job.topic(), "reason", e.toString());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.TextToMorse;
+
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.util.Arrays;
+
+/**
+ * Converts text messages into Morse messages, both in the binary {@link WireFormat}.
+ * <p>
+ * A converter owns a reusable decoding view and output buffer, so it is not thread-safe:
+ * every worker of the {@link ConversionEngine} uses its own instance. The text is read in
+ * place from the received payload and encoded by {@link MorseEncoder} directly into the
+ * reusable buffer; the only allocation is the final payload array handed over to the MQTT client.
+ * A Morse message takes the id of the text it was converted from, and chunks of a streamed
+ * text are converted one by one into Morse chunks of the same stream, so the text decoded
+ * from the Morse can be matched with its source.
+ *
+ * @version 16.10.2026
+ */
+public final class MorseConverter {
+    private final WireMessage input = new WireMessage();
+    private byte[] outputBuffer = new byte[1024];
+
+    /**
+     * Converts a received text message into a Morse message with the same id.
+     *
+     * @param textPayload The payload of the text message.
+     * @return The payload of the Morse message, or {@code null} if the input is not a valid text message.
+     */
+    public byte[] convert(byte[] textPayload) {
+        if (!input.wrap(textPayload) || input.type() != WireFormat.TYPE_TEXT) {
+            return null;
+        }
+        return convert(input);
+    }
+
+    /**
+     * Converts a decoded text message into a Morse message with the same id.
+     *
+     * @param text The text message.
+     * @return The payload of the Morse message.
+     */
+    public byte[] convert(WireMessage text) {
+        int required = WireFormat.HEADER_LENGTH
+                + WireFormat.packedLength(MorseEncoder.maxSymbolCount(text.bodyLength()));
+        if (outputBuffer.length < required) {
+            outputBuffer = new byte[Math.max(required, outputBuffer.length * 2)];
+        }
+        byte[] buffer = outputBuffer;
+        int bodyOffset = WireFormat.writeHeader(buffer, 0, WireFormat.TYPE_MORSE,
+                text.idMostSignificantBits(), text.idLeastSignificantBits(), 0);
+        int symbolCount = MorseEncoder.encodeSymbols(text.buffer(), text.bodyOffset(), text.bodyLength(),
+                buffer, bodyOffset);
+        WireFormat.setBodyLength(buffer, 0, symbolCount);
+        return Arrays.copyOf(buffer, bodyOffset + WireFormat.packedLength(symbolCount));
+    }
+
+    /**
+     * Converts a text chunk into the Morse chunk with the same stream id, sequence number
+     * and last chunk flag.
+     *
+     * @param chunk      The text chunk.
+     * @param leadingGap The gap owed by the previous chunks of the stream, see {@link MorseEncoder#gapAfter}.
+     * @return The payload of the Morse chunk.
+     */
+    public byte[] convertChunk(WireMessage chunk, int leadingGap) {
+        int required = WireFormat.CHUNK_HEADER_LENGTH
+                + WireFormat.packedLength(MorseEncoder.maxSymbolCount(chunk.bodyLength()));
+        if (outputBuffer.length < required) {
+            outputBuffer = new byte[Math.max(required, outputBuffer.length * 2)];
+        }
+        byte[] buffer = outputBuffer;
+        int bodyOffset = WireFormat.writeChunkHeader(buffer, 0, WireFormat.TYPE_MORSE_CHUNK,
+                chunk.idMostSignificantBits(), chunk.idLeastSignificantBits(), chunk.sequence(),
+                chunk.isLastChunk(), 0);
+        int symbolCount = MorseEncoder.encodeSymbols(chunk.buffer(), chunk.bodyOffset(), chunk.bodyLength(),
+                buffer, bodyOffset, leadingGap);
+        WireFormat.setBodyLength(buffer, 0, symbolCount);
+        return Arrays.copyOf(buffer, bodyOffset + WireFormat.packedLength(symbolCount));
+    }
+}
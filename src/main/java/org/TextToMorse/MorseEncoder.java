@@ -0,0 +1,295 @@
+package org.TextToMorse;
+
+import org.protocol.WireFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Table-driven text to Morse code encoder used by the {@link TextToMorse} transformer.
+ * <p>
+ * Every supported character is looked up in a lookup table indexed by its char value
+ * that is built once when the class is loaded. Each table entry already holds the
+ * encoded dots and dashes as ASCII bytes, so encoding a message is a sequence of
+ * array copies straight into a buffer owned by the caller. No intermediate
+ * {@code String} or per-character object is created on the encoding path.
+ * <p>
+ * The output uses {@code '.'} and {@code '-'} for the signals, a single space between
+ * letters and {@code " / "} between words, e.g. {@code "sos hi"} becomes
+ * {@code "... --- ... / .... .."}. Letters are case-insensitive and characters
+ * without a Morse representation are skipped.
+ * <p>
+ * For the binary {@link WireFormat}, {@link #encodeSymbols(byte[], int, int, byte[], int)}
+ * encodes UTF-8 text read in place from a received payload into packed 2-bit symbols,
+ * using a letter gap between letters and a single word gap between words. A text streamed in
+ * chunks is encoded chunk by chunk with {@link #encodeSymbols(byte[], int, int, byte[], int, int)},
+ * carrying the gap owed at the end of a chunk, see {@link #gapAfter}, over to the next one.
+ *
+ * @version 16.10.2026
+ */
+public final class MorseEncoder {
+    /**
+     * Longest code in the table (7 signals) plus the worst case separator {@code " / "}.
+     */
+    private static final int MAX_BYTES_PER_CHAR = 10;
+    /**
+     * Longest code in the table (7 signals) plus the gap symbol preceding it.
+     */
+    private static final int MAX_SYMBOLS_PER_CHAR = 8;
+    /**
+     * No gap is owed before the next letter: nothing has been encoded yet.
+     */
+    public static final int NO_GAP = -1;
+    private static final int TABLE_SIZE = 128;
+    private static final byte[][] TABLE = new byte[TABLE_SIZE][];
+    private static final byte LETTER_SEPARATOR = ' ';
+    private static final byte[] WORD_SEPARATOR = " / ".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        String[] letters = {
+                ".-", "-...", "-.-.", "-..", ".", "..-.", "--.", "....", "..", ".---", "-.-", ".-..", "--",
+                "-.", "---", ".--.", "--.-", ".-.", "...", "-", "..-", "...-", ".--", "-..-", "-.--", "--.."
+        };
+        for (int i = 0; i < letters.length; i++) {
+            define((char) ('A' + i), letters[i]);
+            define((char) ('a' + i), letters[i]);
+        }
+        String[] digits = {
+                "-----", ".----", "..---", "...--", "....-", ".....", "-....", "--...", "---..", "----."
+        };
+        for (int i = 0; i < digits.length; i++) {
+            define((char) ('0' + i), digits[i]);
+        }
+        define('.', ".-.-.-");
+        define(',', "--..--");
+        define('?', "..--..");
+        define('\'', ".----.");
+        define('!', "-.-.--");
+        define('/', "-..-.");
+        define('(', "-.--.");
+        define(')', "-.--.-");
+        define('&', ".-...");
+        define(':', "---...");
+        define(';', "-.-.-.");
+        define('=', "-...-");
+        define('+', ".-.-.");
+        define('-', "-....-");
+        define('_', "..--.-");
+        define('"', ".-..-.");
+        define('$', "...-..-");
+        define('@', ".--.-.");
+    }
+
+    private MorseEncoder() {
+    }
+
+    private static void define(char c, String code) {
+        TABLE[c] = code.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns the precomputed code of a single character.
+     * The returned array is shared and must not be modified.
+     *
+     * @param c The character to look up.
+     * @return The dots and dashes as ASCII bytes, or {@code null} if the character
+     * has no Morse representation.
+     */
+    public static byte[] codeOf(char c) {
+        return c < TABLE_SIZE ? TABLE[c] : null;
+    }
+
+    /**
+     * Returns an upper bound of the number of bytes {@link #encode(CharSequence, byte[], int)}
+     * writes for a text of the given length. Callers use it to size a reusable buffer once.
+     *
+     * @param textLength The number of characters of the text to encode.
+     * @return The maximum number of bytes the encoded text can take.
+     */
+    public static int maxEncodedLength(int textLength) {
+        return textLength * MAX_BYTES_PER_CHAR;
+    }
+
+    /**
+     * Encodes the text into a caller-supplied byte array.
+     * The array must have at least {@link #maxEncodedLength(int)} bytes available
+     * after {@code offset}, otherwise an {@link IndexOutOfBoundsException} is thrown.
+     *
+     * @param text   The text to encode.
+     * @param out    The destination array.
+     * @param offset The index in {@code out} of the first byte to write.
+     * @return The index in {@code out} right after the last byte written.
+     */
+    public static int encode(CharSequence text, byte[] out, int offset) {
+        int position = offset;
+        boolean wordPending = false;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                wordPending = true;
+                continue;
+            }
+            byte[] code = codeOf(c);
+            if (code == null) {
+                continue;
+            }
+            if (position != offset) {
+                if (wordPending) {
+                    System.arraycopy(WORD_SEPARATOR, 0, out, position, WORD_SEPARATOR.length);
+                    position += WORD_SEPARATOR.length;
+                } else {
+                    out[position++] = LETTER_SEPARATOR;
+                }
+            }
+            wordPending = false;
+            System.arraycopy(code, 0, out, position, code.length);
+            position += code.length;
+        }
+        return position;
+    }
+
+    /**
+     * Encodes the text into a caller-supplied buffer, starting at its current position.
+     * On return, the position of the buffer is right after the last byte written.
+     *
+     * @param text The text to encode.
+     * @param out  The destination buffer.
+     * @throws java.nio.BufferOverflowException if the buffer has not enough space remaining.
+     */
+    public static void encode(CharSequence text, ByteBuffer out) {
+        int start = out.position();
+        boolean wordPending = false;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                wordPending = true;
+                continue;
+            }
+            byte[] code = codeOf(c);
+            if (code == null) {
+                continue;
+            }
+            if (out.position() != start) {
+                if (wordPending) {
+                    out.put(WORD_SEPARATOR);
+                } else {
+                    out.put(LETTER_SEPARATOR);
+                }
+            }
+            wordPending = false;
+            out.put(code);
+        }
+    }
+
+    /**
+     * Convenience method returning the encoded text as a {@code String}.
+     * Meant for tooling and logging; the message path uses the buffer variants.
+     *
+     * @param text The text to encode.
+     * @return The Morse representation of the text.
+     */
+    public static String encode(CharSequence text) {
+        byte[] buffer = new byte[maxEncodedLength(text.length())];
+        int length = encode(text, buffer, 0);
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns an upper bound of the number of symbols
+     * {@link #encodeSymbols(byte[], int, int, byte[], int)} writes for a text of the given size.
+     *
+     * @param textBytes The number of UTF-8 bytes of the text to encode.
+     * @return The maximum number of symbols the encoded text can take.
+     */
+    public static int maxSymbolCount(int textBytes) {
+        return textBytes * MAX_SYMBOLS_PER_CHAR;
+    }
+
+    /**
+     * Encodes UTF-8 text into packed 2-bit Morse symbols as defined by {@link WireFormat}.
+     * The text is read in place, so the body of a received text message can be encoded
+     * without decoding it into a {@code String} first. Multi-byte UTF-8 sequences have
+     * no Morse representation and are skipped.
+     * The output must have room for {@link #maxSymbolCount(int)} packed symbols.
+     *
+     * @param text       The array holding the UTF-8 text.
+     * @param offset     The index of the first text byte.
+     * @param length     The number of text bytes.
+     * @param out        The destination array.
+     * @param bodyOffset The index in {@code out} where the packed symbols start.
+     * @return The number of symbols written.
+     */
+    public static int encodeSymbols(byte[] text, int offset, int length, byte[] out, int bodyOffset) {
+        return encodeSymbols(text, offset, length, out, bodyOffset, NO_GAP);
+    }
+
+    /**
+     * Encodes a chunk of a UTF-8 text stream into packed 2-bit Morse symbols, like
+     * {@link #encodeSymbols(byte[], int, int, byte[], int)}, writing first the gap owed by the
+     * previous chunks before the first letter of this one. The output must have room for
+     * {@link #maxSymbolCount(int)} packed symbols.
+     *
+     * @param text       The array holding the UTF-8 text.
+     * @param offset     The index of the first text byte.
+     * @param length     The number of text bytes.
+     * @param out        The destination array.
+     * @param bodyOffset The index in {@code out} where the packed symbols start.
+     * @param leadingGap The gap owed before the first letter, {@link #NO_GAP} at the start of the text.
+     * @return The number of symbols written.
+     */
+    public static int encodeSymbols(byte[] text, int offset, int length, byte[] out, int bodyOffset, int leadingGap) {
+        int count = 0;
+        int gap = leadingGap;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            byte b = text[i];
+            if (isSpace(b)) {
+                if (gap != NO_GAP) {
+                    gap = WireFormat.SYMBOL_WORD_GAP;
+                }
+                continue;
+            }
+            byte[] code = b >= 0 ? TABLE[b] : null;
+            if (code == null) {
+                continue;
+            }
+            if (gap != NO_GAP) {
+                WireFormat.putSymbol(out, bodyOffset, count++, gap);
+            }
+            gap = WireFormat.SYMBOL_LETTER_GAP;
+            for (byte signal : code) {
+                WireFormat.putSymbol(out, bodyOffset, count++,
+                        signal == '-' ? WireFormat.SYMBOL_DASH : WireFormat.SYMBOL_DOT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the gap owed before the next letter once a chunk of a text stream is encoded.
+     *
+     * @param text       The array holding the UTF-8 text of the chunk.
+     * @param offset     The index of the first text byte.
+     * @param length     The number of text bytes.
+     * @param leadingGap The gap owed before the chunk, {@link #NO_GAP} at the start of the text.
+     * @return The gap owed after the chunk: {@link #NO_GAP} if nothing has been encoded yet,
+     * otherwise {@link WireFormat#SYMBOL_LETTER_GAP} or {@link WireFormat#SYMBOL_WORD_GAP}.
+     */
+    public static int gapAfter(byte[] text, int offset, int length, int leadingGap) {
+        int gap = leadingGap;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            byte b = text[i];
+            if (isSpace(b)) {
+                if (gap != NO_GAP) {
+                    gap = WireFormat.SYMBOL_WORD_GAP;
+                }
+            } else if (b >= 0 && TABLE[b] != null) {
+                gap = WireFormat.SYMBOL_LETTER_GAP;
+            }
+        }
+        return gap;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+}
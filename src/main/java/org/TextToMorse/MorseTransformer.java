@@ -0,0 +1,288 @@
+package org.TextToMorse;
+
+import org.common.DuplicateFilter;
+import org.common.LatencyHistogram;
+import org.common.Log;
+import org.common.Metrics;
+import org.common.StreamTracker;
+import org.common.Timestamps;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The message path of the {@link TextToMorse} transformer, independent of the MQTT client so
+ * that it can be driven by benchmarks and tools with a stub publisher.
+ * <p>
+ * It is split in two halves matching the threads that run them: {@link #accept} is called by
+ * the MQTT callback thread for every input event and only validates it, while the handlers
+ * created by {@link #newWorker()} run on the {@link ConversionEngine} workers, drop
+ * duplicates, convert and publish. Converted phrases are kept in a {@link PhraseCache}, so
+ * a repeated text is published without being converted again.
+ * <p>
+ * A Morse message is published on the output topic followed by the sub-topic of its text,
+ * e.g. a text on {@code E/KeyboardEvent/station1} is converted to {@code <output>/station1},
+ * so that every source gets its own light on the display.
+ * <p>
+ * Text chunks of a streamed text are converted as they arrive and published at once as
+ * Morse chunks, so the display can start before the end of the text has been sent. All
+ * chunks of a stream come from the same topic and thus reach the same worker, which
+ * carries the pending letter or word gap from one chunk to the next. That only holds within
+ * a process: a transformer sharing its input with other instances rejects the chunks.
+ *
+ * @version 16.10.2026
+ */
+public final class MorseTransformer {
+    // Streams followed by each worker; older ones are forgotten, which bounds the memory
+    private static final int STREAMS_PER_WORKER = 1024;
+    private static final Log log = Log.get("MorseTransformer");
+
+    /**
+     * Publishes an outgoing message, e.g. {@code MqttClient::publish}.
+     */
+    @FunctionalInterface
+    public interface Publisher {
+        void publish(String topic, MqttMessage message) throws MqttException;
+    }
+
+    private final Publisher publisher;
+    private final String outputTopic;
+    private final DuplicateFilter processedMessages;
+    private final PhraseCache phrases;
+    private final boolean acceptChunks;
+
+    // Reusable decoding view, only touched by the MQTT callback thread
+    private final WireMessage inputMessage = new WireMessage();
+    private final Log.Limiter messageLog = log.limiter(Log.Level.INFO);
+    private final Log.Limiter malformedLog = log.limiter(Log.Level.WARN);
+    private final Log.Limiter rejectedLog = log.limiter(Log.Level.WARN);
+
+    private final LatencyHistogram transitLatency;
+    private final LatencyHistogram parseLatency;
+    private final LatencyHistogram convertLatency;
+    private final LatencyHistogram publishLatency;
+    private final LongAdder receivedCount;
+    private final LongAdder publishedCount;
+    private final LongAdder duplicateCount;
+    private final LongAdder chunkCount;
+    private final LongAdder missingChunkCount;
+    private final LongAdder rejectedChunkCount;
+
+    /**
+     * Creates a transformer without a phrase cache.
+     *
+     * @param publisher         Publishes the Morse messages.
+     * @param outputTopic       The base topic of the Morse messages.
+     * @param processedMessages Remembers the ids of the processed input messages.
+     * @param metrics           Receives the latency of each stage and the message counts.
+     */
+    public MorseTransformer(Publisher publisher, String outputTopic, DuplicateFilter processedMessages,
+                            Metrics metrics) {
+        this(publisher, outputTopic, processedMessages, new PhraseCache(0, 0, 0, metrics), metrics);
+    }
+
+    /**
+     * @param publisher         Publishes the Morse messages.
+     * @param outputTopic       The base topic of the Morse messages.
+     * @param processedMessages Remembers the ids of the processed input messages.
+     * @param phrases           Caches the conversion of the text messages, shared by all workers.
+     * @param metrics           Receives the latency of each stage and the message counts.
+     */
+    public MorseTransformer(Publisher publisher, String outputTopic, DuplicateFilter processedMessages,
+                            PhraseCache phrases, Metrics metrics) {
+        this(publisher, outputTopic, processedMessages, phrases, true, metrics);
+    }
+
+    /**
+     * @param publisher         Publishes the Morse messages.
+     * @param outputTopic       The base topic of the Morse messages.
+     * @param processedMessages Remembers the ids of the processed input messages.
+     * @param phrases           Caches the conversion of the text messages, shared by all workers.
+     * @param acceptChunks      Whether text chunks are converted; {@code false} when other instances
+     *                          receive the other chunks of the same streams, which cannot be followed.
+     * @param metrics           Receives the latency of each stage and the message counts.
+     */
+    public MorseTransformer(Publisher publisher, String outputTopic, DuplicateFilter processedMessages,
+                            PhraseCache phrases, boolean acceptChunks, Metrics metrics) {
+        this.publisher = publisher;
+        this.outputTopic = outputTopic;
+        this.processedMessages = processedMessages;
+        this.phrases = phrases;
+        this.acceptChunks = acceptChunks;
+        this.transitLatency = metrics.histogram("transit");
+        this.parseLatency = metrics.histogram("parse");
+        this.convertLatency = metrics.histogram("convert");
+        this.publishLatency = metrics.histogram("publish");
+        this.receivedCount = metrics.counter("received");
+        this.publishedCount = metrics.counter("published");
+        this.duplicateCount = metrics.counter("duplicates");
+        this.chunkCount = metrics.counter("chunks");
+        this.missingChunkCount = metrics.counter("missingChunks");
+        this.rejectedChunkCount = metrics.counter("rejectedChunks");
+    }
+
+    /**
+     * Validates an input event on the callback thread. Not thread-safe, as it reuses a
+     * decoding view: only the MQTT callback thread may call it.
+     *
+     * @param topic   The topic the event arrived on.
+     * @param message The event.
+     * @return {@code true} if the event is a text message, a text batch or, unless they are
+     * rejected, a text chunk to hand over to a worker.
+     */
+    public boolean accept(String topic, MqttMessage message) {
+        long arrived = System.nanoTime();
+        receivedCount.increment();
+        long sentMicros = Timestamps.read(message, Timestamps.SENT);
+        if (sentMicros >= 0) {
+            transitLatency.record((Timestamps.nowMicros() - sentMicros) * 1_000);
+        }
+        if (!inputMessage.wrap(message.getPayload()) || (inputMessage.type() != WireFormat.TYPE_TEXT
+                && inputMessage.type() != WireFormat.TYPE_TEXT_BATCH && inputMessage.type() != WireFormat.TYPE_TEXT_CHUNK)) {
+            if (malformedLog.permit()) {
+                malformedLog.log("malformedMessage", "topic", topic, null, null);
+            }
+            return false;
+        }
+        if (inputMessage.type() == WireFormat.TYPE_TEXT_CHUNK && !acceptChunks) {
+            rejectedChunkCount.increment();
+            if (rejectedLog.permit()) {
+                rejectedLog.log("chunkRejected", "topic", topic, "reason", "streams need a single transformer");
+            }
+            return false;
+        }
+        parseLatency.record(System.nanoTime() - arrived);
+        if (messageLog.permit()) {
+            // The view is reused by the next message, so it is formatted now
+            messageLog.log("messageArrived", "topic", topic, "message", inputMessage.toString());
+        }
+        return true;
+    }
+
+    /**
+     * Creates the handler of a worker, with its own converter and decoding views.
+     * Text batches (see {@link org.protocol.BatchWriter}) are unpacked and every line is
+     * converted and published as its own Morse message; text chunks are converted into
+     * Morse chunks.
+     *
+     * @return A handler for the messages accepted by {@link #accept}.
+     */
+    public ConversionEngine.MessageHandler newWorker() {
+        MorseConverter converter = new MorseConverter();
+        WireMessage frame = new WireMessage();
+        WireMessage record = new WireMessage();
+        StreamTracker streams = new StreamTracker(STREAMS_PER_WORKER, MorseEncoder.NO_GAP);
+        return (topic, message) -> {
+            long sentMicros = Timestamps.read(message, Timestamps.SENT);
+            String output = outputTopicOf(topic);
+            frame.wrap(message.getPayload());
+            if (frame.type() == WireFormat.TYPE_TEXT) {
+                convertAndPublish(converter, frame, output, sentMicros);
+                return;
+            }
+            if (frame.type() == WireFormat.TYPE_TEXT_CHUNK) {
+                convertChunkAndPublish(converter, streams, frame, output, sentMicros);
+                return;
+            }
+            // A batch: every record is a complete text message with its own id
+            for (int position = frame.bodyOffset(); record.wrapRecord(frame, position);
+                 position += record.messageLength()) {
+                if (record.type() == WireFormat.TYPE_TEXT) {
+                    convertAndPublish(converter, record, output, sentMicros);
+                }
+            }
+        };
+    }
+
+    /**
+     * Converts a text message and publishes the result, unless the message has already
+     * been processed.
+     *
+     * @param converter  The converter of the calling worker.
+     * @param text       The text message.
+     * @param topic      The topic of the Morse message.
+     * @param sentMicros The time the source sent the text, see {@link Timestamps#SENT}, or -1 if unknown.
+     * @throws MqttException if the publish fails.
+     */
+    private void convertAndPublish(MorseConverter converter, WireMessage text, String topic, long sentMicros)
+            throws MqttException {
+        if (processedMessages.isDuplicate(text.idMostSignificantBits(), text.idLeastSignificantBits())) {
+            duplicateCount.increment();
+            return;
+        }
+        long start = System.nanoTime();
+        byte[] morse = phrases.get(text);
+        if (morse == null) {
+            morse = converter.convert(text);
+            phrases.put(text, morse);
+        }
+        publish(topic, new MqttMessage(morse), start, sentMicros);
+    }
+
+    /**
+     * Converts a text chunk and publishes the resulting Morse chunk, unless the chunk has
+     * already been processed.
+     *
+     * @param converter  The converter of the calling worker.
+     * @param streams    The streams followed by the calling worker, with their pending gap as state.
+     * @param chunk      The text chunk.
+     * @param topic      The topic of the Morse chunk.
+     * @param sentMicros The time the source sent the chunk, see {@link Timestamps#SENT}, or -1 if unknown.
+     * @throws MqttException if the publish fails.
+     */
+    private void convertChunkAndPublish(MorseConverter converter, StreamTracker streams, WireMessage chunk,
+                                        String topic, long sentMicros) throws MqttException {
+        StreamTracker.Stream stream = streams.accept(chunk.idMostSignificantBits(), chunk.idLeastSignificantBits(),
+                chunk.sequence(), chunk.isLastChunk());
+        if (stream == null) {
+            duplicateCount.increment();
+            return;
+        }
+        if (stream.missed() > 0) {
+            missingChunkCount.add(stream.missed());
+            // Some text was lost, at least keep the words apart
+            if (stream.state != MorseEncoder.NO_GAP) {
+                stream.state = WireFormat.SYMBOL_WORD_GAP;
+            }
+        }
+        long start = System.nanoTime();
+        MqttMessage morse = new MqttMessage(converter.convertChunk(chunk, stream.state));
+        stream.state = MorseEncoder.gapAfter(chunk.buffer(), chunk.bodyOffset(), chunk.bodyLength(), stream.state);
+        chunkCount.increment();
+        publish(topic, morse, start, sentMicros);
+    }
+
+    /**
+     * Stamps and publishes a converted message.
+     *
+     * @param topic      The topic to publish on.
+     * @param morse      The Morse message.
+     * @param start      The {@code System.nanoTime()} at which the conversion started.
+     * @param sentMicros The time the source sent the text, see {@link Timestamps#SENT}, or -1 if unknown.
+     * @throws MqttException if the publish fails.
+     */
+    private void publish(String topic, MqttMessage morse, long start, long sentMicros) throws MqttException {
+        long converted = System.nanoTime();
+        convertLatency.record(converted - start);
+        if (sentMicros >= 0) {
+            Timestamps.stamp(morse, Timestamps.SENT, sentMicros);
+        }
+        Timestamps.stamp(morse, Timestamps.CONVERTED, Timestamps.nowMicros());
+        publisher.publish(topic, morse);
+        publishLatency.record(System.nanoTime() - converted);
+        publishedCount.increment();
+    }
+
+    /**
+     * @param inputTopic The topic of an input event, e.g. {@code E/KeyboardEvent/station1}.
+     * @return The output topic followed by the sub-topic of the input, if any.
+     */
+    private String outputTopicOf(String inputTopic) {
+        int base = inputTopic.indexOf('/');
+        int subTopic = base < 0 ? -1 : inputTopic.indexOf('/', base + 1);
+        return subTopic < 0 ? outputTopic : outputTopic + inputTopic.substring(subTopic);
+    }
+}
@@ -0,0 +1,206 @@
+package org.TextToMorse;
+
+import org.common.Metrics;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of converted phrases: maps the UTF-8 text of a message to the Morse payload
+ * it converts to, ready to be published.
+ * <p>
+ * Traffic is dominated by repeated short phrases such as call signs, canned alerts or "SOS".
+ * On a hit the conversion is skipped entirely: the cached payload is copied and only the
+ * message id in its header is replaced by the id of the text looked up. Texts longer than a limit are not
+ * cached, as they rarely repeat and would push the phrases out.
+ * <p>
+ * Entries are spread over independent stripes by hash, each an LRU list bounded both in
+ * entries and in bytes and guarded by its own short lock, so the conversion workers rarely
+ * contend. Lookups read the text in place from the received payload; only inserted keys are
+ * copied. Hits, misses and evictions are counted in the {@link Metrics} of the transformer.
+ *
+ * @version 16.10.2026
+ */
+public final class PhraseCache {
+    private static final int STRIPES = 16;
+    // Rough cost of an entry besides its key and payload bytes: map node, key object, array headers
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * A text, either pointing into a received payload for a lookup or owning a copy once stored.
+     */
+    private static final class Key {
+        private final byte[] bytes;
+        private final int offset;
+        private final int length;
+        private final int hash;
+
+        private Key(byte[] bytes, int offset, int length, int hash) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        private Key copy() {
+            return new Key(Arrays.copyOfRange(bytes, offset, offset + length), 0, length, hash);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && key.hash == hash && Arrays.equals(bytes, offset, offset + length,
+                    key.bytes, key.offset, key.offset + key.length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Stripe {
+        private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final int maxEntriesPerStripe;
+    private final long maxBytesPerStripe;
+    private final int maxTextBytes;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    /**
+     * Creates a cache; a cache of 0 entries is disabled and caches nothing.
+     *
+     * @param maxEntries   The maximum number of phrases; rounded up to a multiple of the stripe count.
+     * @param maxBytes     The maximum memory taken by the phrases and their payloads, approximately.
+     * @param maxTextBytes The length of the longest text cached, in UTF-8 bytes.
+     * @param metrics      Receives the hit, miss and eviction counts and the size gauges.
+     */
+    public PhraseCache(int maxEntries, long maxBytes, int maxTextBytes, Metrics metrics) {
+        if (maxEntries < 0 || maxBytes < 0 || maxTextBytes < 0) {
+            throw new IllegalArgumentException("cache limits must not be negative");
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.maxEntriesPerStripe = (maxEntries + STRIPES - 1) / STRIPES;
+        this.maxBytesPerStripe = maxBytes / STRIPES;
+        this.maxTextBytes = maxEntries == 0 ? -1 : maxTextBytes;
+        this.hitCount = metrics.counter("cacheHits");
+        this.missCount = metrics.counter("cacheMisses");
+        this.evictionCount = metrics.counter("cacheEvictions");
+        metrics.gauge("cacheEntries", this::size);
+        metrics.gauge("cacheBytes", this::bytes);
+    }
+
+    /**
+     * Looks a text message up and, on a hit, returns its Morse payload with the id of the text.
+     *
+     * @param text The text message.
+     * @return A new payload ready to be published, or {@code null} on a miss or if the text
+     * is too long to be cached.
+     */
+    public byte[] get(WireMessage text) {
+        if (text.bodyLength() > maxTextBytes) {
+            return null;
+        }
+        Key key = key(text);
+        byte[] cached;
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            cached = stripe.entries.get(key);
+        }
+        if (cached == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        byte[] payload = cached.clone();
+        WireFormat.setId(payload, 0, text.idMostSignificantBits(), text.idLeastSignificantBits());
+        return payload;
+    }
+
+    /**
+     * Stores the conversion of a text message, evicting the least recently used phrases of
+     * its stripe if needed.
+     *
+     * @param text  The text message.
+     * @param morse The Morse payload it converts to, which must not be modified afterwards.
+     */
+    public void put(WireMessage text, byte[] morse) {
+        if (text.bodyLength() > maxTextBytes) {
+            return;
+        }
+        Key key = key(text).copy();
+        long weight = weight(key, morse);
+        Stripe stripe = stripe(key);
+        if (weight > maxBytesPerStripe) {
+            return;
+        }
+        synchronized (stripe) {
+            byte[] previous = stripe.entries.put(key, morse);
+            stripe.bytes += weight - (previous == null ? 0 : weight(key, previous));
+            Iterator<Map.Entry<Key, byte[]>> eldest = stripe.entries.entrySet().iterator();
+            while (stripe.entries.size() > maxEntriesPerStripe || stripe.bytes > maxBytesPerStripe) {
+                Map.Entry<Key, byte[]> evicted = eldest.next();
+                stripe.bytes -= weight(evicted.getKey(), evicted.getValue());
+                eldest.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * @return The number of cached phrases.
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return The approximate memory taken by the cached phrases, in bytes.
+     */
+    public long bytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += stripe.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    private Stripe stripe(Key key) {
+        int h = key.hash * 0x9E3779B9;
+        return stripes[h >>> 28];
+    }
+
+    private static Key key(WireMessage text) {
+        byte[] bytes = text.buffer();
+        int offset = text.bodyOffset();
+        int length = text.bodyLength();
+        int hash = 1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return new Key(bytes, offset, length, hash);
+    }
+
+    private static long weight(Key key, byte[] morse) {
+        return ENTRY_OVERHEAD + key.length + morse.length;
+    }
+}
@@ -1,12 +1,20 @@
 package org.TextToMorse;
 
-import com.epic.morse.service.MorseCode;
+import org.common.Config;
+import org.common.DuplicateFilter;
+import org.common.Log;
+import org.common.Metrics;
+import org.common.Transport;
 import org.eclipse.paho.mqttv5.client.*;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
 import org.eclipse.paho.mqttv5.common.MqttException;
 import org.eclipse.paho.mqttv5.common.MqttMessage;
 import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.journal.Journal;
 
-import java.util.UUID;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents the "transformer" component in the distributed Morse code system.
@@ -22,28 +30,120 @@ import java.util.UUID;
  * @version 20.10.2025
  */
 public class TextToMorse {
-    private static final String server = "tcp://localhost:1883";
-    private static final String clientId = "textToMorse";
+    // Settings from the file, environment and system properties, see Config
+    private static final Config config = Config.load();
+    private static final String server = config.string("morse.server", "tcp://localhost:1883");
+    private static final String clientIdBase = config.string("textToMorse.clientId", "textToMorse");
     private static final String inputTopic = "E/KeyboardEvent";
+    private static final String inputTopicPrefix = inputTopic + "/";
     private static final String outputTopic = "E/textInMorse";
     private static final String inputStatusTopic = "S/KeyboardEvent";
     private static final String outputStatusTopic = "S/textInMorse";
-    private static String lastMessageId = "";
+    // Ids of the recently processed input messages, to drop QoS 1 redeliveries
+    private static final DuplicateFilter processedMessages = new DuplicateFilter(
+            config.integer("textToMorse.dedupCapacity", 4096),
+            config.longValue("textToMorse.dedupWindowMillis", 0));
+
+    // --- Worker pool settings, overridable with system properties ---
+    private static final ConversionEngine.Mode workerMode =
+            config.choice("textToMorse.workerMode", ConversionEngine.Mode.PLATFORM);
+    private static final int workerCount =
+            config.integer("textToMorse.workers", Runtime.getRuntime().availableProcessors());
+    // At least transport.receiveMaximum, see main
+    private static final int workerQueueCapacity = config.integer("textToMorse.queueCapacity", 256);
+
+    // --- Scale-out settings: with a share group, every instance joins a shared subscription ---
+    private static final String shareGroup = config.string("textToMorse.shareGroup", null);
+    // Stable across restarts, so that a restarted instance takes its own status topic over
+    private static final String instanceId = config.string("textToMorse.instanceId", null);
+    private static final boolean scaleOut = shareGroup != null && !shareGroup.isBlank();
+    private static final long LEAVE_TIMEOUT_MILLIS = 2_000;
+    private static final String clientId = scaleOut ? clientIdBase + "-" + instanceId : clientIdBase;
+
+    // Latency and throughput of each stage, see Metrics for the exports
+    private static final Metrics metrics = Metrics.start(clientId, config);
+    private static final Log log = Log.get("TextToMorse");
+    private static final Log.Limiter deliveryLog = log.limiter(Log.Level.DEBUG);
+    private static final Log.Limiter overflowLog = log.limiter(Log.Level.WARN);
+    // QoS per traffic class and adaptive window of unacknowledged publishes, see Transport
+    private static final Transport transport = new Transport(config, metrics);
+    private static final int inputQos = transport.qos(Transport.Traffic.TEXT);
+    private static final int qos = transport.qos(Transport.Traffic.MORSE);
+
+    // --- Cache of the converted phrases, 0 entries to disable it ---
+    private static final PhraseCache phrases = new PhraseCache(
+            config.integer("textToMorse.cacheEntries", 4096),
+            config.longValue("textToMorse.cacheBytes", 4L * 1024 * 1024),
+            config.integer("textToMorse.cacheMaxTextBytes", 256),
+            metrics);
+
+    // --- Crash-safe journal of the accepted events and published Morse, unset to disable it ---
+    private static final String journalDir = config.string("textToMorse.journalDir", null);
+    private static final long journalSegmentBytes = config.longValue("textToMorse.journalSegmentBytes", 16L * 1024 * 1024);
 
     /**
      * The main entry point for the TextToMorse process.
      * Initializes the MQTT client, sets up subscriptions to the keyboard entry's
      * event and status topics, and connects to the broker. The main thread terminates
      * after setup, but the application continues to run via the background MQTT
-     * client thread, which processes incoming messages in the MqttCallback.
+     * client thread, which receives incoming messages in the MqttCallback and hands
+     * them over to the {@link ConversionEngine} workers for conversion and publishing,
+     * both halves of the message path being implemented by {@link MorseTransformer}.
+     * <p>
+     * Input events are accepted on {@code E/KeyboardEvent} and its sub-topics; the topic is
+     * the ordering key, so sources publishing on their own sub-topic are converted in parallel,
+     * and the Morse is published on the matching sub-topic of {@code E/textInMorse}, where the
+     * display shows every source as a light of its own.
+     * <p>
+     * When the {@code textToMorse.shareGroup} setting is set, the process runs in
+     * scale-out mode: it connects with a unique client id, subscribes to the input topics
+     * through the MQTT v5 shared subscription {@code $share/<group>/...} so the broker spreads
+     * the input events over all instances of the group, and reports its status on its own
+     * {@code S/textInMorse/<instanceId>} topic. The {@code textToMorse.instanceId} setting is
+     * then required and must stay the same across restarts, so that the statuses of past
+     * instances do not pile up; on a clean shutdown, the retained status of the instance is
+     * cleared, as it leaves the group for good. The broker spreads the chunks of a streamed
+     * text over the instances as well, where no instance could carry the gaps from one chunk
+     * to the next nor the display play them in order: text chunks are rejected in this mode.
+     * <p>
+     * The time spent in each stage is recorded in the {@link Metrics} of the process.
+     * <p>
+     * The Morse messages are published through the {@link Transport}, whose window of
+     * unacknowledged publishes adapts to the acknowledgement time of the broker.
+     * <p>
+     * An input event is acknowledged to the broker only once its worker has converted and
+     * published it, so the broker pushes at most {@code transport.receiveMaximum} events ahead
+     * of the workers, and every queue is made that large. Only an event delivered at QoS 0,
+     * which the broker does not count, can find its queue full: it is then dropped and counted
+     * as {@code dropped}, rather than blocking the client. With a journal it stays pending and
+     * is converted on the next start.
+     * <p>
+     * When the {@code textToMorse.journalDir} setting is set, every accepted event and
+     * every converted message is written to a {@link Journal} in that directory until it has
+     * been processed, respectively acknowledged by the broker. On startup, the messages left
+     * unacknowledged by the previous run are published again and the events it left
+     * unprocessed are converted again; after a reconnection, the messages that could not be
+     * delivered meanwhile are published again.
      *
-     * @throws MqttException if there is an error connecting to the broker.
+     * @throws MqttException        if there is an error connecting to the broker.
+     * @throws IOException          if the journal cannot be opened.
+     * @throws InterruptedException if interrupted while resubmitting the journaled events.
+     * @throws IllegalStateException if a share group is set without an instance id.
      */
-    static void main() throws MqttException {
-        MqttClient client = new MqttClient(server, clientId);
-        MqttConnectionOptions options = new MqttConnectionOptions();
-        options.setCleanStart(true);
-        options.setAutomaticReconnect(true);
+    static void main() throws MqttException, IOException, InterruptedException {
+        if (scaleOut && (instanceId == null || instanceId.isBlank())) {
+            throw new IllegalStateException("textToMorse.instanceId must be set with textToMorse.shareGroup");
+        }
+        Log.configure(config, metrics);
+        String statusTopic = scaleOut ? outputStatusTopic + "/" + instanceId : outputStatusTopic;
+        String subscriptionPrefix = scaleOut ? "$share/" + shareGroup + "/" : "";
+
+        // Asynchronous, so that a worker publishing never holds the client threads, which must
+        // keep reading the acknowledgements; the callback thread never waits for a worker either.
+        // Nothing is kept across restarts anyway (clean start), so skip the per-message file persistence
+        MqttAsyncClient client = new MqttAsyncClient(server, clientId, new MemoryPersistence());
+        client.setManualAcks(true);
+        MqttConnectionOptions options = transport.connectionOptions();
 
         byte[] willPayload = "Offline".getBytes();
         int willQos = 1;
@@ -52,59 +152,97 @@ public class TextToMorse {
         willMessage.setQos(willQos);
         willMessage.setRetained(willRetained);
 
-        options.setWill(outputStatusTopic, willMessage);
+        options.setWill(statusTopic, willMessage);
+
+        Journal journal = journalDir == null ? null
+                : Journal.open(Path.of(journalDir), journalSegmentBytes, metrics);
+        if (journal != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
+        }
+        MorseTransformer transformer = new MorseTransformer((topic, message) -> {
+            message.setQos(qos);
+            publish(client, journal, topic, message);
+        }, outputTopic, processedMessages, phrases, !scaleOut, metrics);
+        int queueCapacity = Math.max(workerQueueCapacity, transport.receiveMaximum());
+        ConversionEngine engine = new ConversionEngine(workerMode, workerCount, queueCapacity,
+                partition -> acknowledging(journal == null ? transformer.newWorker()
+                        : settling(transformer.newWorker(), journal), client),
+                metrics.histogram("queue"));
+        LongAdder dropped = metrics.counter("dropped");
         client.setCallback(new MqttCallback() {
             @Override
             public void disconnected(MqttDisconnectResponse disconnectResponse) {
-                System.out.println("Disconnected: " + disconnectResponse.getReasonString());
+                log.warn("disconnected", "reason", disconnectResponse.getReasonString());
             }
 
             @Override
             public void mqttErrorOccurred(MqttException exception) {
-                System.out.println("MQTT error: " + exception.getMessage());
+                log.error("mqttError", "reason", exception.getMessage());
             }
 
             @Override
             public void messageArrived(String topic, MqttMessage message) throws Exception {
-                System.out.println("Message arrived. Topic: " + topic +
-                        " Message: " + new String(message.getPayload()));
-                String payload = new String(message.getPayload());
-                if (topic.equals(inputTopic)) {
-                    int start = payload.indexOf("msg: ") + 5;
-                    int end = payload.indexOf(" id:");
-                    String messageText = payload.substring(start, end).trim();
-                    String messageId = payload.substring(end).trim();
-                    if (!lastMessageId.equals(messageId)) {
-                        lastMessageId = messageId;
-                        String messageMorse = MorseCode.convertToMorseCode(messageText);
-                        String messageWithId = "msg: " + messageMorse + " id: " + UUID.randomUUID();
-                        MqttMessage mqttMessage = new MqttMessage(messageWithId.getBytes());
-                        client.publish(outputTopic, mqttMessage);
+                // Acknowledged by its worker once processed, anything else right away
+                boolean queued = false;
+                if ((topic.equals(inputTopic) || topic.startsWith(inputTopicPrefix))
+                        && transformer.accept(topic, message)) {
+                    if (journal != null) {
+                        Journal.tag(message, journal.append(Journal.Kind.INBOUND, topic, message.getPayload()));
+                    }
+                    queued = engine.offer(topic, topic, message);
+                    if (!queued) {
+                        // Never wait on this thread, see ConversionEngine; a journaled event stays pending
+                        dropped.increment();
+                        if (overflowLog.permit()) {
+                            overflowLog.log("inputDropped", "topic", topic, "journaled", journal != null);
+                        }
                     }
                 }
+                if (topic.equals(metrics.requestTopic())) {
+                    client.publish(metrics.topic(), metrics.snapshotMessage());
+                }
+                if (topic.equals(Config.topic(clientId)) || topic.equals(Config.broadcastTopic())) {
+                    config.apply(message.getPayload());
+                }
                 if (topic.equals(inputStatusTopic)) {
+                    String payload = new String(message.getPayload());
                     if (payload.equals("Offline")) {
-                        System.err.println("WARNING: Input source (KeyboardEntry) is offline. Waiting for it to return...");
+                        log.warn("inputOffline", "topic", topic);
                     } else {
-                        System.out.println("INFO: Input source (KeyboardEntry) is back online.");
+                        log.info("inputOnline", "topic", topic);
                     }
                 }
+                if (!queued) {
+                    Transport.acknowledge(client, message);
+                }
             }
 
             @Override
             public void deliveryComplete(IMqttToken token) {
-                System.out.println("Delivery complete");
+                if (deliveryLog.permit()) {
+                    deliveryLog.log("deliveryComplete", "messageId", token.getMessageId(), null, null);
+                }
             }
 
             @Override
             public void connectComplete(boolean reconnect, String serverURI) {
-                System.out.println("Connect complete. Reconnect=" + reconnect + " URI=" + serverURI);
+                log.info("connected", "reconnect", reconnect, "uri", serverURI);
+                metrics.exportJmx();
                 try {
-                    client.subscribe(inputTopic, 1);
+                    client.subscribe(subscriptionPrefix + inputTopic, inputQos);
+                    client.subscribe(subscriptionPrefix + inputTopicPrefix + "+", inputQos);
                     client.subscribe(inputStatusTopic, 1);
+                    client.subscribe(metrics.requestTopic(), 0);
+                    client.subscribe(Config.topic(clientId), 1);
+                    client.subscribe(Config.broadcastTopic(), 1);
                 } catch (MqttException e) {
                     throw new RuntimeException(e);
                 }
+                if (reconnect && journal != null) {
+                    // Off the callback thread, which must keep reading the acknowledgements
+                    long below = journal.nextSequence();
+                    Thread.ofVirtual().name("journal-replay").start(() -> replayOutbound(client, journal, below));
+                }
             }
 
             @Override
@@ -112,11 +250,190 @@ public class TextToMorse {
                 // Not used here
             }
         });
-        client.connect(options);
+        client.connect(options).waitForCompletion();
         MqttMessage onlineMessage = new MqttMessage("Online".getBytes());
         onlineMessage.setQos(1);
         onlineMessage.setRetained(true);
-        client.publish(outputStatusTopic, onlineMessage);
-        System.out.println("Online status published" + onlineMessage);
+        client.publish(statusTopic, onlineMessage).waitForCompletion();
+        log.info("statusPublished", "topic", statusTopic, "status", "Online");
+        if (scaleOut) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> leave(client, statusTopic), "leave-group"));
+        }
+        if (journal != null) {
+            recover(client, journal, engine);
+        }
+    }
+
+    /**
+     * Clears the retained status of a scaled-out instance shutting down cleanly, then
+     * disconnects without triggering the will, so that the display forgets the instance
+     * rather than keeping its "Offline" status for good. Bounded, as it runs on shutdown.
+     *
+     * @param client      The connected client.
+     * @param statusTopic The status topic of the instance.
+     */
+    private static void leave(MqttAsyncClient client, String statusTopic) {
+        try {
+            client.publish(statusTopic, new byte[0], 1, true).waitForCompletion(LEAVE_TIMEOUT_MILLIS);
+            client.disconnect().waitForCompletion(LEAVE_TIMEOUT_MILLIS);
+            log.info("statusCleared", "topic", statusTopic);
+        } catch (MqttException e) {
+            // The will then reports the instance offline
+            log.warn("statusNotCleared", "topic", statusTopic, "reason", e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes again the messages and converts again the events that the previous run left
+     * pending in the journal.
+     *
+     * @param client  The connected client.
+     * @param journal The journal.
+     * @param engine  The conversion engine.
+     * @throws InterruptedException if interrupted while waiting for room in a worker queue.
+     */
+    private static void recover(MqttAsyncClient client, Journal journal, ConversionEngine engine)
+            throws InterruptedException {
+        long below = journal.nextSequence();
+        int published = replayOutbound(client, journal, below);
+        int converted = 0;
+        for (Journal.Entry entry : journal.pending(Journal.Kind.INBOUND, below)) {
+            MqttMessage message = new MqttMessage(entry.payload());
+            Journal.tag(message, entry.sequence());
+            engine.submit(entry.topic(), entry.topic(), message);
+            converted++;
+        }
+        log.info("journalRecovered", "republished", published, "resubmitted", converted);
+    }
+
+    /**
+     * Publishes again the pending outbound messages of the journal.
+     *
+     * @param client  The client.
+     * @param journal The journal.
+     * @param below   Only the messages journaled before this sequence number are published.
+     * @return The number of messages published.
+     */
+    private static int replayOutbound(MqttAsyncClient client, Journal journal, long below) {
+        int published = 0;
+        for (Journal.Entry entry : journal.pending(Journal.Kind.OUTBOUND, below)) {
+            MqttMessage message = new MqttMessage(entry.payload());
+            message.setQos(qos);
+            try {
+                publish(client, journal, entry.topic(), message, entry.sequence());
+                published++;
+            } catch (MqttException e) {
+                log.warn("journalReplayStopped", "reason", e.getMessage());
+                break;
+            }
+        }
+        return published;
+    }
+
+    /**
+     * Wraps a worker so that each event is acknowledged to the broker once it is processed,
+     * whether its conversion succeeded or not, letting the broker push the next one.
+     *
+     * @param worker The worker.
+     * @param client The client that received the events.
+     * @return The wrapped worker.
+     */
+    private static ConversionEngine.MessageHandler acknowledging(ConversionEngine.MessageHandler worker,
+                                                                 MqttAsyncClient client) {
+        return (topic, message) -> {
+            try {
+                worker.handle(topic, message);
+            } finally {
+                Transport.acknowledge(client, message);
+            }
+        };
+    }
+
+    /**
+     * Wraps a worker so that the journal entry of each event is settled once the event is
+     * processed, whether its conversion succeeded or not, so that a message failing to convert
+     * is not converted again on every restart.
+     *
+     * @param worker  The worker.
+     * @param journal The journal.
+     * @return The wrapped worker.
+     */
+    private static ConversionEngine.MessageHandler settling(ConversionEngine.MessageHandler worker, Journal journal) {
+        return (topic, message) -> {
+            try {
+                worker.handle(topic, message);
+            } finally {
+                long entry = Journal.entryOf(message);
+                if (entry >= 0) {
+                    journal.settle(entry);
+                }
+            }
+        };
+    }
+
+    /**
+     * Publishes a converted message, first journaling it if a journal is enabled.
+     *
+     * @param client  The client to publish with.
+     * @param journal The journal, or {@code null}.
+     * @param topic   The topic.
+     * @param message The message.
+     * @throws MqttException if the publish is refused.
+     */
+    private static void publish(MqttAsyncClient client, Journal journal, String topic, MqttMessage message)
+            throws MqttException {
+        if (journal == null) {
+            publish(client, topic, message);
+        } else {
+            publish(client, journal, topic, message, journal.append(Journal.Kind.OUTBOUND, topic, message.getPayload()));
+        }
+    }
+
+    /**
+     * Publishes a journaled message; its entry is settled when the broker acknowledges it.
+     * While the client is disconnected the entry is left pending, to be published again
+     * after the reconnection, rather than buffered in memory.
+     *
+     * @param client  The client to publish with.
+     * @param journal The journal.
+     * @param topic   The topic.
+     * @param message The message.
+     * @param entry   The sequence number of its journal entry.
+     * @throws MqttException if the publish is refused for another reason.
+     */
+    private static void publish(MqttAsyncClient client, Journal journal, String topic, MqttMessage message,
+                                long entry) throws MqttException {
+        MqttActionListener settle = new MqttActionListener() {
+            @Override
+            public void onSuccess(IMqttToken token) {
+                journal.settle(entry);
+            }
+
+            @Override
+            public void onFailure(IMqttToken token, Throwable exception) {
+                // Left pending, published again after the next reconnection or restart
+            }
+        };
+        try {
+            transport.publish(client, topic, message, settle);
+        } catch (MqttException e) {
+            if (e.getReasonCode() != MqttClientException.REASON_CODE_CLIENT_NOT_CONNECTED) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Publishes a message without waiting for its acknowledgement. When the window of the
+     * transport is full, waits for a slot rather than dropping the message, which slows the
+     * workers down and, through their queues, the intake of new events.
+     *
+     * @param client  The client to publish with.
+     * @param topic   The topic.
+     * @param message The message.
+     * @throws MqttException if the publish is refused.
+     */
+    private static void publish(MqttAsyncClient client, String topic, MqttMessage message) throws MqttException {
+        transport.publish(client, topic, message, null);
     }
 }
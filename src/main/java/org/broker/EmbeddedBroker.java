@@ -0,0 +1,334 @@
+package org.broker;
+
+import org.common.Config;
+import org.common.Metrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A minimal MQTT v5 broker running inside the JVM, standing in for Mosquitto in load tests
+ * and on machines without a broker.
+ * <p>
+ * It implements what the components of the system rely on: QoS 0 and 1, retained messages,
+ * wills, the {@code +} and {@code #} wildcards, shared subscriptions ({@code $share/<group>/...},
+ * delivered round robin), topic aliases sent by clients and their receive maximum, and forwards
+ * the properties of each publish, user properties included, unchanged. It keeps no state across connections: every
+ * session starts clean, QoS 1 deliveries are not retried and there is no authentication.
+ * <p>
+ * Each connection is served by a virtual thread reading packets and another one writing them.
+ * Run it standalone with {@code -Dbroker.port=<port>} (default 1883), or start it
+ * programmatically with {@link #start(int, Metrics)}, as the load generator does.
+ *
+ * @version 16.10.2026
+ */
+public final class EmbeddedBroker implements AutoCloseable {
+    static final int TOPIC_ALIAS_MAXIMUM = 64;
+    static final int MAXIMUM_QOS = 1;
+    private static final String SHARE_PREFIX = "$share/";
+    private static final int REASON_SUCCESS = 0x00;
+    private static final int REASON_NO_SUBSCRIPTION_EXISTED = 0x11;
+    private static final int REASON_TOPIC_FILTER_INVALID = 0x8F;
+
+    /**
+     * A message being routed, with the raw properties to forward.
+     */
+    record Message(String topic, int qos, boolean retain, byte[] properties, byte[] payload) {
+    }
+
+    /**
+     * A non-shared subscription of a session, with the options of the SUBSCRIBE packet.
+     */
+    record Subscription(String[] levels, int qos, boolean noLocal, boolean retainAsPublished) {
+    }
+
+    private record Member(Session session, int qos) {
+    }
+
+    /**
+     * The sessions subscribed with the same filter in the same share group, each message
+     * going to the next of them in turn.
+     */
+    private static final class SharedGroup {
+        private final String[] levels;
+        private final AtomicInteger next = new AtomicInteger();
+        private volatile Member[] members = new Member[0];
+
+        SharedGroup(String[] levels) {
+            this.levels = levels;
+        }
+
+        synchronized void add(Session session, int qos) {
+            remove(session);
+            Member[] updated = Arrays.copyOf(members, members.length + 1);
+            updated[members.length] = new Member(session, qos);
+            members = updated;
+        }
+
+        synchronized boolean remove(Session session) {
+            Member[] current = members;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].session() == session) {
+                    Member[] updated = new Member[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    members = updated;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return members.length == 0;
+        }
+
+        Member next() {
+            Member[] current = members;
+            return current.length == 0 ? null : current[Math.floorMod(next.getAndIncrement(), current.length)];
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Message> retained = new ConcurrentHashMap<>();
+    private final Map<String, SharedGroup> sharedGroups = new ConcurrentHashMap<>();
+    private final LongAdder receivedCount;
+    private final LongAdder deliveredCount;
+    private volatile boolean closed;
+
+    private EmbeddedBroker(ServerSocket serverSocket, Metrics metrics) {
+        this.serverSocket = serverSocket;
+        this.receivedCount = metrics.counter("received");
+        this.deliveredCount = metrics.counter("delivered");
+        this.acceptor = Thread.ofPlatform().name("broker-acceptor").daemon(true).start(this::acceptLoop);
+    }
+
+    /**
+     * Starts a broker listening on the loopback interface.
+     *
+     * @param port    The port to listen on, or 0 for any free port.
+     * @param metrics Receives the counts of received and delivered messages.
+     * @return The running broker.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static EmbeddedBroker start(int port, Metrics metrics) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+        return new EmbeddedBroker(serverSocket, metrics);
+    }
+
+    /**
+     * @return The port the broker listens on.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The URI clients connect to, e.g. {@code tcp://127.0.0.1:1883}.
+     */
+    public String uri() {
+        return "tcp://" + serverSocket.getInetAddress().getHostAddress() + ":" + port();
+    }
+
+    /**
+     * Stops accepting connections and closes all sessions, without publishing their wills.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        sessions.values().forEach(Session::close);
+    }
+
+    /**
+     * The main entry point of the standalone broker.
+     *
+     * @throws IOException          if the port cannot be bound.
+     * @throws InterruptedException if interrupted while serving.
+     */
+    static void main() throws IOException, InterruptedException {
+        Config config = Config.load();
+        Metrics metrics = Metrics.start("broker", config);
+        EmbeddedBroker broker = start(config.integer("broker.port", 1883), metrics);
+        System.out.println("Broker listening on " + broker.uri());
+        metrics.exportJmx();
+        broker.acceptor.join();
+    }
+
+    void connected(Session session) {
+        Session previous = sessions.put(session.clientId(), session);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    void disconnected(Session session, Message will) {
+        sessions.remove(session.clientId(), session);
+        for (String key : sharedGroups.keySet()) {
+            sharedGroups.computeIfPresent(key, (k, group) -> group.remove(session) && group.isEmpty() ? null : group);
+        }
+        if (will != null && !closed) {
+            publish(null, will);
+        }
+    }
+
+    /**
+     * Stores the message if retained and delivers it to every matching session, once per
+     * session with the highest matching QoS, and to one member of every matching share group.
+     *
+     * @param publisher The publishing session, or {@code null} for a will.
+     * @param message   The message.
+     */
+    void publish(Session publisher, Message message) {
+        receivedCount.increment();
+        if (message.retain()) {
+            if (message.payload().length == 0) {
+                retained.remove(message.topic());
+            } else {
+                retained.put(message.topic(), message);
+            }
+        }
+        String[] levels = message.topic().split("/", -1);
+        for (Session session : sessions.values()) {
+            Subscription best = null;
+            for (Subscription subscription : session.subscriptions.values()) {
+                if (!(subscription.noLocal() && session == publisher) && matches(subscription.levels(), levels)
+                        && (best == null || subscription.qos() > best.qos())) {
+                    best = subscription;
+                }
+            }
+            if (best != null) {
+                session.deliver(message, Math.min(best.qos(), message.qos()), best.retainAsPublished() && message.retain());
+                deliveredCount.increment();
+            }
+        }
+        for (SharedGroup group : sharedGroups.values()) {
+            Member member;
+            if (matches(group.levels, levels) && (member = group.next()) != null) {
+                member.session().deliver(message, Math.min(member.qos(), message.qos()), false);
+                deliveredCount.increment();
+            }
+        }
+    }
+
+    /**
+     * @param session The subscribing session.
+     * @param filter  The topic filter, possibly a shared subscription.
+     * @param options The subscription options byte.
+     * @return The reason code of the SUBACK: the granted QoS or an error.
+     */
+    int subscribe(Session session, String filter, int options) {
+        int qos = Math.min(options & 3, MAXIMUM_QOS);
+        String group = null;
+        if (filter.startsWith(SHARE_PREFIX)) {
+            int slash = filter.indexOf('/', SHARE_PREFIX.length());
+            if (slash < 0) {
+                return REASON_TOPIC_FILTER_INVALID;
+            }
+            group = filter.substring(SHARE_PREFIX.length(), slash);
+            filter = filter.substring(slash + 1);
+        }
+        String[] levels = filter.split("/", -1);
+        if (!isValidFilter(filter, levels)
+                || group != null && (group.isEmpty() || group.contains("+") || group.contains("#"))) {
+            return REASON_TOPIC_FILTER_INVALID;
+        }
+        if (group != null) {
+            sharedGroups.compute(group + "/" + filter, (key, existing) -> {
+                SharedGroup shared = existing != null ? existing : new SharedGroup(levels);
+                shared.add(session, qos);
+                return shared;
+            });
+            // Retained messages are not sent on shared subscriptions
+            return qos;
+        }
+        boolean isNew = session.subscriptions.put(filter, new Subscription(levels, qos,
+                (options & 0x04) != 0, (options & 0x08) != 0)) == null;
+        int retainHandling = (options >>> 4) & 3;
+        if (retainHandling == 0 || retainHandling == 1 && isNew) {
+            for (Message message : retained.values()) {
+                if (matches(levels, message.topic().split("/", -1))) {
+                    session.deliver(message, Math.min(qos, message.qos()), true);
+                    deliveredCount.increment();
+                }
+            }
+        }
+        return qos;
+    }
+
+    /**
+     * @param session The unsubscribing session.
+     * @param filter  The topic filter, possibly a shared subscription.
+     * @return The reason code of the UNSUBACK.
+     */
+    int unsubscribe(Session session, String filter) {
+        if (filter.startsWith(SHARE_PREFIX)) {
+            boolean[] removed = new boolean[1];
+            sharedGroups.computeIfPresent(filter.substring(SHARE_PREFIX.length()), (key, group) -> {
+                removed[0] = group.remove(session);
+                return group.isEmpty() ? null : group;
+            });
+            return removed[0] ? REASON_SUCCESS : REASON_NO_SUBSCRIPTION_EXISTED;
+        }
+        return session.subscriptions.remove(filter) != null ? REASON_SUCCESS : REASON_NO_SUBSCRIPTION_EXISTED;
+    }
+
+    private static boolean isValidFilter(String filter, String[] levels) {
+        if (filter.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if (level.contains("#") && (!level.equals("#") || i != levels.length - 1)
+                    || level.contains("+") && !level.equals("+")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String[] filter, String[] topic) {
+        // Wildcards at the first level do not match the reserved topics starting with $
+        if (topic[0].startsWith("$") && (filter[0].equals("+") || filter[0].equals("#"))) {
+            return false;
+        }
+        for (int i = 0; i < filter.length; i++) {
+            if (filter[i].equals("#")) {
+                return true;
+            }
+            if (i >= topic.length || !filter[i].equals("+") && !filter[i].equals(topic[i])) {
+                return false;
+            }
+        }
+        return filter.length == topic.length;
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual().name("broker-session").start(new Session(this, socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Broker: accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
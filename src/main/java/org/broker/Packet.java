@@ -0,0 +1,332 @@
+package org.broker;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An MQTT v5 control packet read from a connection, with a cursor over its body, and the
+ * {@link Builder} used to encode outgoing packets. Only the packets and properties the
+ * {@link EmbeddedBroker} understands are named here.
+ *
+ * @version 16.10.2026
+ */
+final class Packet {
+    static final int CONNECT = 1;
+    static final int CONNACK = 2;
+    static final int PUBLISH = 3;
+    static final int PUBACK = 4;
+    static final int SUBSCRIBE = 8;
+    static final int SUBACK = 9;
+    static final int UNSUBSCRIBE = 10;
+    static final int UNSUBACK = 11;
+    static final int PINGREQ = 12;
+    static final int PINGRESP = 13;
+    static final int DISCONNECT = 14;
+
+    static final int PROPERTY_SUBSCRIPTION_IDENTIFIER = 0x0B;
+    static final int PROPERTY_ASSIGNED_CLIENT_IDENTIFIER = 0x12;
+    static final int PROPERTY_WILL_DELAY_INTERVAL = 0x18;
+    static final int PROPERTY_RECEIVE_MAXIMUM = 0x21;
+    static final int PROPERTY_TOPIC_ALIAS_MAXIMUM = 0x22;
+    static final int PROPERTY_TOPIC_ALIAS = 0x23;
+    static final int PROPERTY_MAXIMUM_QOS = 0x24;
+
+    /** Packets above this size are refused, which bounds the memory a client can make us allocate. */
+    static final int MAXIMUM_SIZE = 16 * 1024 * 1024;
+
+    final int type;
+    final int flags;
+    private final byte[] body;
+    private int position;
+
+    private Packet(int type, int flags, byte[] body) {
+        this.type = type;
+        this.flags = flags;
+        this.body = body;
+    }
+
+    /**
+     * Reads the next packet of a connection.
+     *
+     * @param in The connection input.
+     * @return The packet, or {@code null} if the connection was closed between two packets.
+     * @throws IOException if the connection fails or the packet is malformed.
+     */
+    static Packet read(InputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Connection closed within a packet header");
+            }
+            if (shift > 21) {
+                throw new IOException("Malformed remaining length");
+            }
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length > MAXIMUM_SIZE) {
+            throw new IOException("Packet of " + length + " bytes exceeds the maximum size");
+        }
+        return new Packet(first >>> 4, first & 0x0F, in.readNBytes(length)).checkLength(length);
+    }
+
+    private Packet checkLength(int length) throws EOFException {
+        if (body.length != length) {
+            throw new EOFException("Connection closed within a packet");
+        }
+        return this;
+    }
+
+    boolean hasRemaining() {
+        return position < body.length;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return body[position++] & 0xFF;
+    }
+
+    int readShort() throws IOException {
+        require(2);
+        int value = (body[position] & 0xFF) << 8 | body[position + 1] & 0xFF;
+        position += 2;
+        return value;
+    }
+
+    int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= 21; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable byte integer");
+    }
+
+    String readString() throws IOException {
+        int length = readShort();
+        require(length);
+        String value = new String(body, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    byte[] readBinary() throws IOException {
+        int length = readShort();
+        return readBytes(length);
+    }
+
+    byte[] readBytes(int length) throws IOException {
+        require(length);
+        byte[] value = Arrays.copyOfRange(body, position, position + length);
+        position += length;
+        return value;
+    }
+
+    /**
+     * @return The unread bytes of the body, e.g. the payload of a PUBLISH.
+     */
+    byte[] readRemaining() {
+        byte[] value = Arrays.copyOfRange(body, position, body.length);
+        position = body.length;
+        return value;
+    }
+
+    /**
+     * Skips the value of a property whose identifier has just been read.
+     *
+     * @param id The property identifier.
+     * @throws IOException if the identifier is unknown or the value truncated.
+     */
+    void skipProperty(int id) throws IOException {
+        int length = switch (id) {
+            case 0x01, 0x17, 0x19, 0x24, 0x25, 0x28, 0x29, 0x2A -> 1;
+            case 0x13, 0x21, 0x22, 0x23 -> 2;
+            case 0x02, 0x11, 0x18, 0x27 -> 4;
+            case 0x03, 0x08, 0x09, 0x12, 0x15, 0x16, 0x1A, 0x1C, 0x1F -> 2 + peekShort();
+            case 0x0B -> {
+                readVarInt();
+                yield 0;
+            }
+            case 0x26 -> {
+                readString();
+                readString();
+                yield 0;
+            }
+            default -> throw new IOException("Unknown property 0x" + Integer.toHexString(id));
+        };
+        require(length);
+        position += length;
+    }
+
+    /**
+     * Reads a property list, keeping the raw bytes of all properties but the excluded ones so
+     * that they can be forwarded as they are, and returning the value of the topic alias.
+     *
+     * @param kept     Receives the raw bytes of the kept properties.
+     * @param excluded The identifiers of the properties to drop.
+     * @return The topic alias, or 0 if none.
+     * @throws IOException if the property list is malformed.
+     */
+    int readProperties(Builder kept, int... excluded) throws IOException {
+        return readProperties(PROPERTY_TOPIC_ALIAS, kept, excluded);
+    }
+
+    /**
+     * Reads a property list like {@link #readProperties(Builder, int...)}, returning the value
+     * of another two-byte property than the topic alias.
+     *
+     * @param wanted   The identifier of the two-byte property whose value is returned.
+     * @param kept     Receives the raw bytes of the kept properties, or {@code null}.
+     * @param excluded The identifiers of the properties to drop.
+     * @return The value of the wanted property, or 0 if none.
+     * @throws IOException if the property list is malformed.
+     */
+    int readProperties(int wanted, Builder kept, int... excluded) throws IOException {
+        int end = readVarInt();
+        end += position;
+        int value = 0;
+        while (position < end) {
+            int start = position;
+            int id = readVarInt();
+            if (id == wanted) {
+                value = peekShort();
+            }
+            skipProperty(id);
+            if (kept != null && !isExcluded(id, excluded)) {
+                kept.writeBytes(body, start, position - start);
+            }
+        }
+        if (position != end) {
+            throw new IOException("Malformed property list");
+        }
+        return value;
+    }
+
+    private static boolean isExcluded(int id, int[] excluded) {
+        for (int candidate : excluded) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int peekShort() throws IOException {
+        require(2);
+        return (body[position] & 0xFF) << 8 | body[position + 1] & 0xFF;
+    }
+
+    private void require(int length) throws IOException {
+        if (length < 0 || body.length - position < length) {
+            throw new IOException("Truncated packet of type " + type);
+        }
+    }
+
+    /**
+     * A growable buffer encoding the body of an outgoing packet.
+     */
+    static final class Builder {
+        private byte[] buffer;
+        private int size;
+
+        Builder(int capacity) {
+            buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        Builder writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+            return this;
+        }
+
+        Builder writeShort(int value) {
+            ensure(2);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+            return this;
+        }
+
+        Builder writeVarInt(int value) {
+            do {
+                int b = value & 0x7F;
+                value >>>= 7;
+                writeByte(value > 0 ? b | 0x80 : b);
+            } while (value > 0);
+            return this;
+        }
+
+        Builder writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeShort(utf8.length);
+            return writeBytes(utf8, 0, utf8.length);
+        }
+
+        Builder writeBytes(byte[] bytes) {
+            return writeBytes(bytes, 0, bytes.length);
+        }
+
+        Builder writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+            return this;
+        }
+
+        /**
+         * @return The raw bytes written so far, e.g. a property list without its length.
+         */
+        byte[] toBytes() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        /**
+         * @param type  The packet type.
+         * @param flags The flags of the fixed header.
+         * @return The complete packet, fixed header followed by the body written so far.
+         */
+        byte[] toPacket(int type, int flags) {
+            int headerLength = 2;
+            for (int length = size; length >= 0x80; length >>>= 7) {
+                headerLength++;
+            }
+            byte[] packet = new byte[headerLength + size];
+            packet[0] = (byte) (type << 4 | flags);
+            int position = 1;
+            int length = size;
+            do {
+                int b = length & 0x7F;
+                length >>>= 7;
+                packet[position++] = (byte) (length > 0 ? b | 0x80 : b);
+            } while (length > 0);
+            System.arraycopy(buffer, 0, packet, position, size);
+            return packet;
+        }
+
+        private void ensure(int length) {
+            if (buffer.length - size < length) {
+                buffer = Arrays.copyOf(buffer, Math.max(size + length, buffer.length * 2));
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.broker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The connection of one client to the {@link EmbeddedBroker}.
+ * <p>
+ * A reader thread decodes the incoming packets and routes the publishes through the broker,
+ * while a writer thread drains the outgoing packets queued by any thread, flushing the socket
+ * only when the queue runs empty so that bursts are written in few system calls. Sessions
+ * are not persisted: every connection starts clean and QoS 1 deliveries are not retried.
+ * <p>
+ * No more QoS 1 deliveries than the receive maximum of the client are left unacknowledged:
+ * the next ones are held back in arrival order and sent as the acknowledgements come in.
+ *
+ * @version 16.10.2026
+ */
+final class Session implements Runnable {
+    private static final byte[] CLOSE = new byte[0];
+    private static final byte[] PINGRESP = {(byte) (Packet.PINGRESP << 4), 0};
+    private static final int REASON_UNSUPPORTED_PROTOCOL_VERSION = 0x84;
+    private static final int REASON_DISCONNECT_WITH_WILL = 0x04;
+    private static final int DEFAULT_RECEIVE_MAXIMUM = 65_535;
+
+    private final EmbeddedBroker broker;
+    private final Socket socket;
+    private final BlockingQueue<byte[]> outbound = new LinkedBlockingQueue<>();
+    private final AtomicInteger packetIds = new AtomicInteger();
+    private final String[] topicAliases = new String[EmbeddedBroker.TOPIC_ALIAS_MAXIMUM + 1];
+    final Map<String, EmbeddedBroker.Subscription> subscriptions = new ConcurrentHashMap<>();
+    // Guarded by held: the QoS 1 deliveries beyond the receive maximum of the client
+    private final ArrayDeque<byte[]> held = new ArrayDeque<>();
+    private int receiveMaximum = DEFAULT_RECEIVE_MAXIMUM;
+    private int unacknowledged;
+    private String clientId = "?";
+    private EmbeddedBroker.Message will;
+    private volatile boolean closed;
+
+    Session(EmbeddedBroker broker, Socket socket) {
+        this.broker = broker;
+        this.socket = socket;
+    }
+
+    String clientId() {
+        return clientId;
+    }
+
+    @Override
+    public void run() {
+        boolean graceful = false;
+        boolean connected = false;
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            Packet connect = Packet.read(in);
+            if (connect == null || connect.type != Packet.CONNECT || !connect(connect)) {
+                return;
+            }
+            connected = true;
+            Thread.ofVirtual().name("broker-writer-" + clientId).start(this::writeLoop);
+            broker.connected(this);
+            for (Packet packet = Packet.read(in); packet != null; packet = Packet.read(in)) {
+                if (packet.type == Packet.DISCONNECT) {
+                    graceful = !packet.hasRemaining() || packet.readByte() != REASON_DISCONNECT_WITH_WILL;
+                    break;
+                }
+                handle(packet);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Broker: connection of " + clientId + " lost: " + e.getMessage());
+            }
+        } finally {
+            closed = true;
+            outbound.offer(CLOSE);
+            if (connected) {
+                broker.disconnected(this, graceful ? null : will);
+            }
+        }
+    }
+
+    /**
+     * Queues a publish for this client.
+     *
+     * @param message The message.
+     * @param qos     The QoS of the delivery, at most the one of the message and of the subscription.
+     * @param retain  The retain flag of the delivery.
+     */
+    void deliver(EmbeddedBroker.Message message, int qos, boolean retain) {
+        Packet.Builder publish = new Packet.Builder(message.topic().length() + message.properties().length
+                + message.payload().length + 16);
+        publish.writeString(message.topic());
+        if (qos > 0) {
+            publish.writeShort(Math.floorMod(packetIds.getAndIncrement(), 0xFFFF) + 1);
+        }
+        publish.writeVarInt(message.properties().length).writeBytes(message.properties()).writeBytes(message.payload());
+        byte[] packet = publish.toPacket(Packet.PUBLISH, qos << 1 | (retain ? 1 : 0));
+        if (qos > 0) {
+            synchronized (held) {
+                if (unacknowledged == receiveMaximum) {
+                    held.add(packet);
+                    return;
+                }
+                unacknowledged++;
+            }
+        }
+        send(packet);
+    }
+
+    /**
+     * Sends the next held back delivery in place of an acknowledged one.
+     */
+    private void acknowledged() {
+        byte[] next;
+        synchronized (held) {
+            next = held.poll();
+            if (next == null) {
+                unacknowledged = Math.max(0, unacknowledged - 1);
+                return;
+            }
+        }
+        send(next);
+    }
+
+    /**
+     * Closes the connection, e.g. when another connection takes the client id over.
+     * The will of the client is published as for any unexpected disconnection.
+     */
+    void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+    }
+
+    private boolean connect(Packet connect) throws IOException {
+        String protocol = connect.readString();
+        int level = connect.readByte();
+        if (!"MQTT".equals(protocol) || level != 5) {
+            // Only MQTT v5 is spoken here; the reply is best effort for older clients
+            socket.getOutputStream().write(new Packet.Builder(2).writeByte(0)
+                    .writeByte(REASON_UNSUPPORTED_PROTOCOL_VERSION).toPacket(Packet.CONNACK, 0));
+            return false;
+        }
+        int flags = connect.readByte();
+        int keepAlive = connect.readShort();
+        int clientReceiveMaximum = connect.readProperties(Packet.PROPERTY_RECEIVE_MAXIMUM, null);
+        if (clientReceiveMaximum > 0) {
+            receiveMaximum = clientReceiveMaximum;
+        }
+        String id = connect.readString();
+        if ((flags & 0x04) != 0) {
+            Packet.Builder properties = new Packet.Builder(64);
+            connect.readProperties(properties, Packet.PROPERTY_WILL_DELAY_INTERVAL);
+            String topic = connect.readString();
+            byte[] payload = connect.readBinary();
+            will = new EmbeddedBroker.Message(topic, Math.min((flags >>> 3) & 3, EmbeddedBroker.MAXIMUM_QOS),
+                    (flags & 0x20) != 0, properties.toBytes(), payload);
+        }
+        // User name and password, if any, are accepted without checking
+
+        Packet.Builder properties = new Packet.Builder(64)
+                .writeByte(Packet.PROPERTY_TOPIC_ALIAS_MAXIMUM).writeShort(EmbeddedBroker.TOPIC_ALIAS_MAXIMUM)
+                .writeByte(Packet.PROPERTY_MAXIMUM_QOS).writeByte(EmbeddedBroker.MAXIMUM_QOS);
+        if (id.isEmpty()) {
+            id = "auto-" + UUID.randomUUID();
+            properties.writeByte(Packet.PROPERTY_ASSIGNED_CLIENT_IDENTIFIER).writeString(id);
+        }
+        clientId = id;
+        if (keepAlive > 0) {
+            socket.setSoTimeout(keepAlive * 1500);
+        }
+        send(new Packet.Builder(properties.size() + 4).writeByte(0).writeByte(0)
+                .writeVarInt(properties.size()).writeBytes(properties.toBytes()).toPacket(Packet.CONNACK, 0));
+        return true;
+    }
+
+    private void handle(Packet packet) throws IOException {
+        switch (packet.type) {
+            case Packet.PUBLISH -> publish(packet);
+            // Deliveries are not retried, so only their count is released
+            case Packet.PUBACK -> acknowledged();
+            case Packet.SUBSCRIBE -> {
+                int packetId = packet.readShort();
+                packet.readProperties(null);
+                Packet.Builder suback = new Packet.Builder(16).writeShort(packetId).writeVarInt(0);
+                while (packet.hasRemaining()) {
+                    String filter = packet.readString();
+                    suback.writeByte(broker.subscribe(this, filter, packet.readByte()));
+                }
+                send(suback.toPacket(Packet.SUBACK, 0));
+            }
+            case Packet.UNSUBSCRIBE -> {
+                int packetId = packet.readShort();
+                packet.readProperties(null);
+                Packet.Builder unsuback = new Packet.Builder(16).writeShort(packetId).writeVarInt(0);
+                while (packet.hasRemaining()) {
+                    unsuback.writeByte(broker.unsubscribe(this, packet.readString()));
+                }
+                send(unsuback.toPacket(Packet.UNSUBACK, 0));
+            }
+            case Packet.PINGREQ -> send(PINGRESP);
+            default -> throw new IOException("Unsupported packet type " + packet.type);
+        }
+    }
+
+    private void publish(Packet packet) throws IOException {
+        int qos = (packet.flags >>> 1) & 3;
+        if (qos > EmbeddedBroker.MAXIMUM_QOS) {
+            throw new IOException("QoS " + qos + " is not supported");
+        }
+        String topic = packet.readString();
+        int packetId = qos > 0 ? packet.readShort() : 0;
+        Packet.Builder properties = new Packet.Builder(64);
+        int alias = packet.readProperties(properties, Packet.PROPERTY_TOPIC_ALIAS,
+                Packet.PROPERTY_SUBSCRIPTION_IDENTIFIER);
+        if (alias > 0) {
+            if (alias > EmbeddedBroker.TOPIC_ALIAS_MAXIMUM) {
+                throw new IOException("Topic alias " + alias + " out of range");
+            }
+            if (topic.isEmpty()) {
+                topic = topicAliases[alias];
+            } else {
+                topicAliases[alias] = topic;
+            }
+        }
+        if (topic == null || topic.isEmpty() || topic.indexOf('+') >= 0 || topic.indexOf('#') >= 0) {
+            throw new IOException("Invalid topic name in publish");
+        }
+        broker.publish(this, new EmbeddedBroker.Message(topic, qos, (packet.flags & 1) != 0,
+                properties.toBytes(), packet.readRemaining()));
+        if (qos == 1) {
+            send(new Packet.Builder(2).writeShort(packetId).toPacket(Packet.PUBACK, 0));
+        }
+    }
+
+    private void send(byte[] packet) {
+        if (!closed) {
+            outbound.offer(packet);
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            for (byte[] packet = outbound.take(); packet != CLOSE; packet = outbound.take()) {
+                out.write(packet);
+                if (outbound.isEmpty()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            close();
+        }
+    }
+}
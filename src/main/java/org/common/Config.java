@@ -0,0 +1,308 @@
+package org.common;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The settings of a process, read from several sources so that tuning does not need a rebuild.
+ * <p>
+ * A setting such as {@code textToMorse.workers} is looked up, in order of precedence:
+ * <ol>
+ *     <li>in the live overrides received on the control topic, for live settings only;</li>
+ *     <li>in the system properties, e.g. {@code -DtextToMorse.workers=8};</li>
+ *     <li>in the environment, the name in upper case with words separated by underscores,
+ *     e.g. {@code TEXT_TO_MORSE_WORKERS=8};</li>
+ *     <li>in the properties file named by {@code morse.config} (system property) or
+ *     {@code MORSE_CONFIG} (environment), {@code morse.properties} in the working directory
+ *     by default, which may be shared by all processes;</li>
+ *     <li>in the default given by the code.</li>
+ * </ol>
+ * A value that cannot be parsed is reported and replaced by the default.
+ * <p>
+ * Most settings are read once at startup. Those that are safe to change while running, such
+ * as the playback speed or the logging of every message, are registered as {@link Live}
+ * settings. Publishing a properties text on {@code C/<component>}, or on {@code C/all} for
+ * every process, overrides them; an empty message re-reads the file. Overrides of settings
+ * that are not live are ignored with a warning, as they need a restart.
+ *
+ * @version 16.10.2026
+ */
+public final class Config {
+    private static final String TOPIC_PREFIX = "C/";
+    private static final String DEFAULT_FILE = "morse.properties";
+
+    /**
+     * Holds the logger of the settings, created on first use: {@link Log} reads its own
+     * settings while its class is initialized, so this class must not need it to load.
+     */
+    private static final class LogHolder {
+        private static final Log log = Log.get("Config");
+    }
+
+    /**
+     * @return The logger of the settings.
+     */
+    private static Log log() {
+        Log log = LogHolder.log;
+        // Still null if the holder is loading Log, which reports on its own settings through here
+        return log != null ? log : Log.get("Config");
+    }
+
+    /**
+     * A setting that can change while the process runs. Reading it is a volatile read.
+     *
+     * @param <T> The type of the value.
+     */
+    public final class Live<T> implements Supplier<T> {
+        private final String key;
+        private final T defaultValue;
+        private final Function<String, T> parser;
+        private final List<Consumer<T>> listeners = new CopyOnWriteArrayList<>();
+        private volatile T value;
+
+        private Live(String key, T defaultValue, Function<String, T> parser) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.parser = parser;
+            this.value = parse(key, resolve(key, true), defaultValue, parser);
+        }
+
+        /**
+         * @return The current value.
+         */
+        @Override
+        public T get() {
+            return value;
+        }
+
+        /**
+         * Calls a listener with the current value now and with every new value from then on,
+         * on the thread applying the change.
+         *
+         * @param listener The listener.
+         * @return This setting.
+         */
+        public Live<T> onChange(Consumer<T> listener) {
+            listeners.add(listener);
+            listener.accept(value);
+            return this;
+        }
+
+        private void refresh() {
+            T updated = parse(key, resolve(key, true), defaultValue, parser);
+            if (!Objects.equals(updated, value)) {
+                value = updated;
+                log().info("settingChanged", "key", key, "value", updated);
+                for (Consumer<T> listener : listeners) {
+                    listener.accept(updated);
+                }
+            }
+        }
+    }
+
+    private final Path file;
+    private volatile Properties fileProperties;
+    private final Map<String, String> overrides = new ConcurrentHashMap<>();
+    private final Map<String, Live<?>> liveSettings = new ConcurrentHashMap<>();
+
+    private Config(Path file) {
+        this.file = file;
+        this.fileProperties = readFile(file);
+    }
+
+    /**
+     * Loads the settings of the process: the file, if any, is read now; system properties
+     * and environment are read on each lookup.
+     *
+     * @return The settings.
+     */
+    public static Config load() {
+        String path = System.getProperty("morse.config", System.getenv("MORSE_CONFIG"));
+        return new Config(Path.of(path != null ? path : DEFAULT_FILE));
+    }
+
+    /**
+     * @param component The component name, e.g. its client id.
+     * @return The control topic on which the live settings of the component are overridden.
+     */
+    public static String topic(String component) {
+        return TOPIC_PREFIX + component;
+    }
+
+    /**
+     * @return The control topic addressing every component at once.
+     */
+    public static String broadcastTopic() {
+        return TOPIC_PREFIX + "all";
+    }
+
+    /**
+     * @param key          The setting.
+     * @param defaultValue The value if the setting is not set.
+     * @return The value of the setting.
+     */
+    public String string(String key, String defaultValue) {
+        String value = resolve(key, false);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * @param key          The setting.
+     * @param defaultValue The value if the setting is not set or invalid.
+     * @return The value of the setting.
+     */
+    public int integer(String key, int defaultValue) {
+        return parse(key, resolve(key, false), defaultValue, Integer::parseInt);
+    }
+
+    /**
+     * @param key          The setting.
+     * @param defaultValue The value if the setting is not set or invalid.
+     * @return The value of the setting.
+     */
+    public long longValue(String key, long defaultValue) {
+        return parse(key, resolve(key, false), defaultValue, Long::parseLong);
+    }
+
+    /**
+     * @param key          The setting.
+     * @param defaultValue The value if the setting is not set or invalid.
+     * @return The value of the setting.
+     */
+    public double decimal(String key, double defaultValue) {
+        return parse(key, resolve(key, false), defaultValue, Double::parseDouble);
+    }
+
+    /**
+     * @param key          The setting.
+     * @param defaultValue The value if the setting is not set.
+     * @return {@code true} if the setting is {@code true}, ignoring case.
+     */
+    public boolean flag(String key, boolean defaultValue) {
+        return parse(key, resolve(key, false), defaultValue, Boolean::parseBoolean);
+    }
+
+    /**
+     * @param key          The setting, whose value is the name of a constant, ignoring case.
+     * @param defaultValue The value if the setting is not set or invalid.
+     * @param <E>          The enum type.
+     * @return The value of the setting.
+     */
+    public <E extends Enum<E>> E choice(String key, E defaultValue) {
+        return parse(key, resolve(key, false), defaultValue,
+                value -> Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Registers a live setting, or returns the one already registered under that key.
+     *
+     * @param key          The setting.
+     * @param defaultValue The value if the setting is not set or invalid.
+     * @param parser       Parses a value, throwing an unchecked exception if it is invalid.
+     * @param <T>          The type of the value.
+     * @return The setting.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Live<T> live(String key, T defaultValue, Function<String, T> parser) {
+        return (Live<T>) liveSettings.computeIfAbsent(key, name -> new Live<>(name, defaultValue, parser));
+    }
+
+    /**
+     * Applies a message received on a control topic: a properties text overrides the live
+     * settings it names, an empty message re-reads the file.
+     *
+     * @param payload The payload of the control message.
+     */
+    public void apply(byte[] payload) {
+        if (payload.length == 0) {
+            fileProperties = readFile(file);
+        } else {
+            Properties properties = new Properties();
+            try (Reader reader = new StringReader(new String(payload, StandardCharsets.UTF_8))) {
+                properties.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                log().warn("settingsMalformed", "reason", e.getMessage());
+                return;
+            }
+            for (String key : properties.stringPropertyNames()) {
+                if (liveSettings.containsKey(key)) {
+                    overrides.put(key, properties.getProperty(key));
+                } else {
+                    log().warn("settingNeedsRestart", "key", key);
+                }
+            }
+        }
+        for (Live<?> setting : liveSettings.values()) {
+            setting.refresh();
+        }
+    }
+
+    /**
+     * @param key A setting.
+     * @return The name of its environment variable, e.g. {@code TEXT_TO_MORSE_WORKERS} for
+     * {@code textToMorse.workers}.
+     */
+    static String environmentName(String key) {
+        StringBuilder name = new StringBuilder(key.length() + 8);
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 && Character.isLowerCase(key.charAt(i - 1))) {
+                name.append('_');
+            }
+            name.append(c == '.' || c == '-' ? '_' : Character.toUpperCase(c));
+        }
+        return name.toString();
+    }
+
+    private String resolve(String key, boolean live) {
+        String value = live ? overrides.get(key) : null;
+        if (value == null) {
+            value = System.getProperty(key);
+        }
+        if (value == null) {
+            value = System.getenv(environmentName(key));
+        }
+        if (value == null) {
+            value = fileProperties.getProperty(key);
+        }
+        return value;
+    }
+
+    private static <T> T parse(String key, String value, T defaultValue, Function<String, T> parser) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return parser.apply(value.trim());
+        } catch (RuntimeException e) {
+            log().log(Log.Level.WARN, "settingInvalid", "key", key, "value", value, "using", defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static Properties readFile(Path file) {
+        Properties properties = new Properties();
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                log().warn("settingsUnreadable", "file", file, "reason", e.getMessage());
+            }
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,175 @@
+package org.common;
+
+/**
+ * Remembers the ids of recently seen messages to drop duplicate deliveries, such as
+ * QoS 1 redeliveries, even when they arrive out of order or interleaved with other messages.
+ * <p>
+ * The filter keeps the last {@code capacity} ids and, optionally, forgets ids older than a
+ * time window. Ids are stored as their two UUID halves in primitive arrays: every stripe of
+ * the filter has a ring buffer holding the ids in insertion order, indexed by an
+ * open-addressed hash table of ring positions. Once the ring is full, or its oldest entry
+ * has expired, that entry is evicted and its hash slot freed by backward shifting, so no
+ * tombstones accumulate. Nothing is allocated after construction.
+ * <p>
+ * The filter is safe for concurrent callers. The ids are spread over independent stripes by
+ * hash and each check-and-record runs under the short lock of its stripe only, so callers
+ * handling different messages rarely contend and a given id is accepted exactly once.
+ *
+ * @version 16.10.2026
+ */
+public final class DuplicateFilter {
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long windowNanos;
+
+    /**
+     * Creates a filter remembering the last {@code capacity} ids.
+     *
+     * @param capacity The number of ids remembered; rounded up to a multiple of the stripe count.
+     */
+    public DuplicateFilter(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * Creates a filter remembering the last {@code capacity} ids seen within a time window.
+     *
+     * @param capacity     The maximum number of ids remembered; rounded up to a multiple of the stripe count.
+     * @param windowMillis The time after which an id is forgotten, or 0 to only bound by capacity.
+     */
+    public DuplicateFilter(int capacity, long windowMillis) {
+        if (capacity < 1 || windowMillis < 0) {
+            throw new IllegalArgumentException("capacity must be positive and windowMillis not negative");
+        }
+        int stripeCapacity = (capacity + STRIPES - 1) / STRIPES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        this.windowNanos = windowMillis * 1_000_000L;
+    }
+
+    /**
+     * Checks whether an id has been seen recently and records it if not.
+     *
+     * @param idMsb The most significant bits of the message id.
+     * @param idLsb The least significant bits of the message id.
+     * @return {@code true} if the id is a duplicate and the message must be dropped,
+     * {@code false} if the id is new, in which case it is now remembered.
+     */
+    public boolean isDuplicate(long idMsb, long idLsb) {
+        int hash = hash(idMsb, idLsb);
+        Stripe stripe = stripes[hash >>> 28];
+        long now = windowNanos > 0 ? System.nanoTime() : 0;
+        synchronized (stripe) {
+            if (windowNanos > 0) {
+                stripe.expire(now - windowNanos);
+            }
+            if (stripe.contains(idMsb, idLsb, hash)) {
+                return true;
+            }
+            stripe.add(idMsb, idLsb, hash, now);
+            return false;
+        }
+    }
+
+    /**
+     * @return The hash of an id: its top 4 bits pick the stripe, its low bits the home slot in
+     * the table of the stripe.
+     */
+    static int hash(long idMsb, long idLsb) {
+        long h = (idMsb ^ idLsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * A ring buffer of ids in insertion order, indexed by an open-addressed hash table
+     * whose slots hold a ring position plus one, 0 meaning empty. Guarded by its own monitor.
+     */
+    private static final class Stripe {
+        private final long[] msb;
+        private final long[] lsb;
+        private final long[] time;
+        private final int[] table;
+        private final int mask;
+        private int head;
+        private int size;
+
+        Stripe(int capacity) {
+            msb = new long[capacity];
+            lsb = new long[capacity];
+            time = new long[capacity];
+            // At most half full, which keeps the probe sequences short
+            table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+            mask = table.length - 1;
+        }
+
+        boolean contains(long idMsb, long idLsb, int hash) {
+            for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                int entry = table[slot] - 1;
+                if (msb[entry] == idMsb && lsb[entry] == idLsb) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(long idMsb, long idLsb, int hash, long now) {
+            if (size == msb.length) {
+                evictOldest();
+            }
+            int entry = (head + size) % msb.length;
+            msb[entry] = idMsb;
+            lsb[entry] = idLsb;
+            time[entry] = now;
+            size++;
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry + 1;
+        }
+
+        void expire(long oldestKept) {
+            while (size > 0 && time[head] - oldestKept < 0) {
+                evictOldest();
+            }
+        }
+
+        private void evictOldest() {
+            int entry = head;
+            int slot = hash(msb[entry], lsb[entry]) & mask;
+            while (table[slot] != entry + 1) {
+                slot = (slot + 1) & mask;
+            }
+            removeSlot(slot);
+            head = (head + 1) % msb.length;
+            size--;
+        }
+
+        /**
+         * Empties a slot and shifts back the following entries of the probe sequence
+         * that would otherwise become unreachable.
+         */
+        private void removeSlot(int freed) {
+            int next = freed;
+            while (true) {
+                next = (next + 1) & mask;
+                if (table[next] == 0) {
+                    break;
+                }
+                int entry = table[next] - 1;
+                int home = hash(msb[entry], lsb[entry]) & mask;
+                // Move the entry if its home slot is not cyclically within (freed, next]
+                boolean reachable = freed <= next
+                        ? freed < home && home <= next
+                        : freed < home || home <= next;
+                if (!reachable) {
+                    table[freed] = table[next];
+                    freed = next;
+                }
+            }
+            table[freed] = 0;
+        }
+    }
+}
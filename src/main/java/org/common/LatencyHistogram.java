@@ -0,0 +1,120 @@
+package org.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free histogram of latencies in the style of HdrHistogram.
+ * <p>
+ * Values below 64 have a bucket each; above, every power of two is split into 32 linear
+ * buckets, which keeps the relative error of any reported value under about 3% over the
+ * whole {@code long} range with fewer than 2000 counters. Recording a value is a couple of
+ * bit operations and an atomic increment, with no allocation, so it can be called from the
+ * message path of every component; reading percentiles walks the counters and is meant for
+ * on-demand exports.
+ *
+ * @version 16.10.2026
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR_LIMIT = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * Records a value. Negative values, e.g. caused by clock differences between hosts,
+     * are recorded as 0.
+     *
+     * @param value The value, usually a duration in nanoseconds.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.getAndIncrement(indexOf(value));
+        totalCount.getAndIncrement();
+        totalSum.getAndAdd(value);
+        if (value > maxValue.get()) {
+            maxValue.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long count() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return The largest recorded value, or 0 if none.
+     */
+    public long max() {
+        return maxValue.get();
+    }
+
+    /**
+     * @return The mean of the recorded values, or 0 if none.
+     */
+    public double mean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalSum.get() / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall,
+     * as the upper bound of the bucket holding it.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The value at the percentile, or 0 if no value has been recorded.
+     */
+    public long percentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently may be partially kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,378 @@
+package org.common;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A logger whose calls never block nor format on the calling thread, for the message paths
+ * of the components, where synchronized console output used to cap the throughput.
+ * <p>
+ * A log call checks the level, a volatile read, and copies its arguments into a slot of a
+ * ring buffer shared by the process; a background thread formats the events as
+ * {@code key=value} lines and writes them to the console in batches, WARN and ERROR to the
+ * standard error. Arguments are formatted on that thread, so they must not change after the
+ * call: pass strings rather than reusable views. When the buffer is full the event is
+ * dropped and counted rather than waited for.
+ * <p>
+ * Per-message events go through a {@link Limiter}, which lets a few events per second through
+ * and reports how many were skipped in the next one. Callers guard them with
+ * {@link Limiter#permit()}, so that a disabled or exhausted log costs no allocation:
+ * <pre>{@code
+ * if (messageLog.permit()) {
+ *     messageLog.log("messageArrived", "topic", topic, "payload", new String(payload));
+ * }
+ * }</pre>
+ * The level ({@code log.level}, INFO by default) and the rate ({@code log.messageRate}, per
+ * call site and second) are live settings, see {@link #configure}.
+ *
+ * @version 16.10.2026
+ */
+public final class Log {
+    /**
+     * The severity of an event, in increasing order.
+     */
+    public enum Level {DEBUG, INFO, WARN, ERROR, OFF}
+
+    private static final int BUFFER_SLOTS = Integer.highestOneBit(
+            Math.max(64, Config.load().integer("log.bufferSlots", 8192)));
+    // The writer drains the buffer at least this often; warnings and errors wake it up at once
+    private static final long DRAIN_INTERVAL_NANOS = 5_000_000;
+    private static final int MAX_PAIRS = 3;
+
+    private static final Slot[] slots = new Slot[BUFFER_SLOTS];
+    // Next sequence to claim by the producers, and first sequence not yet written out
+    private static final AtomicLong claimed = new AtomicLong();
+    private static volatile long consumed;
+    private static final LongAdder dropped = new LongAdder();
+    private static volatile int threshold = Level.INFO.ordinal();
+    private static volatile int messageRate = 10;
+    private static final Thread writer;
+
+    static {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(i - slots.length);
+        }
+        writer = Thread.ofPlatform().name("log-writer").daemon().start(Log::drain);
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+    }
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name The name of the logger, usually the component or class, written with each event.
+     * @return A logger of that name.
+     */
+    public static Log get(String name) {
+        return new Log(name);
+    }
+
+    /**
+     * Binds the level and the rate of the per-message events to the live settings
+     * {@code log.level} and {@code log.messageRate}, and exports the number of dropped events
+     * as the {@code logDropped} gauge.
+     *
+     * @param config  The settings of the process.
+     * @param metrics The metrics of the component.
+     */
+    public static void configure(Config config, Metrics metrics) {
+        config.live("log.level", Level.INFO, value -> Level.valueOf(value.toUpperCase(Locale.ROOT)))
+                .onChange(level -> threshold = level.ordinal());
+        config.live("log.messageRate", 10, Integer::parseInt).onChange(rate -> messageRate = rate);
+        metrics.gauge("logDropped", dropped::sum);
+    }
+
+    /**
+     * @param level A level.
+     * @return {@code true} if events of that level are written.
+     */
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /**
+     * Creates a rate limiter for the events of one call site, typically one per message.
+     *
+     * @param level The level of the events.
+     * @return The limiter.
+     */
+    public Limiter limiter(Level level) {
+        return new Limiter(level);
+    }
+
+    /** Logs a DEBUG event with a key-value pair. */
+    public void debug(String event, String key, Object value) {
+        log(Level.DEBUG, event, key, value, null, null, null, null);
+    }
+
+    /** Logs an INFO event. */
+    public void info(String event) {
+        log(Level.INFO, event, null, null, null, null, null, null);
+    }
+
+    /** Logs an INFO event with a key-value pair. */
+    public void info(String event, String key, Object value) {
+        log(Level.INFO, event, key, value, null, null, null, null);
+    }
+
+    /** Logs an INFO event with two key-value pairs. */
+    public void info(String event, String key1, Object value1, String key2, Object value2) {
+        log(Level.INFO, event, key1, value1, key2, value2, null, null);
+    }
+
+    /** Logs a WARN event. */
+    public void warn(String event) {
+        log(Level.WARN, event, null, null, null, null, null, null);
+    }
+
+    /** Logs a WARN event with a key-value pair. */
+    public void warn(String event, String key, Object value) {
+        log(Level.WARN, event, key, value, null, null, null, null);
+    }
+
+    /** Logs a WARN event with two key-value pairs. */
+    public void warn(String event, String key1, Object value1, String key2, Object value2) {
+        log(Level.WARN, event, key1, value1, key2, value2, null, null);
+    }
+
+    /** Logs an ERROR event with a key-value pair. */
+    public void error(String event, String key, Object value) {
+        log(Level.ERROR, event, key, value, null, null, null, null);
+    }
+
+    /** Logs an ERROR event with two key-value pairs. */
+    public void error(String event, String key1, Object value1, String key2, Object value2) {
+        log(Level.ERROR, event, key1, value1, key2, value2, null, null);
+    }
+
+    /**
+     * Logs an event with up to three key-value pairs; unused keys are {@code null}.
+     *
+     * @param level The level.
+     * @param event The event name, e.g. {@code messageArrived}.
+     */
+    public void log(Level level, String event, String key1, Object value1, String key2, Object value2,
+                    String key3, Object value3) {
+        if (isEnabled(level)) {
+            publish(level, name, event, 0, key1, value1, key2, value2, key3, value3);
+        }
+    }
+
+    /**
+     * Lets at most {@code log.messageRate} events per second through; thread-safe.
+     */
+    public final class Limiter {
+        private final Level level;
+        // Current window, in units of 2^30 ns (about a second), and events let through in it
+        private final AtomicLong window = new AtomicLong();
+        private final AtomicInteger permitted = new AtomicInteger();
+        private final LongAdder suppressed = new LongAdder();
+
+        private Limiter(Level level) {
+            this.level = level;
+        }
+
+        /**
+         * @return {@code true} if the next event may be logged with {@link #log}; otherwise the
+         * event is counted as skipped.
+         */
+        public boolean permit() {
+            if (!isEnabled(level)) {
+                return false;
+            }
+            long now = System.nanoTime() >>> 30;
+            long current = window.get();
+            if (now != current && window.compareAndSet(current, now)) {
+                permitted.set(0);
+            }
+            if (permitted.incrementAndGet() <= messageRate) {
+                return true;
+            }
+            suppressed.increment();
+            return false;
+        }
+
+        /**
+         * Logs an event permitted by {@link #permit()}, with the number of events skipped since
+         * the previous one.
+         */
+        public void log(String event, String key1, Object value1, String key2, Object value2) {
+            publish(level, name, event, suppressed.sumThenReset(), key1, value1, key2, value2, null, null);
+        }
+    }
+
+    private static void publish(Level level, String name, String event, long suppressed,
+                                String key1, Object value1, String key2, Object value2,
+                                String key3, Object value3) {
+        if (slots == null) {
+            // Only while this class is initialized, by the settings it reads: there is no
+            // buffer nor writer yet, so the event is written at once
+            Slot slot = new Slot(0);
+            slot.set(level, name, event, 0, key1, value1, key2, value2, key3, value3);
+            StringBuilder line = new StringBuilder();
+            format(slot, line);
+            write(level.compareTo(Level.WARN) >= 0 ? System.err : System.out, line);
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= BUFFER_SLOTS) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        Slot slot = slots[(int) (sequence & (BUFFER_SLOTS - 1))];
+        slot.set(level, name, event, suppressed, key1, value1, key2, value2, key3, value3);
+        slot.sequence = sequence;
+        if (level.compareTo(Level.WARN) >= 0) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private static void drain() {
+        StringBuilder out = new StringBuilder(4096);
+        StringBuilder err = new StringBuilder(1024);
+        while (true) {
+            if (writeBatch(out, err) == 0) {
+                LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Writes every event published so far, waiting for none.
+     *
+     * @return The number of events written.
+     */
+    private static int writeBatch(StringBuilder out, StringBuilder err) {
+        int count = 0;
+        long next = consumed;
+        Slot slot = slots[(int) (next & (BUFFER_SLOTS - 1))];
+        while (slot.sequence == next) {
+            StringBuilder line = slot.level.compareTo(Level.WARN) >= 0 ? err : out;
+            format(slot, line);
+            slot.clear();
+            consumed = ++next;
+            count++;
+            slot = slots[(int) (next & (BUFFER_SLOTS - 1))];
+        }
+        write(System.out, out);
+        write(System.err, err);
+        return count;
+    }
+
+    private static void write(PrintStream stream, StringBuilder text) {
+        if (!text.isEmpty()) {
+            stream.print(text);
+            stream.flush();
+            text.setLength(0);
+        }
+    }
+
+    private static void format(Slot slot, StringBuilder line) {
+        line.append(Instant.ofEpochMilli(slot.millis)).append(' ').append(slot.level)
+                .append(' ').append(slot.logger).append(' ').append(slot.event);
+        for (int i = 0; i < MAX_PAIRS; i++) {
+            if (slot.keys[i] != null) {
+                line.append(' ').append(slot.keys[i]).append('=');
+                appendValue(line, String.valueOf(slot.values[i]));
+            }
+        }
+        if (slot.suppressed > 0) {
+            line.append(" suppressed=").append(slot.suppressed);
+        }
+        line.append(" thread=");
+        appendValue(line, slot.thread);
+        line.append(System.lineSeparator());
+    }
+
+    /**
+     * Appends a value, quoted and escaped if it is empty or holds spaces, quotes, equal signs
+     * or control characters, so that every event stays on one parseable line.
+     */
+    private static void appendValue(StringBuilder line, String value) {
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"', '\\' -> line.append('\\').append(c);
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Gives the writer up to a second to write the pending events on shutdown.
+     */
+    private static void flush() {
+        LockSupport.unpark(writer);
+        long deadline = System.nanoTime() + 1_000_000_000L;
+        while (consumed < claimed.get() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * A reusable event. {@link #sequence} is written last by the producer and read first by
+     * the writer, which publishes the other fields.
+     */
+    private static final class Slot {
+        private volatile long sequence;
+        private long millis;
+        private Level level;
+        private String logger;
+        private String thread;
+        private String event;
+        private long suppressed;
+        private final String[] keys = new String[MAX_PAIRS];
+        private final Object[] values = new Object[MAX_PAIRS];
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+
+        private void set(Level level, String logger, String event, long suppressed,
+                         String key1, Object value1, String key2, Object value2, String key3, Object value3) {
+            this.millis = System.currentTimeMillis();
+            this.level = level;
+            this.logger = logger;
+            this.thread = Thread.currentThread().getName();
+            this.event = event;
+            this.suppressed = suppressed;
+            keys[0] = key1;
+            values[0] = value1;
+            keys[1] = key2;
+            values[1] = value2;
+            keys[2] = key3;
+            values[2] = value3;
+        }
+
+        private void clear() {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, null);
+        }
+    }
+}
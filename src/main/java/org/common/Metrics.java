@@ -0,0 +1,237 @@
+package org.common;
+
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency histograms and throughput counters of one component of the pipeline.
+ * <p>
+ * Each stage a message goes through (parse, convert, publish, animation start, ...) gets a
+ * {@link LatencyHistogram} in nanoseconds and each event type a counter. Components look
+ * them up once at startup and keep the references, so recording costs an atomic increment.
+ * Current levels, such as the depth of a queue, are registered as gauges read at export time.
+ * <p>
+ * The figures are exported on demand in three ways: publishing any message on
+ * {@code M/<component>/get} makes the component answer with a JSON snapshot on
+ * {@code M/<component>}; the same snapshot is exposed through JMX (see {@link MetricsMXBean})
+ * once the component is up, see {@link #exportJmx()}, and, when the {@code metrics.httpPort}
+ * system property is set, over HTTP on {@code http://localhost:<port>/metrics}.
+ *
+ * @version 16.10.2026
+ */
+public final class Metrics implements MetricsMXBean {
+    private static final String TOPIC_PREFIX = "M/";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+    private static final Log log = Log.get("Metrics");
+
+    private final String component;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final AtomicBoolean jmxExported = new AtomicBoolean();
+    private HttpServer httpServer;
+
+    /**
+     * Creates the metrics of a component without exporting them.
+     *
+     * @param component The component name, used in the topics and the JMX name.
+     */
+    public Metrics(String component) {
+        this.component = component;
+    }
+
+    /**
+     * Creates the metrics of a component and starts the HTTP export if configured.
+     * An export that cannot be started is reported and skipped.
+     *
+     * @param component The component name, used in the topics and the JMX name.
+     * @return The metrics of the component.
+     */
+    public static Metrics start(String component) {
+        return start(component, Config.load());
+    }
+
+    /**
+     * Creates the metrics of a component and starts the HTTP export if configured by the
+     * {@code metrics.httpPort} setting. An export that cannot be started is reported and
+     * skipped. The JMX export is started by {@link #exportJmx()}.
+     *
+     * @param component The component name, used in the topics and the JMX name.
+     * @param config    The settings of the process.
+     * @return The metrics of the component.
+     */
+    public static Metrics start(String component, Config config) {
+        Metrics metrics = new Metrics(component);
+        int port = config.integer("metrics.httpPort", -1);
+        if (port >= 0) {
+            try {
+                metrics.startHttpServer(port);
+            } catch (IOException e) {
+                log.warn("metricsHttpUnavailable", "port", port, "reason", e.getMessage());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Exports the metrics through JMX, the first time it is called. Components call it once
+     * they are up, e.g. on their first {@code connectComplete}: starting the platform MBean
+     * server takes longer than connecting to the broker, so it is kept off the startup path
+     * and done in the background. An export that cannot be started is reported and skipped.
+     */
+    public void exportJmx() {
+        if (jmxExported.compareAndSet(false, true)) {
+            Thread.ofPlatform().name("metrics-jmx").daemon().start(this::registerMBean);
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("org.morse:type=Metrics,component=" + component));
+        } catch (JMException e) {
+            log.warn("metricsJmxUnavailable", "component", component, "reason", e.getMessage());
+        }
+    }
+
+    /**
+     * @param stage The stage name.
+     * @return The histogram of the stage, created on first use.
+     */
+    public LatencyHistogram histogram(String stage) {
+        return histograms.computeIfAbsent(stage, name -> new LatencyHistogram());
+    }
+
+    /**
+     * @param name The counter name.
+     * @return The counter, created on first use.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge of the same name.
+     *
+     * @param name  The gauge name.
+     * @param value Reads the current value, from the exporting thread.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * @return The topic the snapshots are published on.
+     */
+    public String topic() {
+        return TOPIC_PREFIX + component;
+    }
+
+    /**
+     * @return The topic on which any message requests a snapshot.
+     */
+    public String requestTopic() {
+        return topic() + "/get";
+    }
+
+    /**
+     * @return A snapshot ready to be published on {@link #topic()}.
+     */
+    public MqttMessage snapshotMessage() {
+        MqttMessage message = new MqttMessage(getSnapshot().getBytes(StandardCharsets.UTF_8));
+        message.setQos(0);
+        message.setRetained(false);
+        return message;
+    }
+
+    @Override
+    public String getSnapshot() {
+        double uptime = (System.nanoTime() - startNanos) / 1e9;
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"component\":\"").append(component).append('"');
+        json.append(",\"uptimeSeconds\":").append(format(uptime));
+        json.append(",\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            long count = counter.getValue().sum();
+            json.append(separator).append('"').append(counter.getKey()).append("\":{\"count\":").append(count)
+                    .append(",\"perSecond\":").append(format(uptime > 0 ? count / uptime : 0)).append('}');
+            separator = ",";
+        }
+        json.append("},\"gauges\":{");
+        separator = "";
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            json.append(separator).append('"').append(gauge.getKey()).append("\":").append(gauge.getValue().getAsLong());
+            separator = ",";
+        }
+        json.append("},\"stagesNanos\":{");
+        separator = "";
+        for (Map.Entry<String, LatencyHistogram> stage : histograms.entrySet()) {
+            LatencyHistogram histogram = stage.getValue();
+            json.append(separator).append('"').append(stage.getKey()).append("\":{\"count\":").append(histogram.count())
+                    .append(",\"mean\":").append(format(histogram.mean()));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                json.append(",\"").append(PERCENTILE_NAMES[i]).append("\":").append(histogram.percentile(PERCENTILES[i]));
+            }
+            json.append(",\"max\":").append(histogram.max()).append('}');
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    @Override
+    public void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Serves the snapshot on {@code /metrics} of a local HTTP server.
+     *
+     * @param port The port to listen on.
+     * @throws IOException if the server cannot be bound.
+     */
+    public synchronized void startHttpServer(int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        httpServer.createContext("/metrics", exchange -> {
+            byte[] body = getSnapshot().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        httpServer.start();
+        log.info("metricsHttpStarted", "url", "http://localhost:" + port + "/metrics");
+    }
+
+    /**
+     * Stops the HTTP export, if started, so that it does not keep the process alive.
+     */
+    public synchronized void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
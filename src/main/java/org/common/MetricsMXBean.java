@@ -0,0 +1,21 @@
+package org.common;
+
+/**
+ * Management interface of the {@link Metrics} of a component, registered on the platform
+ * MBean server under {@code org.morse:type=Metrics,component=<component>} so that the
+ * latency and throughput figures can be read with JConsole or any JMX client.
+ *
+ * @version 16.10.2026
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return The current figures of all stages and counters as a JSON document.
+     */
+    String getSnapshot();
+
+    /**
+     * Clears all histograms and counters, e.g. between two load test runs.
+     */
+    void reset();
+}
@@ -0,0 +1,101 @@
+package org.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Follows the chunked streams (see {@link org.protocol.WireFormat#TYPE_TEXT_CHUNK}) a
+ * component receives, to drop duplicate chunks and detect missing ones.
+ * <p>
+ * Chunks of a stream are expected in sequence order, which MQTT guarantees for the messages
+ * of a publisher on a topic: a chunk below the next expected sequence number is a redelivery,
+ * a chunk above it means chunks were lost. Only the most recently active streams are
+ * remembered, so memory stays bounded however many streams come and go; a finished stream
+ * is kept until evicted, so late redeliveries of its chunks are still recognized. Not
+ * thread-safe.
+ *
+ * @version 16.10.2026
+ */
+public final class StreamTracker {
+
+    /**
+     * The progress of a stream.
+     */
+    public static final class Stream {
+        private int nextSequence;
+        private int missed;
+        private boolean finished;
+        /**
+         * Free for the owner of the tracker to carry state from one chunk to the next.
+         */
+        public int state;
+
+        private Stream(int state) {
+            this.state = state;
+        }
+
+        /**
+         * @return The number of chunks skipped right before the latest accepted chunk.
+         */
+        public int missed() {
+            return missed;
+        }
+
+        /**
+         * @return {@code true} once the last chunk of the stream has been accepted.
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+    }
+
+    private final Map<UUID, Stream> streams;
+    private final int initialState;
+
+    /**
+     * @param capacity     The number of streams remembered.
+     * @param initialState The {@link Stream#state} of a new stream.
+     */
+    public StreamTracker(int capacity, int initialState) {
+        this.initialState = initialState;
+        this.streams = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Stream> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Records a received chunk.
+     *
+     * @param idMsb    The most significant bits of the stream id.
+     * @param idLsb    The least significant bits of the stream id.
+     * @param sequence The sequence number of the chunk.
+     * @param last     Whether the chunk is flagged as the last of its stream.
+     * @return The stream, or {@code null} if the chunk is a duplicate and must be dropped.
+     */
+    public Stream accept(long idMsb, long idLsb, int sequence, boolean last) {
+        UUID id = new UUID(idMsb, idLsb);
+        Stream stream = streams.get(id);
+        if (stream == null) {
+            stream = new Stream(initialState);
+            streams.put(id, stream);
+        }
+        if (stream.finished || sequence < stream.nextSequence) {
+            return null;
+        }
+        stream.missed = sequence - stream.nextSequence;
+        stream.nextSequence = sequence + 1;
+        stream.finished = last;
+        return stream;
+    }
+
+    /**
+     * @return The number of streams remembered.
+     */
+    public int size() {
+        return streams.size();
+    }
+}
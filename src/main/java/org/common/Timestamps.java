@@ -0,0 +1,94 @@
+package org.common;
+
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.eclipse.paho.mqttv5.common.packet.UserProperty;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stamps messages with the wall-clock time at which they left a stage of the pipeline,
+ * using MQTT v5 user properties so that the binary payloads stay untouched.
+ * <p>
+ * The source stamps {@link #SENT}; the transformer copies it to its output message and
+ * adds {@link #CONVERTED}; the display derives the end-to-end latency from them. The
+ * decoder likewise copies {@link #SENT} and adds {@link #DECODED}. The times are epoch
+ * microseconds, so the stages of processes on different hosts are only as
+ * comparable as their clocks are synchronized.
+ *
+ * @version 16.10.2026
+ */
+public final class Timestamps {
+    /**
+     * Time at which the source published the text.
+     */
+    public static final String SENT = "t.sent";
+    /**
+     * Time at which the transformer published the Morse code.
+     */
+    public static final String CONVERTED = "t.converted";
+    /**
+     * Time at which the decoder published the text decoded from Morse code.
+     */
+    public static final String DECODED = "t.decoded";
+
+    private Timestamps() {
+    }
+
+    /**
+     * @return The current wall-clock time in microseconds since the epoch.
+     */
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    /**
+     * Adds a timestamp to a message to be published.
+     *
+     * @param message The message.
+     * @param key     The stage, e.g. {@link #SENT}.
+     * @param micros  The time in microseconds since the epoch.
+     */
+    public static void stamp(MqttMessage message, String key, long micros) {
+        MqttProperties properties = message.getProperties();
+        if (properties == null) {
+            properties = new MqttProperties();
+            message.setProperties(properties);
+        }
+        List<UserProperty> userProperties = properties.getUserProperties();
+        if (userProperties == null) {
+            userProperties = new ArrayList<>(2);
+            properties.setUserProperties(userProperties);
+        }
+        userProperties.add(new UserProperty(key, Long.toString(micros)));
+    }
+
+    /**
+     * Reads a timestamp of a received message.
+     *
+     * @param message The message.
+     * @param key     The stage, e.g. {@link #SENT}.
+     * @return The time in microseconds since the epoch, or -1 if the message has no such timestamp.
+     */
+    public static long read(MqttMessage message, String key) {
+        MqttProperties properties = message.getProperties();
+        List<UserProperty> userProperties = properties == null ? null : properties.getUserProperties();
+        if (userProperties == null) {
+            return -1;
+        }
+        for (int i = 0, size = userProperties.size(); i < size; i++) {
+            UserProperty property = userProperties.get(i);
+            if (property.getKey().equals(key)) {
+                try {
+                    return Long.parseLong(property.getValue());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+}
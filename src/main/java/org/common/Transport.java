@@ -0,0 +1,313 @@
+package org.common;
+
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttClientException;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The MQTT settings and the publishing flow control shared by the components.
+ * <p>
+ * {@link #connectionOptions()} tells the broker how many QoS 1 messages it may push ahead of
+ * our acknowledgements ({@code transport.receiveMaximum}). A component handing messages over
+ * to workers acknowledges them itself with {@link #acknowledge} once they are processed, so
+ * that it never holds more than that many unprocessed messages. Outgoing publishes use the topic
+ * aliases the broker offers in its CONNACK on their own: the client sends a topic in full
+ * once, then a two-byte alias. The client does not accept aliases from the broker: the Paho
+ * client 1.2.5 records the empty topic of an aliased delivery as the topic of the alias.
+ * <p>
+ * Each class of {@link Traffic} has its own QoS, {@code transport.qos.<class>}, which
+ * defaults to {@code morse.qos}. A best-effort display can thus take the Morse messages at
+ * QoS 0 while the source text stays at QoS 1. Subscribers use the same setting, as the QoS of
+ * a subscription caps the QoS of its deliveries.
+ * <p>
+ * {@link #publish} keeps an adaptive window of unacknowledged publishes instead of a fixed
+ * one. The window grows by one message per window acknowledged within
+ * {@code transport.ackTargetMillis}, a live setting. An acknowledgement slower than that
+ * halves the window, at most once per acknowledgement time, as does a publish refused
+ * because the broker's receive maximum is reached. Acknowledgements slow down when the
+ * broker or the consumers behind it queue up. The window then shrinks and the publishers
+ * wait, while they run at full speed over a fast path. The window never exceeds
+ * {@code transport.maxInflight}. A publisher waits for room at most
+ * {@code transport.publishTimeoutMillis}, a live setting, then gives up.
+ *
+ * @version 16.10.2026
+ */
+public final class Transport {
+    /**
+     * The classes of messages, each published with its own QoS.
+     */
+    public enum Traffic {
+        /** The text typed or replayed by the keyboard sensor, the source of everything else. */
+        TEXT,
+        /** The Morse messages and keying timings, played by the display and decoded. */
+        MORSE,
+        /** The text decoded from Morse. */
+        DECODED
+    }
+
+    private static final double MIN_WINDOW = 1;
+    private static final long THROTTLE_WAIT_NANOS = 100_000;
+    private static final long REFUSED_WAIT_NANOS = 1_000_000;
+
+    private final int receiveMaximum;
+    private final int maxInflight;
+    private final Map<Traffic, Integer> qos = new EnumMap<>(Traffic.class);
+    private final Config.Live<Long> ackTargetMillis;
+    private final Config.Live<Long> publishTimeoutMillis;
+    private final LatencyHistogram ackLatency;
+    private final LongAdder throttledCount;
+    private final LongAdder congestionCount;
+    private final LongAdder timeoutCount;
+
+    // Guarded by this; inflight counts the publishes whose outcome has not been notified yet
+    private double window;
+    private int inflight;
+    private long lastDecreaseNanos;
+
+    /**
+     * Reads the transport settings and registers the {@code window} and {@code inflight}
+     * gauges, the {@code ack} histogram and the {@code throttled}, {@code congestion} and
+     * {@code publishTimeouts} counters.
+     *
+     * @param config  The settings of the process.
+     * @param metrics The metrics of the component.
+     */
+    public Transport(Config config, Metrics metrics) {
+        this(config, metrics, 256);
+    }
+
+    /**
+     * Reads the transport settings, with a component specific default for the maximum
+     * window, and registers the metrics of the transport.
+     *
+     * @param config             The settings of the process.
+     * @param metrics            The metrics of the component.
+     * @param defaultMaxInflight The maximum window unless {@code transport.maxInflight} is set.
+     */
+    public Transport(Config config, Metrics metrics, int defaultMaxInflight) {
+        receiveMaximum = config.integer("transport.receiveMaximum", 1024);
+        maxInflight = Math.max(1, config.integer("transport.maxInflight", defaultMaxInflight));
+        int defaultQos = config.integer("morse.qos", 1);
+        for (Traffic traffic : Traffic.values()) {
+            qos.put(traffic, config.integer("transport.qos." + traffic.name().toLowerCase(Locale.ROOT), defaultQos));
+        }
+        ackTargetMillis = config.live("transport.ackTargetMillis", 50L, Long::parseLong);
+        publishTimeoutMillis = config.live("transport.publishTimeoutMillis", 10_000L, Long::parseLong);
+        window = Math.min(16, maxInflight);
+        ackLatency = metrics.histogram("ack");
+        throttledCount = metrics.counter("throttled");
+        congestionCount = metrics.counter("congestion");
+        timeoutCount = metrics.counter("publishTimeouts");
+        metrics.gauge("window", this::window);
+        metrics.gauge("inflight", this::inflight);
+    }
+
+    /**
+     * @return Options for a clean start with automatic reconnection and the receive maximum;
+     * the caller adds its will.
+     */
+    public MqttConnectionOptions connectionOptions() {
+        MqttConnectionOptions options = new MqttConnectionOptions();
+        options.setCleanStart(true);
+        options.setAutomaticReconnect(true);
+        options.setReceiveMaximum(receiveMaximum);
+        return options;
+    }
+
+    /**
+     * @return The number of QoS 1 messages the broker may push ahead of our acknowledgements.
+     */
+    public int receiveMaximum() {
+        return receiveMaximum;
+    }
+
+    /**
+     * Acknowledges a message received by a client with manual acknowledgements, see
+     * {@link MqttAsyncClient#setManualAcks}, so that the broker may push the next one in its
+     * place. A QoS 0 message, or one rebuilt from a journal, has no packet id and is skipped.
+     *
+     * @param client  The client that received the message.
+     * @param message The message.
+     */
+    public static void acknowledge(MqttAsyncClient client, MqttMessage message) {
+        if (message.getId() == 0) {
+            return;
+        }
+        try {
+            client.messageArrivedComplete(message.getId(), message.getQos());
+        } catch (MqttException e) {
+            // The connection is lost, and the clean start of the next one forgets the message
+        }
+    }
+
+    /**
+     * @param traffic A class of messages.
+     * @return The QoS to publish and subscribe to them with.
+     */
+    public int qos(Traffic traffic) {
+        return qos.get(traffic);
+    }
+
+    /**
+     * Publishes a message without waiting for its acknowledgement, first waiting for room in
+     * the window. An interrupted publisher stops waiting and publishes anyway, keeping its
+     * interrupt status.
+     * <p>
+     * The room is measured by the client's own count of unacknowledged messages, which its
+     * receiver thread decrements as it reads the acknowledgements. That thread is not
+     * always reading: it hands the arrived messages to the callback thread, and stops once
+     * ten of them are queued there, until the callback returns. The components keep their
+     * callbacks short and never let them wait for a worker, but a stalled broker, or a
+     * listener blocking the callback thread, still holds the acknowledgements back. The wait
+     * is therefore bounded by {@code transport.publishTimeoutMillis}, after which the publish
+     * fails rather than parking the publisher for good. Concurrent publishers may briefly
+     * exceed the window, which only QoS 1 and 2 messages count.
+     *
+     * @param client   The client to publish with.
+     * @param topic    The topic.
+     * @param message  The message, with its QoS set.
+     * @param listener Notified of the acknowledgement or failure, or {@code null}.
+     * @throws MqttException with the reason code {@link MqttClientException#REASON_CODE_CLIENT_TIMEOUT}
+     *                       if no room was found in time, or if the publish is refused for
+     *                       another reason than the receive maximum of the broker, e.g.
+     *                       because the client is disconnected.
+     */
+    public void publish(MqttAsyncClient client, String topic, MqttMessage message, MqttActionListener listener)
+            throws MqttException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(publishTimeoutMillis.get());
+        if (message.getQos() > 0) {
+            awaitWindow(client, deadline);
+        }
+        synchronized (this) {
+            inflight++;
+        }
+        Delivery delivery = new Delivery(listener);
+        while (true) {
+            try {
+                client.publish(topic, message, null, delivery);
+                return;
+            } catch (MqttException e) {
+                if (e.getReasonCode() != MqttClientException.REASON_CODE_MAX_INFLIGHT) {
+                    release();
+                    throw e;
+                }
+                // More in flight than the broker accepts: the window is too large
+                refused();
+                if (System.nanoTime() - deadline >= 0) {
+                    release();
+                    throw timedOut();
+                }
+                LockSupport.parkNanos(REFUSED_WAIT_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Waits until every publish is acknowledged or failed.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (inflight > 0) {
+            wait();
+        }
+    }
+
+    private synchronized long window() {
+        return (long) window;
+    }
+
+    private synchronized long inflight() {
+        return inflight;
+    }
+
+    private void awaitWindow(MqttAsyncClient client, long deadline) throws MqttException {
+        if (client.getInFlightMessageCount() >= window()) {
+            throttledCount.increment();
+            while (client.getInFlightMessageCount() >= window() && !Thread.currentThread().isInterrupted()) {
+                if (System.nanoTime() - deadline >= 0) {
+                    throw timedOut();
+                }
+                LockSupport.parkNanos(THROTTLE_WAIT_NANOS);
+            }
+        }
+    }
+
+    private MqttException timedOut() {
+        timeoutCount.increment();
+        return new MqttException(MqttClientException.REASON_CODE_CLIENT_TIMEOUT);
+    }
+
+    private synchronized void release() {
+        inflight--;
+        notifyAll();
+    }
+
+    private synchronized void acknowledged(long latencyNanos) {
+        long now = System.nanoTime();
+        if (latencyNanos > TimeUnit.MILLISECONDS.toNanos(ackTargetMillis.get())) {
+            decrease(now, latencyNanos);
+        } else {
+            window = Math.min(maxInflight, window + 1 / window);
+        }
+        release();
+    }
+
+    private synchronized void refused() {
+        decrease(System.nanoTime(), REFUSED_WAIT_NANOS);
+    }
+
+    /**
+     * Halves the window, unless it was already halved within the given time, so that one
+     * congestion episode, seen by every message in flight, only counts once.
+     */
+    private void decrease(long now, long intervalNanos) {
+        if (now - lastDecreaseNanos > intervalNanos) {
+            window = Math.max(MIN_WINDOW, window / 2);
+            lastDecreaseNanos = now;
+            congestionCount.increment();
+        }
+    }
+
+    /**
+     * Frees the slot of a publish once it is acknowledged, adapting the window to the time
+     * it took, and passes the outcome on.
+     */
+    private final class Delivery implements MqttActionListener {
+        private final MqttActionListener listener;
+        private final long startNanos = System.nanoTime();
+
+        private Delivery(MqttActionListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onSuccess(IMqttToken token) {
+            long latency = System.nanoTime() - startNanos;
+            ackLatency.record(latency);
+            acknowledged(latency);
+            if (listener != null) {
+                listener.onSuccess(token);
+            }
+        }
+
+        @Override
+        public void onFailure(IMqttToken token, Throwable exception) {
+            release();
+            if (listener != null) {
+                listener.onFailure(token, exception);
+            }
+        }
+    }
+}
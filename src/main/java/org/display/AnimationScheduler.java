@@ -0,0 +1,304 @@
+package org.display;
+
+import org.common.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Plays {@link MorseTimeline}s on lights from a single thread, against absolute deadlines.
+ * <p>
+ * Every running playback sits in a queue ordered by the deadline of its next transition. The
+ * scheduler thread waits for the earliest deadline, applies the transition, records how late
+ * it was in the drift histogram, and queues the playback again for its following transition.
+ * Any number of playbacks can run at once without a thread per message, and a late transition
+ * does not delay the following ones, which stay relative to the start of the playback.
+ * <p>
+ * A playback can also drive a {@link Track}, which renders the whole timeline on its own clock
+ * from the start time of the playback, e.g. as audio. The track is told the timeline when the
+ * playback starts, and is kept fed by a task {@linkplain #repeat repeated} on the same thread,
+ * so that the light and the track stay in sync while a slow light cannot delay the track.
+ *
+ * @version 16.10.2026
+ */
+public final class AnimationScheduler implements AutoCloseable {
+
+    /**
+     * Receives the transitions of a playback, on the scheduler thread. Implementations must
+     * return quickly, e.g. by handing the state over to the Event Dispatch Thread.
+     */
+    @FunctionalInterface
+    public interface Light {
+        void set(boolean on);
+    }
+
+    /**
+     * Renders whole timelines next to the lights, on a clock of its own, e.g. the samples of an
+     * audio stream. Both methods are called with the lock of the scheduler held and must return
+     * quickly.
+     */
+    public interface Track {
+        /**
+         * Queues a timeline, to be rendered from the given time on.
+         *
+         * @param timeline   The timeline.
+         * @param startNanos The start of the playback, as a {@code System.nanoTime()} value.
+         */
+        void start(MorseTimeline timeline, long startNanos);
+
+        /**
+         * Drops the timelines being rendered and queued.
+         */
+        void stop();
+    }
+
+    /**
+     * A timeline being played on a light.
+     */
+    public final class Playback {
+        private final MorseTimeline timeline;
+        private final Light light;
+        private final Track track;
+        private final Runnable onDone;
+        private final long startNanos;
+        private int next;
+        private boolean done;
+
+        private Playback(MorseTimeline timeline, Light light, Track track, Runnable onDone, long startNanos) {
+            this.timeline = timeline;
+            this.light = light;
+            this.track = track;
+            this.onDone = onDone;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * @return The deadline of the next transition, or of the end of the playback.
+         */
+        private long deadline() {
+            return startNanos + (next < timeline.transitions() ? timeline.offsetNanos(next) : timeline.durationNanos());
+        }
+
+        /**
+         * Stops the playback. No transition is applied after this method returns, the light
+         * is left as it is and the completion action is not run.
+         */
+        public void cancel() {
+            lock.lock();
+            try {
+                if (!done) {
+                    done = true;
+                    queue.remove(this);
+                    if (track != null) {
+                        track.stop();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return {@code true} if the playback has completed or was cancelled.
+         */
+        public boolean isDone() {
+            lock.lock();
+            try {
+                return done;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Playback> queue = new PriorityQueue<>(
+            (a, b) -> Long.compare(a.deadline(), b.deadline()));
+    private final List<Periodic> periodics = new ArrayList<>();
+    private final LatencyHistogram drift;
+    private boolean closed;
+
+    /**
+     * A task run at a fixed rate, see {@link #repeat}.
+     */
+    private static final class Periodic {
+        private final Runnable task;
+        private final long periodNanos;
+        private long deadline;
+
+        private Periodic(Runnable task, long periodNanos, long deadline) {
+            this.task = task;
+            this.periodNanos = periodNanos;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Starts the scheduler thread.
+     *
+     * @param drift Receives the delay of every transition past its deadline, in nanoseconds.
+     */
+    public AnimationScheduler(LatencyHistogram drift) {
+        this.drift = drift;
+        Thread.ofPlatform().name("morse-scheduler").daemon(true).start(this::run);
+    }
+
+    /**
+     * Starts playing a timeline now.
+     *
+     * @param timeline The timeline.
+     * @param light    The light to switch.
+     * @param onDone   Run on the scheduler thread once the playback is complete, or {@code null}.
+     * @return The playback, to cancel it.
+     */
+    public Playback play(MorseTimeline timeline, Light light, Runnable onDone) {
+        return play(timeline, light, null, onDone);
+    }
+
+    /**
+     * Starts playing a timeline now, on a light and on a track.
+     *
+     * @param timeline The timeline.
+     * @param light    The light to switch.
+     * @param track    The track rendering the timeline from the same start, or {@code null}.
+     * @param onDone   Run on the scheduler thread once the playback is complete, or {@code null}.
+     * @return The playback, to cancel it.
+     */
+    public Playback play(MorseTimeline timeline, Light light, Track track, Runnable onDone) {
+        Playback playback = new Playback(timeline, light, track, onDone, System.nanoTime());
+        lock.lock();
+        try {
+            if (track != null) {
+                track.start(timeline, playback.startNanos);
+            }
+            queue.add(playback);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return playback;
+    }
+
+    /**
+     * Runs a task on the scheduler thread at a fixed rate, between the transitions, until the
+     * scheduler is closed. A late run is not made up for.
+     *
+     * @param periodNanos The period.
+     * @param task        The task, which must return quickly.
+     */
+    public void repeat(long periodNanos, Runnable task) {
+        lock.lock();
+        try {
+            periodics.add(new Periodic(task, periodNanos, System.nanoTime()));
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the scheduler thread. Running playbacks are abandoned.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            queue.clear();
+            periodics.clear();
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Playback playback;
+            Periodic periodic;
+            long deadline;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        return;
+                    }
+                    playback = queue.peek();
+                    periodic = earliestPeriodic();
+                    if (playback == null && periodic == null) {
+                        changed.awaitUninterruptibly();
+                        continue;
+                    }
+                    if (playback != null && (periodic == null || playback.deadline() - periodic.deadline <= 0)) {
+                        deadline = playback.deadline();
+                        periodic = null;
+                    } else {
+                        deadline = periodic.deadline;
+                        playback = null;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    // Woken up early when a playback with an earlier deadline is added
+                    changed.await(wait, TimeUnit.NANOSECONDS);
+                }
+                if (playback != null) {
+                    queue.poll();
+                } else {
+                    periodic.deadline = Math.max(deadline + periodic.periodNanos, System.nanoTime());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            if (playback != null) {
+                fire(playback, deadline);
+            } else {
+                periodic.task.run();
+            }
+        }
+    }
+
+    private Periodic earliestPeriodic() {
+        Periodic earliest = null;
+        for (Periodic periodic : periodics) {
+            if (earliest == null || periodic.deadline - earliest.deadline < 0) {
+                earliest = periodic;
+            }
+        }
+        return earliest;
+    }
+
+    private void fire(Playback playback, long deadline) {
+        drift.record(System.nanoTime() - deadline);
+        int index = playback.next;
+        boolean complete = index == playback.timeline.transitions();
+        lock.lock();
+        try {
+            if (playback.done) {
+                // Cancelled since it was taken from the queue
+                return;
+            }
+            if (complete) {
+                playback.done = true;
+            } else {
+                // Under the lock, so that no transition is applied once cancel() has returned
+                playback.light.set(MorseTimeline.isOn(index));
+                playback.next = index + 1;
+                queue.add(playback);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (complete && playback.onDone != null) {
+            playback.onDone.run();
+        }
+    }
+}
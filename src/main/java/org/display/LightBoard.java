@@ -0,0 +1,93 @@
+package org.display;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The lights of a {@link MorseDisplay}, one per channel, and the status of the system they
+ * show while off.
+ * <p>
+ * The display only knows this interface, so that a headless display never loads Swing nor
+ * AWT: {@link LightGrid} paints the lights in a window, {@link #headless()} only keeps the
+ * figures exported as metrics. All methods can be called from any thread.
+ *
+ * @version 16.10.2026
+ */
+public interface LightBoard {
+    /**
+     * The status of the other components, shown by the color of the lights that are off.
+     */
+    enum Status {
+        /** All the components the display depends on are online. */
+        ONLINE,
+        /** No text-to-Morse converter is online. */
+        CONVERTER_OFFLINE,
+        /** The keyboard sensor is offline. */
+        KEYBOARD_OFFLINE
+    }
+
+    /**
+     * Adds a light.
+     *
+     * @param label The name of the channel of the light.
+     * @return The light, to be played on by a {@link MorseChannel}.
+     */
+    AnimationScheduler.Light addLight(String label);
+
+    /**
+     * @return The number of lights.
+     */
+    int lights();
+
+    /**
+     * @return The number of frames painted because something changed.
+     */
+    long frames();
+
+    /**
+     * Shows the status of the system.
+     *
+     * @param status The new status.
+     */
+    void showStatus(Status status);
+
+    /**
+     * Shows the board, if it has a window. Called once, on the Event Dispatch Thread.
+     */
+    void open();
+
+    /**
+     * @return A board without a window, whose lights only count.
+     */
+    static LightBoard headless() {
+        return new LightBoard() {
+            private final AtomicInteger lights = new AtomicInteger();
+
+            @Override
+            public AnimationScheduler.Light addLight(String label) {
+                lights.incrementAndGet();
+                return on -> {
+                };
+            }
+
+            @Override
+            public int lights() {
+                return lights.get();
+            }
+
+            @Override
+            public long frames() {
+                return 0;
+            }
+
+            @Override
+            public void showStatus(Status status) {
+                // Nothing to show
+            }
+
+            @Override
+            public void open() {
+                // Nothing to open
+            }
+        };
+    }
+}
@@ -0,0 +1,241 @@
+package org.display;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A grid of lights drawn by a single component, one light per Morse channel.
+ * <p>
+ * Producers never touch Swing: lights and the status color only write their state into
+ * volatile fields and raise a dirty flag. A {@link Timer} running at the frame rate checks
+ * the flag on the Event Dispatch Thread and, only if something changed, paints the cells
+ * whose state differs from the last frame in one pass. However many lights change and however
+ * fast, the EDT receives one task per frame. A light switched on and off within a frame is
+ * still shown lit for that frame, so that dots stay visible at high speeds.
+ * <p>
+ * Lights can be added from any thread, and the grid arranges them in a square as they come.
+ * A grid with a single light fills the component, like the panel of a single-channel display.
+ *
+ * @version 16.10.2026
+ */
+public final class LightGrid extends JComponent implements LightBoard {
+    private static final long serialVersionUID = 1L;
+    private static final Color ON_COLOR = Color.ORANGE;
+    private static final Color SEPARATOR_COLOR = Color.DARK_GRAY;
+    private static final Color LABEL_COLOR = Color.LIGHT_GRAY;
+    private static final int GAP = 2;
+
+    /**
+     * A light of the grid.
+     */
+    private final class Lamp implements AnimationScheduler.Light {
+        private final String label;
+        private volatile boolean on;
+        // Set when the light is switched on, cleared by the next frame
+        private final AtomicBoolean litSinceFrame = new AtomicBoolean();
+        // The state painted by the last frame, only accessed on the EDT
+        private boolean shown;
+
+        private Lamp(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public void set(boolean on) {
+            this.on = on;
+            if (on) {
+                litSinceFrame.set(true);
+            }
+            dirty.set(true);
+        }
+    }
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    // Copied on write, so painting reads a consistent array without locking. The lights belong
+    // to the running channels, so they are not serialized with the component
+    private transient volatile Lamp[] lamps = new Lamp[0];
+    private volatile Color offColor = Color.BLACK;
+    private final Timer frameTimer;
+    // Only accessed on the EDT
+    private Color shownOffColor;
+    private int shownLamps;
+    private volatile long frames;
+
+    private LightGrid(int framesPerSecond) {
+        frameTimer = new Timer(Math.max(1, 1000 / framesPerSecond), null);
+        frameTimer.setCoalesce(true);
+    }
+
+    /**
+     * Creates an empty grid. Its frame timer runs while the grid is displayed.
+     *
+     * @param framesPerSecond The maximum number of frames painted per second.
+     * @return The grid.
+     */
+    public static LightGrid create(int framesPerSecond) {
+        LightGrid grid = new LightGrid(framesPerSecond);
+        // Registered once the grid is constructed, so that the timer never sees it half-built
+        grid.frameTimer.addActionListener(event -> grid.frame());
+        return grid;
+    }
+
+    /**
+     * Adds a light to the grid.
+     *
+     * @param label The label drawn in the corner of the light when the grid has several lights.
+     * @return The light, to be played on by a {@link MorseChannel}.
+     */
+    @Override
+    public synchronized AnimationScheduler.Light addLight(String label) {
+        Lamp[] grown = Arrays.copyOf(lamps, lamps.length + 1);
+        Lamp lamp = new Lamp(label);
+        grown[grown.length - 1] = lamp;
+        lamps = grown;
+        dirty.set(true);
+        return lamp;
+    }
+
+    @Override
+    public int lights() {
+        return lamps.length;
+    }
+
+    /**
+     * Sets the color of the lights that are off, which shows the status of the system.
+     * Can be called from any thread.
+     *
+     * @param color The new color.
+     */
+    public void setOffColor(Color color) {
+        offColor = color;
+        dirty.set(true);
+    }
+
+    @Override
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * Shows the status as the color of the lights that are off: black when all is well, red
+     * without converter and magenta without keyboard.
+     */
+    @Override
+    public void showStatus(Status status) {
+        setOffColor(switch (status) {
+            case ONLINE -> Color.BLACK;
+            case CONVERTER_OFFLINE -> Color.RED;
+            case KEYBOARD_OFFLINE -> Color.MAGENTA;
+        });
+    }
+
+    /**
+     * Shows the grid in a window of its own, closing which exits the process.
+     */
+    @Override
+    public void open() {
+        JFrame frame = new JFrame("Morse Display");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.setSize(800, 600);
+        frame.setResizable(false);
+        frame.add(this);
+        frame.setVisible(true);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        frameTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        frameTimer.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Paints the cells that changed since the last frame, if any. Runs on the EDT.
+     */
+    private void frame() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Lamp[] snapshot = lamps;
+        Color off = offColor;
+        boolean full = snapshot.length != shownLamps || !off.equals(shownOffColor);
+        Rectangle changed = null;
+        for (int i = 0; i < snapshot.length; i++) {
+            Lamp lamp = snapshot[i];
+            // A light lit since the last frame is shown lit for this frame, even if already off
+            boolean lit = lamp.litSinceFrame.getAndSet(false) | lamp.on;
+            if (lit != lamp.shown) {
+                lamp.shown = lit;
+                Rectangle cell = cell(i, snapshot.length);
+                changed = changed == null ? cell : changed.union(cell);
+            }
+            if (lit && !lamp.on) {
+                // Switch it off in the next frame
+                dirty.set(true);
+            }
+        }
+        shownLamps = snapshot.length;
+        shownOffColor = off;
+        if (full) {
+            paintImmediately(0, 0, getWidth(), getHeight());
+        } else if (changed != null) {
+            paintImmediately(changed);
+        } else {
+            return;
+        }
+        frames++;
+    }
+
+    /**
+     * @param index The index of a light.
+     * @param count The number of lights.
+     * @return The bounds of the cell of the light, without the separator.
+     */
+    private Rectangle cell(int index, int count) {
+        if (count <= 1) {
+            return new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int columns = (int) Math.ceil(Math.sqrt(count));
+        int rows = (count + columns - 1) / columns;
+        int x = index % columns * getWidth() / columns;
+        int y = index / columns * getHeight() / rows;
+        return new Rectangle(x, y, (index % columns + 1) * getWidth() / columns - x - GAP,
+                (index / columns + 1) * getHeight() / rows - y - GAP);
+    }
+
+    /**
+     * Paints the state of the last frame, within the clip of the graphics.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        Lamp[] snapshot = lamps;
+        Color off = shownOffColor != null ? shownOffColor : offColor;
+        if (snapshot.length <= 1) {
+            g.setColor(snapshot.length == 1 && snapshot[0].shown ? ON_COLOR : off);
+            g.fillRect(0, 0, getWidth(), getHeight());
+            return;
+        }
+        g.setColor(SEPARATOR_COLOR);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.setFont(g.getFont().deriveFont(10f));
+        FontMetrics font = g.getFontMetrics();
+        Rectangle clip = g.getClipBounds();
+        for (int i = 0; i < snapshot.length; i++) {
+            Rectangle cell = cell(i, snapshot.length);
+            if (clip != null && !clip.intersects(cell)) {
+                continue;
+            }
+            g.setColor(snapshot[i].shown ? ON_COLOR : off);
+            g.fillRect(cell.x, cell.y, cell.width, cell.height);
+            g.setColor(LABEL_COLOR);
+            g.drawString(snapshot[i].label, cell.x + 2, cell.y + font.getAscent());
+        }
+    }
+}
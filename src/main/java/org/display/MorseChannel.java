@@ -0,0 +1,138 @@
+package org.display;
+
+import org.common.LatencyHistogram;
+import org.common.Log;
+import org.common.Metrics;
+import org.common.Timestamps;
+import org.protocol.WireMessage;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One light of the display with the queue of messages waiting for it.
+ * <p>
+ * Messages are queued as they arrive, and whenever a playback ends the next one is taken
+ * from the {@link PlaybackQueue} and handed to the shared {@link AnimationScheduler}. The
+ * playback speed adapts to the backlog: with an empty queue a message plays at the base
+ * speed, and the speed rises linearly towards the maximum WPM as the queue fills up, see
+ * {@link PlaybackSpeed}. A channel can also be heard: its track, if any, renders every
+ * playback from the same start as its light, see {@link ToneRenderer}.
+ *
+ * @version 16.10.2026
+ */
+public final class MorseChannel {
+    private static final Log log = Log.get("MorseChannel");
+    // Shared by all channels, which overflow together
+    private static final Log.Limiter droppedLog = log.limiter(Log.Level.WARN);
+
+    private final AnimationScheduler scheduler;
+    private final AnimationScheduler.Light light;
+    private final AnimationScheduler.Track track;
+    private final PlaybackQueue queue;
+    private final PlaybackSpeed speed;
+    private AnimationScheduler.Playback playback;
+    private volatile long unitNanos;
+
+    private final LatencyHistogram queuedLatency;
+    private final LatencyHistogram animationStartLatency;
+    private final LatencyHistogram endToEndLatency;
+    private final LongAdder displayedCount;
+    private final LongAdder droppedCount;
+    private final LongAdder coalescedCount;
+
+    /**
+     * @param scheduler     The scheduler playing the animations.
+     * @param light         The light of this channel.
+     * @param track         The track of this channel, or {@code null} if it is not heard.
+     * @param queue         The queue of this channel.
+     * @param speed         The playback speed, read at the start of every playback.
+     * @param metrics       Receives the queueing and playback figures, shared by all channels.
+     */
+    public MorseChannel(AnimationScheduler scheduler, AnimationScheduler.Light light, AnimationScheduler.Track track,
+                        PlaybackQueue queue, PlaybackSpeed speed, Metrics metrics) {
+        this.scheduler = scheduler;
+        this.light = light;
+        this.track = track;
+        this.queue = queue;
+        this.speed = speed;
+        this.unitNanos = speed.unitNanos(speed.wpm(0));
+        this.queuedLatency = metrics.histogram("queued");
+        this.animationStartLatency = metrics.histogram("animationStart");
+        this.endToEndLatency = metrics.histogram("endToEnd");
+        this.displayedCount = metrics.counter("displayed");
+        this.droppedCount = metrics.counter("dropped");
+        this.coalescedCount = metrics.counter("coalesced");
+    }
+
+    /**
+     * Queues a message, and plays it at once if the light is idle.
+     *
+     * @param topic        The topic the message arrived on.
+     * @param message      The Morse message, which must not be reused by the caller.
+     * @param arrivedNanos The {@code System.nanoTime()} at which the message arrived.
+     * @param sentMicros   The time the source sent the text, see {@link Timestamps#SENT}, or -1 if unknown.
+     */
+    public synchronized void submit(String topic, WireMessage message, long arrivedNanos, long sentMicros) {
+        int dropped = queue.offer(queue.entry(topic, message, arrivedNanos, sentMicros));
+        if (dropped > 0) {
+            droppedCount.add(dropped);
+            if (droppedLog.permit()) {
+                droppedLog.log("playbackQueueFull", "topic", topic, "dropped", dropped);
+            }
+        }
+        if (playback == null) {
+            playNext();
+        }
+    }
+
+    /**
+     * Cancels the running animation, drops the waiting messages and turns the light off.
+     */
+    public synchronized void stop() {
+        int dropped = queue.clear();
+        droppedCount.add(dropped);
+        if (playback != null) {
+            playback.cancel();
+            playback = null;
+            log.info("playbackInterrupted", "dropped", dropped);
+        }
+        light.set(false);
+    }
+
+    /**
+     * @return The number of waiting messages.
+     */
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    /**
+     * @return The duration of a unit of the latest playback, in nanoseconds.
+     */
+    public long unitNanos() {
+        return unitNanos;
+    }
+
+    private synchronized void playNext() {
+        int backlog = queue.size();
+        int merged = queue.nextCount();
+        PlaybackQueue.Entry entry = queue.poll();
+        if (entry == null) {
+            playback = null;
+            return;
+        }
+        coalescedCount.add(Math.max(0, merged - 1));
+        double wpm = speed.wpm((double) backlog / queue.capacity());
+        long unit = speed.unitNanos(wpm);
+        unitNanos = unit;
+        long now = System.nanoTime();
+        playback = scheduler.play(MorseTimeline.of(entry.message(), unit, speed.gapUnitNanos(wpm)), light, track,
+                this::playNext);
+        queuedLatency.record(now - entry.arrivedNanos());
+        animationStartLatency.record(System.nanoTime() - entry.arrivedNanos());
+        if (entry.sentMicros() >= 0) {
+            endToEndLatency.record((Timestamps.nowMicros() - entry.sentMicros()) * 1_000);
+        }
+        displayedCount.increment();
+    }
+}
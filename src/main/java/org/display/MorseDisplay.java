@@ -1,12 +1,30 @@
 package org.display;
 
+import org.common.Config;
+import org.common.DuplicateFilter;
+import org.common.LatencyHistogram;
+import org.common.Log;
+import org.common.Metrics;
+import org.common.StreamTracker;
+import org.common.Timestamps;
+import org.common.Transport;
 import org.eclipse.paho.mqttv5.client.*;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
 import org.eclipse.paho.mqttv5.common.MqttException;
 import org.eclipse.paho.mqttv5.common.MqttMessage;
 import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
 
-import javax.swing.*;
-import java.awt.*;
+import javax.swing.SwingUtilities;
+import java.awt.GraphicsEnvironment;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents the "actuator" component of the distributed system.
@@ -15,9 +33,15 @@ import java.awt.*;
  * process control pipeline, where the processed data is used to effect a change.
  * <p>
  * This class addresses the challenge of integrating a network client (MQTT) with
- * a GUI framework. It correctly handles threading by performing GUI updates on the
- * Event Dispatch Thread (EDT) using {@code SwingUtilities.invokeLater}, and manages
- * the animation timing in a separate background thread to avoid freezing the UI.
+ * a GUI framework. It plays the animation from a single {@link AnimationScheduler} thread
+ * to avoid freezing the UI, and neither the animation nor the status messages post tasks
+ * to the Event Dispatch Thread (EDT): they only update the state of a {@link LightGrid},
+ * which a timer on the EDT paints once per frame when it changed. Every topic under
+ * {@code E/textInMorse/} is a channel with its own light in the grid. The chunks of a
+ * streamed text are queued as they arrive and play back to back, so a long text starts
+ * flashing before its end has even been typed.
+ * With {@code morseDisplay.audio} set, the first channels are also heard, as a sidetone or in
+ * WAV files, rendered by a {@link ToneRenderer} on the same scheduler thread.
  * It also monitors the status of upstream components and provides visual feedback
  * if one goes offline.
  *
@@ -25,154 +49,239 @@ import java.awt.*;
  * @version 20.10.2025
  */
 public class MorseDisplay implements Runnable {
-    private JPanel panel;
-    private JFrame frame;
+    // --- Settings from the file, environment and system properties, see Config ---
+    private static final Config config = Config.load();
 
-    // --- MQTT and Morse Timing Constants ---
-    private static final String server = "tcp://localhost:1883";
-    private static final String clientId = "morseDisplay";
+    // --- MQTT Constants ---
+    private static final String server = config.string("morse.server", "tcp://localhost:1883");
+    private static final String clientId = config.string("morseDisplay.clientId", "morseDisplay");
     private static final String inputTopic = "E/textInMorse";
+    private static final String channelTopics = inputTopic + "/+";
     private static final String converterStatusTopic = "S/textInMorse";
+    private static final String converterInstanceStatusTopics = converterStatusTopic + "/+";
     private static final String keyboardStatusTopic = "S/KeyboardEvent";
-    private static String lastMessageId = "";
+    private static final String statusTopic = "S/morseDisplay";
+    // Without a window, e.g. under a supervisor on a server: the lights only exist for the metrics,
+    // and neither Swing nor the AWT toolkit is loaded, which takes a good part of the startup time
+    private static final boolean headless = config.flag("morseDisplay.headless", GraphicsEnvironment.isHeadless());
+    // Status topics of the converter instances currently online, to support scaled-out converters
+    private static final Set<String> onlineConverters = ConcurrentHashMap.newKeySet();
+    // Ids of the recently displayed messages, to drop QoS 1 redeliveries
+    private static final DuplicateFilter displayedMessages = new DuplicateFilter(1024);
+    // Streams of Morse chunks being displayed, to drop redelivered chunks; only used by the callback thread
+    private static final StreamTracker displayedStreams = new StreamTracker(256, 0);
 
-    private static final int MORSE_BASE_TIME = 500; // ms
-    private static final int DOT_TIME = MORSE_BASE_TIME;
-    private static final int DASH_TIME = MORSE_BASE_TIME * 3;
-    private static final int INTRA_CHAR_TIME = MORSE_BASE_TIME; // Time between dots/dashes
-    private static final int INTER_CHAR_TIME = MORSE_BASE_TIME * 3; // Time between letters
+    // --- Latency and throughput of each stage, see Metrics for the exports ---
+    private static final Metrics metrics = Metrics.start(clientId, config);
+    private static final LatencyHistogram transitLatency = metrics.histogram("transit");
+    private static final LatencyHistogram parseLatency = metrics.histogram("parse");
+    private static final LongAdder receivedCount = metrics.counter("received");
+    private static final LongAdder missingChunkCount = metrics.counter("missingChunks");
+    private static final LatencyHistogram driftLatency = metrics.histogram("drift");
+    // The display can take its Morse at QoS 0 (transport.qos.morse), a lost message being shown late anyway
+    private static final Transport transport = new Transport(config, metrics);
+    private static final int qos = transport.qos(Transport.Traffic.MORSE);
 
-    // --- State Management for the Animation ---
-    private String currentMorseMessage;
-    private int morseIndex;
-    private Timer morseTimer;
+    // --- Logging, the per-message events being rate-limited, see Log ---
+    private static final Log log = Log.get("MorseDisplay");
+    private static final Log.Limiter messageLog = log.limiter(Log.Level.INFO);
+    private static final Log.Limiter ignoredLog = log.limiter(Log.Level.WARN);
 
-    // --- Separate thread to ensure accurate timing
-    private Thread morseAnimatorThread;
+    // --- Playback speed, live settings: see PlaybackSpeed ---
+    // The base speed of 2.4 WPM makes a unit, the duration of a dot, of 500 ms, see MorseTimeline
+    private static final Config.Live<Double> baseWpm = config.live("morseDisplay.wpm", 2.4, Double::parseDouble);
+    // Speed reached when the queue is full
+    private static final Config.Live<Double> maxWpm = config.live("morseDisplay.maxWpm", 12.0, Double::parseDouble);
+    // Character speed of the Farnsworth timing, 0 to disable it
+    private static final Config.Live<Double> farnsworthWpm =
+            config.live("morseDisplay.farnsworthWpm", 0.0, Double::parseDouble);
+    private static final PlaybackSpeed speed = new PlaybackSpeed(baseWpm::get, maxWpm::get, farnsworthWpm::get);
+
+    // --- Playback of the messages, see MorseChannel ---
+    private static final PlaybackQueue.Policy queuePolicy =
+            config.choice("morseDisplay.queuePolicy", PlaybackQueue.Policy.FIFO);
+    private static final int queueCapacity = config.integer("morseDisplay.queueCapacity", 32);
+    // Topic priorities for the PRIORITY policy, as topic=priority pairs separated by commas
+    private static final Map<String, Integer> topicPriorities = parsePriorities(config.string("morseDisplay.priorities", ""));
+    // One light per topic; when false, all topics share a single light and queue
+    private static final boolean multiChannel = config.flag("morseDisplay.multiChannel", true);
+    private static final int maxChannels = config.integer("morseDisplay.maxChannels", 256);
+
+    // --- Audio of the channels, see ToneRenderer ---
+    private static final ToneRenderer.Output audioOutput =
+            config.choice("morseDisplay.audio", ToneRenderer.Output.NONE);
+    // Channels heard, the first ones to receive a message
+    private static final int audioTracks = config.integer("morseDisplay.audioTracks", 1);
+    private static final int sampleRate = config.integer("morseDisplay.sampleRate", 16_000);
+    private static final double toneHz = config.decimal("morseDisplay.toneHz", 600.0);
+    private static final long audioLeadNanos =
+            TimeUnit.MILLISECONDS.toNanos(config.longValue("morseDisplay.audioLeadMillis", 40));
+    private static final String wavDir = config.string("morseDisplay.wavDir", ".");
+    // Longest silence written to a WAV file between two messages
+    private static final long wavMaxGapNanos =
+            TimeUnit.MILLISECONDS.toNanos(config.longValue("morseDisplay.wavMaxGapMillis", 2_000));
+
+    // --- Single thread playing the animations of all channels against absolute deadlines
+    private final AnimationScheduler scheduler = new AnimationScheduler(driftLatency);
+    private final LightBoard board = headless ? LightBoard.headless()
+            : LightGrid.create(config.integer("morseDisplay.frameRate", 60));
+    private final ToneRenderer audio = audioOutput == ToneRenderer.Output.NONE ? null : openAudio(scheduler);
+    private final Map<String, MorseChannel> channels = new ConcurrentHashMap<>();
 
     /**
-     * Initializes the main JFrame for the display.
+     * Shows the status of the other components, as the color of the lights while they are
+     * off. Can be called from any thread.
+     *
+     * @param status The new status.
      */
-    private void defineFrame() {
-        frame = new JFrame("Morse Display");
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(800, 600);
-        frame.setResizable(false);
-        frame.add(panel());
-        frame.setVisible(true);
+    public void showStatus(LightBoard.Status status) {
+        board.showStatus(status);
     }
 
     /**
-     * Initializes the JPanel that will act as the flashing light.
+     * Looks up the channel of a topic, creating it and its light on its first message.
      *
-     * @return The configured JPanel.
+     * @param topic The topic a Morse message arrived on.
+     * @return The channel, or {@code null} if the maximum number of channels is reached.
      */
-    private JPanel panel() {
-        panel = new JPanel();
-        panel.setBackground(Color.BLACK);
-        return panel;
+    private MorseChannel channel(String topic) {
+        String key = multiChannel ? topic : inputTopic;
+        MorseChannel channel = channels.get(key);
+        if (channel != null || channels.size() >= maxChannels) {
+            return channel;
+        }
+        return channels.computeIfAbsent(key, name -> new MorseChannel(scheduler, board.addLight(name),
+                audio == null ? null : audio.addTrack(name),
+                new PlaybackQueue(queuePolicy, queueCapacity, t -> topicPriorities.getOrDefault(t, 0)),
+                speed, metrics));
     }
 
     /**
-     * Safely changes the background color of the panel. This method must be
-     * called on the Event Dispatch Thread.
+     * Starts rendering the channels as tones on the scheduler of the lights, with the tones
+     * synthesized once per speed, see {@link ToneCache}. The WAV files are completed on exit.
      *
-     * @param newColor The new color for the panel.
+     * @param scheduler The scheduler of the lights.
+     * @return The renderer.
+     */
+    private static ToneRenderer openAudio(AnimationScheduler scheduler) {
+        ToneCache tones = new ToneCache(sampleRate, toneHz, TimeUnit.MILLISECONDS.toNanos(5), 64,
+                metrics.counter("tonesSynthesized"));
+        long periodNanos = audioLeadNanos / 4;
+        ToneRenderer.SinkFactory sinks = audioOutput == ToneRenderer.Output.WAV
+                ? label -> new WavFileSink(Path.of(wavDir, label.replaceAll("[^A-Za-z0-9]+", "_") + ".wav"), sampleRate)
+                : label -> new SidetoneSink(sampleRate, ToneRenderer.lineBufferBytes(tones, audioLeadNanos));
+        long maxGapNanos = audioOutput == ToneRenderer.Output.WAV ? wavMaxGapNanos : Long.MAX_VALUE;
+        ToneRenderer renderer = new ToneRenderer(scheduler, tones, sinks, audioTracks, audioLeadNanos, periodNanos,
+                maxGapNanos, metrics);
+        Runtime.getRuntime().addShutdownHook(new Thread(renderer::close));
+        return renderer;
+    }
+
+    /**
+     * Checks whether a Morse message or chunk has already been received. The chunks of a
+     * stream share its id, so they are followed by their sequence numbers instead.
+     *
+     * @param morse The received message.
+     * @return {@code true} if the message must be dropped.
+     */
+    private static boolean isDuplicate(WireMessage morse) {
+        if (!morse.isChunk()) {
+            return displayedMessages.isDuplicate(morse.idMostSignificantBits(), morse.idLeastSignificantBits());
+        }
+        StreamTracker.Stream stream = displayedStreams.accept(morse.idMostSignificantBits(),
+                morse.idLeastSignificantBits(), morse.sequence(), morse.isLastChunk());
+        if (stream == null) {
+            return true;
+        }
+        missingChunkCount.add(stream.missed());
+        return false;
+    }
+
+    /**
+     * Stops the animations of all channels, e.g. when an upstream component goes offline.
+     */
+    private void stopChannels() {
+        for (MorseChannel channel : channels.values()) {
+            channel.stop();
+        }
+    }
+
+    /**
+     * @return The number of messages waiting in all channels.
+     */
+    private long queuedMessages() {
+        long queued = 0;
+        for (MorseChannel channel : channels.values()) {
+            queued += channel.queued();
+        }
+        return queued;
+    }
+
+    /**
+     * @return The shortest unit duration of the latest playbacks, i.e. of the fastest channel.
      */
-    public void changePanelColor(Color newColor) {
-        panel.setBackground(newColor);
-        panel.repaint();
+    private long fastestUnitNanos() {
+        long unit = speed.unitNanos(speed.wpm(0));
+        for (MorseChannel channel : channels.values()) {
+            unit = Math.min(unit, channel.unitNanos());
+        }
+        return unit;
     }
 
     /**
      * The run method for the Runnable interface. Called by SwingUtilities.invokeLater
-     * to set up the GUI on the Event Dispatch Thread.
+     * to open the window of the lights on the Event Dispatch Thread.
      */
     @Override
     public void run() {
-        defineFrame();
+        board.open();
     }
 
     /**
-     * Displays a Morse code message by simulating a flashing light in a background thread.
-     * This method ensures accurate timing using {@code Thread.sleep()} without blocking the GUI.
-     * If a new message arrives while a previous one is being displayed, the old
-     * animation thread is interrupted and a new one is started.
+     * Parses topic priorities given as {@code topic=priority} pairs separated by commas.
      *
-     * @param message The Morse code string to be displayed (e.g., "... --- ...").
+     * @param priorities The pairs, possibly empty.
+     * @return The priority of each listed topic.
      */
-    private void displayMorseMessage(String message) {
-        // If an animation is already running from a previous message, interrupt it.
-        if (morseAnimatorThread != null && morseAnimatorThread.isAlive()) {
-            morseAnimatorThread.interrupt();
-        }
-
-        // Create and start a new thread for the new message animation.
-        morseAnimatorThread = new Thread(() -> {
-            try {
-                // Loop through each character of the morse string
-                for (char signal : message.toCharArray()) {
-                    // Check if the thread has been interrupted (e.g., by a new message arriving)
-                    if (Thread.currentThread().isInterrupted()) {
-                        throw new InterruptedException();
-                    }
-
-                    switch (signal) {
-                        case '.':
-                            // Turn light ON
-                            SwingUtilities.invokeLater(() -> changePanelColor(Color.ORANGE));
-                            Thread.sleep(DOT_TIME);
-
-                            // Turn light OFF
-                            SwingUtilities.invokeLater(() -> changePanelColor(Color.BLACK));
-                            Thread.sleep(INTRA_CHAR_TIME); // Gap between signals in a letter
-                            break;
-
-                        case '-':
-                            // Turn light ON
-                            SwingUtilities.invokeLater(() -> changePanelColor(Color.ORANGE));
-                            Thread.sleep(DASH_TIME);
-
-                            // Turn light OFF
-                            SwingUtilities.invokeLater(() -> changePanelColor(Color.BLACK));
-                            Thread.sleep(INTRA_CHAR_TIME); // Gap between signals in a letter
-                            break;
-
-                        case ' ':
-                            // A space between letters requires an INTER_CHAR_TIME pause.
-                            // We already paused for INTRA_CHAR_TIME after the last signal,
-                            // so we only need to wait for the remaining time.
-                            Thread.sleep(INTER_CHAR_TIME - INTRA_CHAR_TIME);
-                            break;
-                    }
-                }
-            } catch (InterruptedException e) {
-                // This happens when a new message arrives and interrupts the current animation.
-                // We turn the panel black to clean up the state.
-                System.out.println("Morse animation interrupted.");
-                SwingUtilities.invokeLater(() -> changePanelColor(Color.BLACK));
-                // Restore the interrupted status
-                Thread.currentThread().interrupt();
+    private static Map<String, Integer> parsePriorities(String priorities) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String pair : priorities.split(",")) {
+            int separator = pair.lastIndexOf('=');
+            if (separator > 0) {
+                parsed.put(pair.substring(0, separator).trim(), Integer.parseInt(pair.substring(separator + 1).trim()));
             }
-        });
-        morseAnimatorThread.start();
+        }
+        return parsed;
     }
 
     /**
      * The main entry point for the MorseDisplay process.
      * It initializes the GUI on the Event Dispatch Thread and sets up the MQTT client
-     * to receive and process Morse code and status messages.
+     * to receive and process Morse code and status messages. Once connected, it reports
+     * itself "Online" on {@code S/morseDisplay}, with an "Offline" will, like the other
+     * components.
      *
      * @throws MqttException if there is an error connecting to the broker.
      */
     static void main() throws MqttException {
+        Log.configure(config, metrics);
         MorseDisplay morseDisplay = new MorseDisplay();
-        SwingUtilities.invokeLater(morseDisplay);
+        metrics.gauge("channels", morseDisplay.board::lights);
+        metrics.gauge("frames", morseDisplay.board::frames);
+        metrics.gauge("queueDepth", morseDisplay::queuedMessages);
+        metrics.gauge("unitMillis", () -> TimeUnit.NANOSECONDS.toMillis(morseDisplay.fastestUnitNanos()));
+        if (!headless) {
+            SwingUtilities.invokeLater(morseDisplay);
+        }
 
-        MqttClient client = new MqttClient(server, clientId);
-        MqttConnectionOptions options = new MqttConnectionOptions();
-        options.setCleanStart(true);
-        options.setAutomaticReconnect(true);
+        // In memory: a clean start discards the session anyway, and the lock of a file store left by
+        // a killed process would delay its restart
+        MqttClient client = new MqttClient(server, clientId, new MemoryPersistence());
+        MqttConnectionOptions options = transport.connectionOptions();
+        MqttMessage willMessage = new MqttMessage("Offline".getBytes());
+        willMessage.setQos(1);
+        willMessage.setRetained(true);
+        options.setWill(statusTopic, willMessage);
 
         client.setCallback(new MqttCallback() {
             @Override
@@ -186,36 +295,67 @@ public class MorseDisplay implements Runnable {
             @Override
             public void messageArrived(String topic, MqttMessage message) throws Exception {
                 // This method is now very clean and non-blocking!
-                System.out.println("Message arrived. Topic: " + topic + " Message: " + new String(message.getPayload()));
-                String payload = new String(message.getPayload());
-                if (topic.equals(inputTopic)) {
-                    int start = payload.indexOf("msg: ") + 5;
-                    int end = payload.indexOf(" id:");
-                    String messageMorse = payload.substring(start, end).trim();
-                    String messageId = payload.substring(end).trim();
-
-                    if (!lastMessageId.equals(messageId)) {
-                        lastMessageId = messageId;
-                        System.out.println("Displaying Morse: " + messageMorse);
-
-                        // Safely start the animation on the EDT
-                        SwingUtilities.invokeLater(() -> morseDisplay.displayMorseMessage(messageMorse));
+                if (topic.equals(inputTopic) || topic.startsWith(inputTopic + "/")) {
+                    long arrived = System.nanoTime();
+                    receivedCount.increment();
+                    long convertedMicros = Timestamps.read(message, Timestamps.CONVERTED);
+                    if (convertedMicros >= 0) {
+                        transitLatency.record((Timestamps.nowMicros() - convertedMicros) * 1_000);
                     }
-                } else if (topic.equals(converterStatusTopic)) {
-                    if (payload.equals("Offline")) {
-                        morseDisplay.morseAnimatorThread.interrupt();
-                        SwingUtilities.invokeLater(() -> morseDisplay.changePanelColor(Color.RED));
+                    WireMessage morse = new WireMessage();
+                    if (!morse.wrap(message.getPayload()) || !WireFormat.isMorse(morse.type())) {
+                        if (ignoredLog.permit()) {
+                            ignoredLog.log("malformedMessage", "topic", topic, null, null);
+                        }
+                        return;
+                    }
+                    parseLatency.record(System.nanoTime() - arrived);
+                    if (!isDuplicate(morse)) {
+                        MorseChannel channel = morseDisplay.channel(topic);
+                        if (channel == null) {
+                            if (ignoredLog.permit()) {
+                                ignoredLog.log("tooManyChannels", "topic", topic, null, null);
+                            }
+                            return;
+                        }
+                        if (messageLog.permit()) {
+                            messageLog.log("displaying", "topic", topic, "message", morse);
+                        }
+                        channel.submit(topic, morse, arrived, Timestamps.read(message, Timestamps.SENT));
+                    }
+                    return;
+                }
+                if (topic.equals(metrics.requestTopic())) {
+                    client.publish(metrics.topic(), metrics.snapshotMessage());
+                    return;
+                }
+                if (topic.equals(Config.topic(clientId)) || topic.equals(Config.broadcastTopic())) {
+                    config.apply(message.getPayload());
+                    return;
+                }
+                String payload = new String(message.getPayload());
+                log.info("statusChanged", "topic", topic, "status", payload);
+                if (topic.startsWith(converterStatusTopic)) {
+                    // The display only goes red once the last converter instance is offline;
+                    // an instance that left its group clears its status, which arrives empty
+                    if (payload.equals("Offline") || payload.isEmpty()) {
+                        onlineConverters.remove(topic);
+                        if (onlineConverters.isEmpty()) {
+                            morseDisplay.stopChannels();
+                            morseDisplay.showStatus(LightBoard.Status.CONVERTER_OFFLINE);
+                        }
                     }
                     if (payload.equals("Online")) {
-                        SwingUtilities.invokeLater(() -> morseDisplay.changePanelColor(Color.BLACK));
+                        onlineConverters.add(topic);
+                        morseDisplay.showStatus(LightBoard.Status.ONLINE);
                     }
                 } else if (topic.equals(keyboardStatusTopic)) {
                     if (payload.equals("Offline")) {
-                        morseDisplay.morseAnimatorThread.interrupt();
-                        SwingUtilities.invokeLater(() -> morseDisplay.changePanelColor(Color.MAGENTA));
+                        morseDisplay.stopChannels();
+                        morseDisplay.showStatus(LightBoard.Status.KEYBOARD_OFFLINE);
                     }
                     if (payload.equals("Online")) {
-                        SwingUtilities.invokeLater(() -> morseDisplay.changePanelColor(Color.BLACK));
+                        morseDisplay.showStatus(LightBoard.Status.ONLINE);
                     }
                 }
             }
@@ -226,11 +366,17 @@ public class MorseDisplay implements Runnable {
 
             @Override
             public void connectComplete(boolean b, String s) {
-                System.out.println("Connected to the server.");
+                log.info("connected", "uri", s);
+                metrics.exportJmx();
                 try {
-                    client.subscribe(inputTopic, 1);
+                    client.subscribe(inputTopic, qos);
+                    client.subscribe(channelTopics, qos);
                     client.subscribe(keyboardStatusTopic, 1);
                     client.subscribe(converterStatusTopic, 1);
+                    client.subscribe(converterInstanceStatusTopics, 1);
+                    client.subscribe(metrics.requestTopic(), 0);
+                    client.subscribe(Config.topic(clientId), 1);
+                    client.subscribe(Config.broadcastTopic(), 1);
                 } catch (MqttException e) {
                     throw new RuntimeException(e);
                 }
@@ -241,5 +387,7 @@ public class MorseDisplay implements Runnable {
             }
         });
         client.connect(options);
+        client.publish(statusTopic, "Online".getBytes(), 1, true);
+        log.info("statusPublished", "topic", statusTopic, "status", "Online");
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package org.display;
+
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.util.Arrays;
+
+/**
+ * The on/off transitions of the light for a Morse message, computed in advance as offsets
+ * from the start of the playback.
+ * <p>
+ * Each dot or dash turns the light on and then off, so transitions alternate: the even ones
+ * switch the light on, the odd ones off. The timing follows the standard proportions in
+ * units: a dot is 1 unit on, a dash 3, the signals of a letter are separated by 1 unit off,
+ * letters by 3 and words by 7. With Farnsworth timing, the gaps between letters and words
+ * are counted in a longer unit of their own. Playing the transitions against their absolute offsets, rather
+ * than sleeping for each duration in turn, keeps errors from adding up over long messages.
+ *
+ * @version 16.10.2026
+ */
+public final class MorseTimeline {
+    private static final int DOT_UNITS = 1;
+    private static final int DASH_UNITS = 3;
+    private static final int INTRA_CHAR_UNITS = 1;
+    private static final int INTER_CHAR_UNITS = 3;
+    private static final int INTER_WORD_UNITS = 7;
+
+    private final long[] offsets;
+    private final int count;
+    private final long duration;
+
+    private MorseTimeline(long[] offsets, int count, long duration) {
+        this.offsets = offsets;
+        this.count = count;
+        this.duration = duration;
+    }
+
+    /**
+     * Computes the timeline of a Morse message.
+     *
+     * @param message   A {@link WireFormat#TYPE_MORSE} message or {@link WireFormat#TYPE_MORSE_CHUNK} chunk.
+     * @param unitNanos The duration of a unit, i.e. of a dot, in nanoseconds.
+     * @return The timeline of the message.
+     */
+    public static MorseTimeline of(WireMessage message, long unitNanos) {
+        return of(message, unitNanos, unitNanos);
+    }
+
+    /**
+     * Computes the timeline of a Morse message with Farnsworth timing.
+     *
+     * @param message      A {@link WireFormat#TYPE_MORSE} message or {@link WireFormat#TYPE_MORSE_CHUNK} chunk.
+     * @param unitNanos    The duration of a unit of the signals and of the gaps within letters, in nanoseconds.
+     * @param gapUnitNanos The duration of a unit of the gaps between letters and words, in nanoseconds.
+     * @return The timeline of the message.
+     */
+    public static MorseTimeline of(WireMessage message, long unitNanos, long gapUnitNanos) {
+        int symbols = message.bodyLength();
+        long[] offsets = new long[2 * symbols];
+        int count = 0;
+        long time = 0;
+        for (int i = 0; i < symbols; i++) {
+            switch (message.symbolAt(i)) {
+                case WireFormat.SYMBOL_DOT, WireFormat.SYMBOL_DASH -> {
+                    offsets[count++] = time;
+                    time += (message.symbolAt(i) == WireFormat.SYMBOL_DOT ? DOT_UNITS : DASH_UNITS) * unitNanos;
+                    offsets[count++] = time;
+                    // Gap between the signals of a letter
+                    time += INTRA_CHAR_UNITS * unitNanos;
+                }
+                // The gap after the last signal has already elapsed, only wait for the rest
+                case WireFormat.SYMBOL_LETTER_GAP -> time += INTER_CHAR_UNITS * gapUnitNanos - INTRA_CHAR_UNITS * unitNanos;
+                case WireFormat.SYMBOL_WORD_GAP -> time += INTER_WORD_UNITS * gapUnitNanos - INTRA_CHAR_UNITS * unitNanos;
+                default -> {
+                    // Symbols are 2 bits wide, all values are handled above
+                }
+            }
+        }
+        return new MorseTimeline(offsets, count, time);
+    }
+
+    /**
+     * @return The number of transitions.
+     */
+    public int transitions() {
+        return count;
+    }
+
+    /**
+     * @param index The index of a transition.
+     * @return The time of the transition, in nanoseconds from the start of the playback.
+     */
+    public long offsetNanos(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @param index The index of a transition.
+     * @return {@code true} if the transition switches the light on, {@code false} if off.
+     */
+    public static boolean isOn(int index) {
+        return (index & 1) == 0;
+    }
+
+    /**
+     * @return The duration of the whole playback, including the gap after the last signal.
+     */
+    public long durationNanos() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return "MorseTimeline" + Arrays.toString(Arrays.copyOf(offsets, count));
+    }
+}
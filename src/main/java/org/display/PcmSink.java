@@ -0,0 +1,38 @@
+package org.display;
+
+import java.io.IOException;
+
+/**
+ * Where a {@link ToneRenderer} writes the samples of a channel: 16-bit signed little-endian
+ * mono PCM at the sample rate of the renderer.
+ * <p>
+ * {@link WavFileSink} writes them to a file and needs neither a sound card nor the Java Sound
+ * classes, {@link SidetoneSink} plays them. The renderer only writes what {@link #available()}
+ * allows, so that a sink never blocks the scheduler thread. Sinks are used by that thread only.
+ *
+ * @version 16.10.2026
+ */
+interface PcmSink extends AutoCloseable {
+    /**
+     * @return The number of bytes that can be written without blocking.
+     */
+    int available();
+
+    /**
+     * Writes samples. The bytes are not kept after the call returns.
+     *
+     * @param samples The buffer holding the samples.
+     * @param offset  The offset of the first byte to write.
+     * @param length  The number of bytes to write, a whole number of samples.
+     * @throws IOException if the samples cannot be written.
+     */
+    void write(byte[] samples, int offset, int length) throws IOException;
+
+    /**
+     * Writes out what is buffered and releases the sink.
+     *
+     * @throws IOException if the end of the stream cannot be written.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,222 @@
+package org.display;
+
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.util.ArrayDeque;
+import java.util.function.ToIntFunction;
+
+/**
+ * The bounded queue of Morse messages waiting to be displayed, with the policy deciding
+ * which message plays next and which ones are dropped. Not thread-safe: it is guarded by the
+ * {@link MorseChannel} owning it.
+ *
+ * @version 16.10.2026
+ */
+public final class PlaybackQueue {
+
+    /**
+     * How queued messages are ordered, dropped and merged.
+     */
+    public enum Policy {
+        /** Messages play in arrival order; when the queue is full, new messages are dropped. */
+        FIFO,
+        /** Only the newest message waits: a new message replaces the queued one. */
+        LATEST_WINS,
+        /**
+         * Messages of higher priority topics play first, in arrival order within a priority;
+         * when the queue is full, the newest message of the lowest priority is dropped.
+         */
+        PRIORITY,
+        /**
+         * Like {@link #FIFO}, but all the messages queued when a playback ends are played
+         * as a single message, separated by word gaps.
+         */
+        COALESCE
+    }
+
+    /**
+     * A message waiting to be displayed.
+     *
+     * @param topic         The topic the message arrived on.
+     * @param message       The Morse message, owned by the queue.
+     * @param arrivedNanos  The {@code System.nanoTime()} at which the message arrived.
+     * @param sentMicros    The time the source sent the text, or -1 if unknown.
+     * @param priority      The priority of the topic, higher first.
+     */
+    public record Entry(String topic, WireMessage message, long arrivedNanos, long sentMicros, int priority) {
+    }
+
+    private final Policy policy;
+    private final int capacity;
+    private final ToIntFunction<String> priorityOf;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+
+    /**
+     * @param policy     The queueing policy.
+     * @param capacity   The maximum number of waiting messages.
+     * @param priorityOf Gives the priority of a topic, only used by {@link Policy#PRIORITY}.
+     */
+    public PlaybackQueue(Policy policy, int capacity, ToIntFunction<String> priorityOf) {
+        this.policy = policy;
+        this.capacity = Math.max(1, capacity);
+        this.priorityOf = priorityOf;
+    }
+
+    /**
+     * @param topic        The topic the message arrived on.
+     * @param message      The Morse message, which must not be reused by the caller.
+     * @param arrivedNanos The {@code System.nanoTime()} at which the message arrived.
+     * @param sentMicros   The time the source sent the text, or -1 if unknown.
+     * @return A new entry for {@link #offer}, with the priority of its topic.
+     */
+    public Entry entry(String topic, WireMessage message, long arrivedNanos, long sentMicros) {
+        return new Entry(topic, message, arrivedNanos, sentMicros,
+                policy == Policy.PRIORITY ? priorityOf.applyAsInt(topic) : 0);
+    }
+
+    /**
+     * Queues a message, dropping a message if the queue is full.
+     *
+     * @param entry The message.
+     * @return The number of dropped messages, possibly the offered one.
+     */
+    public int offer(Entry entry) {
+        switch (policy) {
+            case LATEST_WINS -> {
+                int dropped = entries.size();
+                entries.clear();
+                entries.add(entry);
+                return dropped;
+            }
+            case PRIORITY -> {
+                if (entries.size() < capacity) {
+                    entries.add(entry);
+                    return 0;
+                }
+                // The newest of the lowest priority, the offered message included
+                Entry lowest = null;
+                for (Entry queued : entries) {
+                    if (lowest == null || queued.priority() <= lowest.priority()) {
+                        lowest = queued;
+                    }
+                }
+                if (entry.priority() > lowest.priority()) {
+                    entries.removeLastOccurrence(lowest);
+                    entries.add(entry);
+                }
+                return 1;
+            }
+            default -> {
+                if (entries.size() >= capacity) {
+                    return 1;
+                }
+                entries.add(entry);
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return The number of messages the next call to {@link #poll()} merges into one, which
+     * is 1 unless the policy is {@link Policy#COALESCE}, or 0 if the queue is empty.
+     */
+    public int nextCount() {
+        return entries.isEmpty() ? 0 : policy == Policy.COALESCE ? entries.size() : 1;
+    }
+
+    /**
+     * @return The next message to display, or {@code null} if the queue is empty.
+     */
+    public Entry poll() {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        if (policy == Policy.PRIORITY) {
+            Entry highest = null;
+            for (Entry queued : entries) {
+                if (highest == null || queued.priority() > highest.priority()) {
+                    highest = queued;
+                }
+            }
+            entries.removeFirstOccurrence(highest);
+            return highest;
+        }
+        if (policy == Policy.COALESCE && entries.size() > 1) {
+            return coalesce();
+        }
+        return entries.poll();
+    }
+
+    /**
+     * @return The number of waiting messages.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The maximum number of waiting messages.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Drops all waiting messages.
+     *
+     * @return The number of dropped messages.
+     */
+    public int clear() {
+        int dropped = entries.size();
+        entries.clear();
+        return dropped;
+    }
+
+    /**
+     * Merges all waiting messages into one, with a word gap between two messages, except
+     * between consecutive chunks of a stream, which already start with their gap. The result
+     * keeps the id, topic and timestamps of the oldest message.
+     */
+    private Entry coalesce() {
+        Entry first = entries.peek();
+        int symbols = 0;
+        WireMessage previous = null;
+        for (Entry queued : entries) {
+            WireMessage message = queued.message();
+            if (previous != null && !continues(previous, message)) {
+                symbols++;
+            }
+            symbols += message.bodyLength();
+            previous = message;
+        }
+        byte[] buffer = new byte[WireFormat.HEADER_LENGTH + WireFormat.packedLength(symbols)];
+        int bodyOffset = WireFormat.writeHeader(buffer, 0, WireFormat.TYPE_MORSE,
+                first.message().idMostSignificantBits(), first.message().idLeastSignificantBits(), symbols);
+        int index = 0;
+        previous = null;
+        for (Entry queued : entries) {
+            WireMessage message = queued.message();
+            if (previous != null && !continues(previous, message)) {
+                WireFormat.putSymbol(buffer, bodyOffset, index++, WireFormat.SYMBOL_WORD_GAP);
+            }
+            for (int i = 0, count = message.bodyLength(); i < count; i++) {
+                WireFormat.putSymbol(buffer, bodyOffset, index++, message.symbolAt(i));
+            }
+            previous = message;
+        }
+        entries.clear();
+        WireMessage merged = new WireMessage();
+        merged.wrap(buffer);
+        return new Entry(first.topic(), merged, first.arrivedNanos(), first.sentMicros(), first.priority());
+    }
+
+    /**
+     * @return {@code true} if {@code next} is the chunk following {@code previous} in the same stream.
+     */
+    private static boolean continues(WireMessage previous, WireMessage next) {
+        return previous.isChunk() && next.isChunk() && next.sequence() == previous.sequence() + 1
+                && next.idMostSignificantBits() == previous.idMostSignificantBits()
+                && next.idLeastSignificantBits() == previous.idLeastSignificantBits();
+    }
+}
@@ -0,0 +1,70 @@
+package org.display;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * The playback speed of the display, shared by all channels and read at the start of every
+ * playback, so that a change of the settings applies from the next message on.
+ * <p>
+ * Speeds follow the PARIS convention, a unit lasting 1200 ms divided by the WPM. The speed
+ * rises linearly from the base speed with an empty queue to the maximum speed with a full
+ * queue. With a Farnsworth character speed above the current speed, letters are keyed at
+ * the character speed and only the gaps between letters and words are stretched, so that
+ * the overall speed is unchanged: the usual way to learn to recognize letters by their sound
+ * or rhythm rather than by counting dots.
+ *
+ * @version 16.10.2026
+ */
+public final class PlaybackSpeed {
+    private static final double PARIS_UNIT_NANOS = 1_200_000_000.0;
+    // Farnsworth timing (ARRL): the word PARIS spends 19 of its 50 units between letters and words
+    private static final double SPACING_UNITS_PER_WORD = 19;
+
+    private final DoubleSupplier baseWpm;
+    private final DoubleSupplier maxWpm;
+    private final DoubleSupplier farnsworthWpm;
+
+    /**
+     * @param baseWpm       The speed with an empty queue, in words per minute.
+     * @param maxWpm        The speed with a full queue; at most the base speed to disable the adaptation.
+     * @param farnsworthWpm The character speed; at most the current speed to disable Farnsworth timing.
+     */
+    public PlaybackSpeed(DoubleSupplier baseWpm, DoubleSupplier maxWpm, DoubleSupplier farnsworthWpm) {
+        this.baseWpm = baseWpm;
+        this.maxWpm = maxWpm;
+        this.farnsworthWpm = farnsworthWpm;
+    }
+
+    /**
+     * @param load The filling of the queue, from 0 (empty) to 1 (full).
+     * @return The overall speed at that load, in words per minute.
+     */
+    public double wpm(double load) {
+        double base = Math.max(0.1, baseWpm.getAsDouble());
+        double max = maxWpm.getAsDouble();
+        return max <= base ? base : base + (max - base) * Math.clamp(load, 0.0, 1.0);
+    }
+
+    /**
+     * @param wpm An overall speed.
+     * @return The duration of a unit of the signals at that speed, in nanoseconds.
+     */
+    public long unitNanos(double wpm) {
+        return (long) (PARIS_UNIT_NANOS / Math.max(wpm, farnsworthWpm.getAsDouble()));
+    }
+
+    /**
+     * @param wpm An overall speed.
+     * @return The duration of a unit of the gaps between letters and words at that speed, in
+     * nanoseconds; longer than {@link #unitNanos(double)} with Farnsworth timing.
+     */
+    public long gapUnitNanos(double wpm) {
+        double characterWpm = farnsworthWpm.getAsDouble();
+        if (characterWpm <= wpm) {
+            return (long) (PARIS_UNIT_NANOS / wpm);
+        }
+        // Time per word left for the spacing once the letters are keyed at the character speed
+        double spacingSeconds = (60 * characterWpm - 37.2 * wpm) / (wpm * characterWpm);
+        return (long) (spacingSeconds / SPACING_UNITS_PER_WORD * 1e9);
+    }
+}
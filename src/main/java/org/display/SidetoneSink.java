@@ -0,0 +1,54 @@
+package org.display;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+
+/**
+ * A {@link PcmSink} playing the samples on the default audio output, as the sidetone of a key.
+ * <p>
+ * The line buffers about twice the lead of the renderer, which keeps it fed between two runs
+ * of the renderer on the scheduler thread. The Java Sound classes are only loaded when this
+ * sink is used.
+ *
+ * @version 16.10.2026
+ */
+final class SidetoneSink implements PcmSink {
+    private final SourceDataLine line;
+
+    /**
+     * Opens and starts the line.
+     *
+     * @param sampleRate  The sample rate, in Hz.
+     * @param bufferBytes The size of the buffer of the line.
+     * @throws IOException if no line with this format is available.
+     */
+    SidetoneSink(int sampleRate, int bufferBytes) throws IOException {
+        AudioFormat format = new AudioFormat(sampleRate, 16, 1, true, false);
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, bufferBytes);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            throw new IOException("No audio output for " + format + ": " + e.getMessage(), e);
+        }
+        line.start();
+    }
+
+    @Override
+    public int available() {
+        return line.available();
+    }
+
+    @Override
+    public void write(byte[] samples, int offset, int length) {
+        line.write(samples, offset, length);
+    }
+
+    @Override
+    public void close() {
+        line.drain();
+        line.close();
+    }
+}
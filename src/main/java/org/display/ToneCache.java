@@ -0,0 +1,103 @@
+package org.display;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The tone and silence samples of a {@link ToneRenderer}, synthesized once and then only read.
+ * <p>
+ * Samples are 16-bit signed little-endian mono PCM. A tone is a sine at a fixed frequency
+ * whose start and end are shaped by a raised cosine ramp, so that the sidetone does not click.
+ * The tones are cached by their length in samples: at a given speed, every dot has the length
+ * of every other dot and every dash of every other dash, so a message costs at most two
+ * syntheses, and none once its speed has been heard before. The least recently used tones are
+ * dropped beyond {@link #capacity}, as the speed adapting to the backlog of the display
+ * varies. Silences of any length are slices of a single buffer of zeros.
+ * <p>
+ * The buffers are shared by all channels and written to the sinks as they are, without a copy.
+ * The cache is only used by the scheduler thread.
+ *
+ * @version 16.10.2026
+ */
+final class ToneCache {
+    /** Bytes per sample. */
+    static final int FRAME_BYTES = 2;
+    private static final byte[] SILENCE = new byte[8 * 1024];
+    private static final double AMPLITUDE = 0.5 * Short.MAX_VALUE;
+
+    private final int sampleRate;
+    private final double frequency;
+    private final int rampSamples;
+    private final int capacity;
+    private final LongAdder synthesized;
+    private final Map<Integer, byte[]> tones;
+
+    /**
+     * @param sampleRate  The sample rate, in Hz.
+     * @param frequency   The frequency of the tone, in Hz.
+     * @param rampNanos   The rise and fall time of a tone.
+     * @param capacity    The maximum number of cached tones.
+     * @param synthesized Counts the tones synthesized.
+     */
+    ToneCache(int sampleRate, double frequency, long rampNanos, int capacity, LongAdder synthesized) {
+        this.sampleRate = sampleRate;
+        this.frequency = frequency;
+        this.rampSamples = (int) samples(rampNanos);
+        this.capacity = capacity;
+        this.synthesized = synthesized;
+        this.tones = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > ToneCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * @param nanos A duration.
+     * @return The number of samples lasting that long, rounded.
+     */
+    long samples(long nanos) {
+        return Math.round(nanos * (double) sampleRate / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @param samples The length of the tone, in samples.
+     * @return The shaped tone, which must not be modified.
+     */
+    byte[] tone(int samples) {
+        byte[] tone = tones.get(samples);
+        if (tone == null) {
+            tone = synthesize(samples);
+            tones.put(samples, tone);
+            synthesized.increment();
+        }
+        return tone;
+    }
+
+    /**
+     * @return Samples of silence, which must not be modified, to be written in slices.
+     */
+    static byte[] silence() {
+        return SILENCE;
+    }
+
+    private byte[] synthesize(int samples) {
+        byte[] tone = new byte[samples * FRAME_BYTES];
+        int ramp = Math.min(rampSamples, samples / 2);
+        double step = 2 * Math.PI * frequency / sampleRate;
+        for (int i = 0; i < samples; i++) {
+            double envelope = 1;
+            int edge = Math.min(i, samples - 1 - i);
+            if (edge < ramp) {
+                envelope = 0.5 * (1 - Math.cos(Math.PI * edge / ramp));
+            }
+            int value = (int) Math.round(AMPLITUDE * envelope * Math.sin(step * i));
+            tone[i * FRAME_BYTES] = (byte) value;
+            tone[i * FRAME_BYTES + 1] = (byte) (value >> 8);
+        }
+        return tone;
+    }
+}
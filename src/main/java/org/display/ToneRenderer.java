@@ -0,0 +1,286 @@
+package org.display;
+
+import org.common.Log;
+import org.common.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Renders the Morse of the display channels as tones, next to their lights.
+ * <p>
+ * Each channel given a track writes its own stream of samples to a {@link PcmSink}. The tracks
+ * are {@linkplain AnimationScheduler.Track driven} by the {@link AnimationScheduler} of the
+ * lights: every playback tells its track the timeline and start time it plays the light
+ * with, and a task {@linkplain AnimationScheduler#repeat repeated} on the scheduler thread
+ * writes the samples of all tracks up to {@code leadNanos} ahead of the clock. Within a
+ * message the timing comes from the sample counts only, so a late light transition, or a late
+ * run of the task within the lead, does not move a tone. The sound follows the light by at
+ * most the lead, the samples already written being kept.
+ * <p>
+ * Between messages, a track writes silence for at most {@code maxGapNanos} and then skips
+ * the samples until the next message, so that an idle WAV file does not grow; the sidetone
+ * keeps its line fed with an unbounded gap.
+ * <p>
+ * The samples are slices of the shaped tones and of the silence of a {@link ToneCache},
+ * written to the sinks as they are: rendering allocates no buffer per symbol, whatever the
+ * number of channels.
+ *
+ * @version 16.10.2026
+ */
+final class ToneRenderer implements AutoCloseable {
+    private static final Log log = Log.get("ToneRenderer");
+
+    /**
+     * Where the tracks are rendered.
+     */
+    enum Output {
+        /** Nowhere, the display is silent. */
+        NONE,
+        /** On the default audio output, see {@link SidetoneSink}. */
+        SIDETONE,
+        /** To a WAV file per channel, see {@link WavFileSink}. */
+        WAV
+    }
+
+    /**
+     * Opens the sink of a channel.
+     */
+    @FunctionalInterface
+    interface SinkFactory {
+        PcmSink open(String label) throws IOException;
+    }
+
+    private final ToneCache tones;
+    private final SinkFactory sinks;
+    private final int maxTracks;
+    private final long leadNanos;
+    private final long maxGapSamples;
+    private final List<Track> tracks = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Starts rendering on the scheduler thread.
+     *
+     * @param scheduler   The scheduler of the lights.
+     * @param tones       The tones, only used from the scheduler thread from now on.
+     * @param sinks       Opens the sink of each track.
+     * @param maxTracks   The maximum number of tracks, further channels staying silent.
+     * @param leadNanos   How far ahead of the clock the samples are written.
+     * @param periodNanos How often the samples are written, less than the lead.
+     * @param maxGapNanos The longest silence written while a track has nothing to play.
+     * @param metrics     Receives the {@code audioTracks} gauge.
+     */
+    ToneRenderer(AnimationScheduler scheduler, ToneCache tones, SinkFactory sinks, int maxTracks, long leadNanos,
+                 long periodNanos, long maxGapNanos, Metrics metrics) {
+        this.tones = tones;
+        this.sinks = sinks;
+        this.maxTracks = maxTracks;
+        this.leadNanos = leadNanos;
+        this.maxGapSamples = tones.samples(maxGapNanos);
+        metrics.gauge("audioTracks", tracks::size);
+        scheduler.repeat(periodNanos, this::render);
+    }
+
+    /**
+     * Adds the track of a channel.
+     *
+     * @param label The name of the channel.
+     * @return The track, or {@code null} if the maximum number of tracks is reached or its
+     * sink cannot be opened.
+     */
+    synchronized AnimationScheduler.Track addTrack(String label) {
+        if (closed || tracks.size() >= maxTracks) {
+            return null;
+        }
+        try {
+            Track track = new Track(label, sinks.open(label), System.nanoTime());
+            tracks.add(track);
+            log.info("audioTrackAdded", "channel", label);
+            return track;
+        } catch (IOException e) {
+            log.warn("audioUnavailable", "channel", label, "reason", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stops rendering and closes the sinks, e.g. to complete the headers of the WAV files.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Track track : tracks) {
+            track.close();
+        }
+        tracks.clear();
+    }
+
+    private void render() {
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Track track : tracks) {
+            if (!track.render(now + leadNanos)) {
+                tracks.remove(track);
+            }
+        }
+    }
+
+    /**
+     * The stream of samples of a channel. Sample {@code n} of the stream belongs to the time
+     * {@code originNanos} plus the duration of {@code n} samples.
+     */
+    private final class Track implements AnimationScheduler.Track {
+        private final String label;
+        private final PcmSink sink;
+        private final long originNanos;
+        private final ArrayDeque<Scheduled> pending = new ArrayDeque<>();
+        // The next sample to write
+        private long position;
+        // The timeline being rendered, if any, and the number of its transitions already passed
+        private Scheduled current;
+        private int passed;
+        // The silence written since the last timeline ended
+        private long idle;
+        // The end of the latest timeline queued, so that timelines never overlap
+        private long end;
+        private boolean failed;
+
+        private Track(String label, PcmSink sink, long originNanos) {
+            this.label = label;
+            this.sink = sink;
+            this.originNanos = originNanos;
+        }
+
+        @Override
+        public synchronized void start(MorseTimeline timeline, long startNanos) {
+            long start = Math.max(Math.max(position, end), tones.samples(startNanos - originNanos));
+            pending.add(new Scheduled(timeline, start));
+            end = start + tones.samples(timeline.durationNanos());
+        }
+
+        @Override
+        public synchronized void stop() {
+            pending.clear();
+            current = null;
+            end = position;
+        }
+
+        /**
+         * Writes the samples up to a time, as far as the sink takes them without blocking.
+         *
+         * @return {@code false} if the sink failed and the track is closed.
+         */
+        private synchronized boolean render(long untilNanos) {
+            if (failed) {
+                return false;
+            }
+            long target = Math.min(tones.samples(untilNanos - originNanos),
+                    position + sink.available() / ToneCache.FRAME_BYTES);
+            try {
+                while (position < target) {
+                    writeNext(target);
+                }
+                return true;
+            } catch (IOException e) {
+                log.warn("audioFailed", "channel", label, "reason", e.getMessage());
+                close();
+                return false;
+            }
+        }
+
+        /**
+         * Writes the samples from the position to the next change of tone, at most to the target.
+         */
+        private void writeNext(long target) throws IOException {
+            if (current == null) {
+                current = pending.poll();
+                passed = 0;
+                if (current == null) {
+                    long gap = Math.min(target - position, maxGapSamples - idle);
+                    if (gap > 0) {
+                        writeSilence(gap);
+                        idle += gap;
+                    } else {
+                        // Nothing to play: the samples up to the target are not written
+                        position = target;
+                    }
+                    return;
+                }
+                idle = 0;
+            }
+            MorseTimeline timeline = current.timeline;
+            long offset = position - current.start;
+            if (offset < 0) {
+                writeSilence(Math.min(-offset, target - position));
+                return;
+            }
+            while (passed < timeline.transitions() && tones.samples(timeline.offsetNanos(passed)) <= offset) {
+                passed++;
+            }
+            if (passed == timeline.transitions() && offset >= tones.samples(timeline.durationNanos())) {
+                current = null;
+                return;
+            }
+            long next = passed < timeline.transitions() ? tones.samples(timeline.offsetNanos(passed))
+                    : tones.samples(timeline.durationNanos());
+            long length = Math.min(next - offset, target - position);
+            if (!MorseTimeline.isOn(passed)) {
+                // The previous transition switched the tone on: the same tone for every dot, and every dash
+                long toneStart = tones.samples(timeline.offsetNanos(passed - 1));
+                byte[] tone = tones.tone((int) tones.samples(
+                        timeline.offsetNanos(passed) - timeline.offsetNanos(passed - 1)));
+                long into = offset - toneStart;
+                long toneLength = Math.min(length, tone.length / ToneCache.FRAME_BYTES - into);
+                if (toneLength > 0) {
+                    sink.write(tone, (int) into * ToneCache.FRAME_BYTES, (int) toneLength * ToneCache.FRAME_BYTES);
+                    position += toneLength;
+                    return;
+                }
+            }
+            writeSilence(length);
+        }
+
+        private void writeSilence(long samples) throws IOException {
+            byte[] silence = ToneCache.silence();
+            long remaining = samples;
+            while (remaining > 0) {
+                int chunk = (int) Math.min(remaining, silence.length / ToneCache.FRAME_BYTES);
+                sink.write(silence, 0, chunk * ToneCache.FRAME_BYTES);
+                remaining -= chunk;
+            }
+            position += samples;
+        }
+
+        private synchronized void close() {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            try {
+                sink.close();
+            } catch (IOException e) {
+                log.warn("audioCloseFailed", "channel", label, "reason", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A timeline and the sample it starts at.
+     */
+    private record Scheduled(MorseTimeline timeline, long start) {
+    }
+
+    /**
+     * @param tones The tones, whose sample rate is used.
+     * @param lead  The lead of the renderer.
+     * @return The size of the buffer of a sound line holding twice the lead.
+     */
+    static int lineBufferBytes(ToneCache tones, long lead) {
+        return (int) tones.samples(2 * lead) * ToneCache.FRAME_BYTES;
+    }
+}
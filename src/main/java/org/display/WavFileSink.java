@@ -0,0 +1,154 @@
+package org.display;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link PcmSink} writing a WAV file, e.g. to check the audio of a headless display.
+ * <p>
+ * The header is written first with empty sizes, which are filled in when the file is complete,
+ * so a file left by a killed process still holds its samples but declares none. The samples are
+ * gathered in a buffer of {@link #BUFFER_BYTES} and written to the file when it is full, so the
+ * file grows by large writes, at 2 bytes per sample.
+ * <p>
+ * The sizes of a WAV file are 32-bit: before the data would pass 4 GiB, the file is completed
+ * and the samples go on in a new file named after the first, {@code name-2.wav}, then
+ * {@code name-3.wav} and so on.
+ *
+ * @version 16.10.2026
+ */
+final class WavFileSink implements PcmSink {
+    private static final int HEADER_BYTES = 44;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    // The largest data chunk whose RIFF size, the data and the rest of the header, fits in 32 bits
+    private static final long MAX_DATA_BYTES = (0xFFFF_FFFFL - (HEADER_BYTES - 8)) / ToneCache.FRAME_BYTES
+            * ToneCache.FRAME_BYTES;
+
+    private final Path path;
+    private final int sampleRate;
+    private final long maxDataBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private FileChannel file;
+    private int part = 1;
+    private long dataBytes;
+
+    /**
+     * Creates or truncates the file and writes its header.
+     *
+     * @param path       The file.
+     * @param sampleRate The sample rate, in Hz.
+     * @throws IOException if the file cannot be written.
+     */
+    WavFileSink(Path path, int sampleRate) throws IOException {
+        this(path, sampleRate, MAX_DATA_BYTES);
+    }
+
+    /**
+     * @param maxDataBytes The number of bytes of samples after which a new file is started,
+     *                     a whole number of samples.
+     */
+    WavFileSink(Path path, int sampleRate, long maxDataBytes) throws IOException {
+        this.path = path;
+        this.sampleRate = sampleRate;
+        this.maxDataBytes = maxDataBytes;
+        file = open(path);
+    }
+
+    @Override
+    public int available() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void write(byte[] samples, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (dataBytes == maxDataBytes) {
+                complete();
+                part++;
+                file = open(partPath());
+            }
+            int chunk = (int) Math.min(Math.min(length, maxDataBytes - dataBytes), buffer.remaining());
+            buffer.put(samples, offset, chunk);
+            dataBytes += chunk;
+            offset += chunk;
+            length -= chunk;
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        complete();
+    }
+
+    /**
+     * @return The file written to, {@code name-<part>.wav} after the first one.
+     */
+    private Path partPath() {
+        if (part == 1) {
+            return path;
+        }
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String partName = dot < 0 ? name + "-" + part : name.substring(0, dot) + "-" + part + name.substring(dot);
+        return path.resolveSibling(partName);
+    }
+
+    private FileChannel open(Path target) throws IOException {
+        FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            writeFully(channel, header(sampleRate), 0);
+            channel.position(HEADER_BYTES);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        dataBytes = 0;
+        return channel;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            file.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes out the buffer, fills in the sizes of the header and closes the file.
+     */
+    private void complete() throws IOException {
+        try (FileChannel channel = file) {
+            flush();
+            ByteBuffer size = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            writeFully(channel, size.putInt(0, (int) (HEADER_BYTES - 8 + dataBytes)), 4);
+            writeFully(channel, size.putInt(0, (int) dataBytes), HEADER_BYTES - 4);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        bytes.rewind();
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+
+    private static ByteBuffer header(int sampleRate) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(HEADER_BYTES - 8).put("WAVE".getBytes());
+        // Format chunk: PCM, mono, 16 bits
+        header.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(sampleRate).putInt(sampleRate * ToneCache.FRAME_BYTES)
+                .putShort((short) ToneCache.FRAME_BYTES).putShort((short) 16);
+        header.put("data".getBytes()).putInt(0);
+        return header;
+    }
+}
@@ -0,0 +1,529 @@
+package org.journal;
+
+import org.common.Log;
+import org.common.Metrics;
+import org.common.Timestamps;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only journal of the messages a component has taken charge of but not finished
+ * with, kept in memory-mapped segment files so that they survive a crash of the process.
+ * <p>
+ * Every entry, an {@link Kind#INBOUND} event or an {@link Kind#OUTBOUND} message, gets a
+ * sequence number when appended, and stays pending until a later record {@link #settle settles}
+ * it: once the event has been processed, or once the broker has acknowledged the message.
+ * On {@link #open}, the segments are scanned and the pending entries are available through
+ * {@link #pending} to be processed or published again, so delivery is at least once.
+ * <p>
+ * Each record is written into the mapped segment and its length last, which makes it visible
+ * to a scan; a checksum covers the record, so a record torn by a crash of the host ends the
+ * scan of its segment. Writes to a mapped file survive a crash of the process without any
+ * system call; {@link #force()} also flushes them to the disk. When the active segment is
+ * full a new one is started. A segment left without pending entries is deleted, and on every
+ * roll the older segments holding mostly settled entries are compacted: their pending
+ * records are copied to the new segment and the files deleted. A settle record outlives its
+ * segment as long as the settled entry is still stored in an older one, as the entry would
+ * otherwise be recovered again: such records are copied along with the pending ones.
+ * Thread-safe.
+ * <p>
+ * Record layout, big-endian:
+ * <pre>
+ * size  field
+ *    4  length of the rest of the record, 0 past the last record
+ *    4  CRC-32C of the rest of the record
+ *    1  kind: inbound, outbound or settle
+ *    8  sequence number, or for a settle record the settled sequence number
+ *    2  topic length, followed by the UTF-8 topic
+ *    n  payload, up to the end of the record
+ * </pre>
+ *
+ * @version 16.10.2026
+ */
+public final class Journal implements AutoCloseable {
+
+    /**
+     * The kinds of entries.
+     */
+    public enum Kind {
+        /** An event received by the component, pending until processed. */
+        INBOUND,
+        /** A message published by the component, pending until acknowledged. */
+        OUTBOUND
+    }
+
+    /**
+     * An entry of the journal.
+     *
+     * @param sequence The sequence number of the entry.
+     * @param kind     The kind of the entry.
+     * @param topic    The topic the message was received or is published on.
+     * @param payload  The payload of the message.
+     */
+    public record Entry(long sequence, Kind kind, String topic, byte[] payload) {
+    }
+
+    /**
+     * The user property holding the journal sequence number of a received message, so that
+     * the thread processing it can settle its entry.
+     */
+    public static final String ENTRY = "j.entry";
+
+    private static final byte RECORD_INBOUND = 1;
+    private static final byte RECORD_OUTBOUND = 2;
+    private static final byte RECORD_SETTLE = 3;
+    private static final int RECORD_HEADER = 4 + 4 + 1 + 8 + 2;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    // Older segments with less than this share of pending bytes are compacted when rolling
+    private static final double COMPACTION_THRESHOLD = 0.25;
+    private static final Log log = Log.get("Journal");
+
+    private static final class Segment {
+        private final long index;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int pendingEntries;
+        private long pendingBytes;
+        // Settle records of entries stored in other segments, at most what compacting copies
+        private long settleBytes;
+
+        private Segment(long index, Path path, MappedByteBuffer buffer) {
+            this.index = index;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Where a pending entry is stored.
+     */
+    private record Location(Segment segment, int position, int length, Kind kind) {
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, Location> pending = new HashMap<>();
+    // Settled entries still stored in an older segment than their settle record, by that segment
+    private final Map<Long, Segment> settled = new HashMap<>();
+    private final CRC32C crc = new CRC32C();
+    private Segment active;
+    private long nextSequence;
+    private boolean closed;
+
+    private final LongAdder appendedCount;
+    private final LongAdder settledCount;
+    private final LongAdder compactedCount;
+
+    private Journal(Path directory, long segmentBytes, Metrics metrics) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.appendedCount = metrics.counter("journalAppended");
+        this.settledCount = metrics.counter("journalSettled");
+        this.compactedCount = metrics.counter("journalCompacted");
+        metrics.gauge("journalPending", this::pendingCount);
+        metrics.gauge("journalSegments", this::segmentCount);
+    }
+
+    /**
+     * Opens the journal stored in a directory, creating it if needed, and recovers the
+     * pending entries of the previous run.
+     *
+     * @param directory    The directory of the segment files, owned by a single process.
+     * @param segmentBytes The size of a segment file.
+     * @param metrics      Receives the journal counters and gauges.
+     * @return The journal, appending to a new segment.
+     * @throws IOException if the directory or a segment cannot be read.
+     */
+    public static Journal open(Path directory, long segmentBytes, Metrics metrics) throws IOException {
+        Files.createDirectories(directory);
+        Journal journal = new Journal(directory, segmentBytes, metrics);
+        synchronized (journal) {
+            for (Path path : segmentFiles(directory)) {
+                Segment segment = new Segment(segmentIndex(path), path, map(path, Files.size(path)));
+                journal.segments.put(segment.index, segment);
+                scan(segment.buffer, (type, sequence, position, length) -> journal.recover(segment, type, sequence,
+                        position, length));
+            }
+            // Also compacts away the segments left without pending entries
+            journal.roll(0);
+        }
+        return journal;
+    }
+
+    /**
+     * Appends an entry, pending until settled.
+     *
+     * @param kind    The kind of the entry.
+     * @param topic   The topic of the message.
+     * @param payload The payload of the message.
+     * @return The sequence number of the entry.
+     */
+    public synchronized long append(Kind kind, String topic, byte[] payload) {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        long sequence = nextSequence++;
+        int length = RECORD_HEADER + topicBytes.length + payload.length;
+        ensureSpace(length);
+        int position = active.buffer.position();
+        write(kind == Kind.INBOUND ? RECORD_INBOUND : RECORD_OUTBOUND, sequence, topicBytes, payload);
+        pending.put(sequence, new Location(active, position, length, kind));
+        active.pendingEntries++;
+        active.pendingBytes += length;
+        appendedCount.increment();
+        return sequence;
+    }
+
+    /**
+     * Settles an entry: it will not be replayed. Settling an unknown or settled entry does nothing.
+     *
+     * @param sequence The sequence number of the entry.
+     */
+    public synchronized void settle(long sequence) {
+        Location location = pending.remove(sequence);
+        if (location == null || closed) {
+            return;
+        }
+        ensureSpace(RECORD_HEADER);
+        write(RECORD_SETTLE, sequence, new byte[0], new byte[0]);
+        settledCount.increment();
+        Segment segment = location.segment();
+        segment.pendingEntries--;
+        segment.pendingBytes -= location.length();
+        if (segment != active && segments.get(segment.index) == segment) {
+            // The settle record is needed as long as the segment holding the entry
+            settled.put(sequence, segment);
+            active.settleBytes += RECORD_HEADER;
+            if (segment.pendingEntries == 0 && fits(segment, 0)) {
+                compact(segment);
+            }
+        }
+    }
+
+    /**
+     * Lists the pending entries of a kind, oldest first.
+     *
+     * @param kind  The kind of entries.
+     * @param below Only entries with a lower sequence number are listed, e.g. {@link #nextSequence()}
+     *              taken before a reconnection, to leave out the entries appended since.
+     * @return Copies of the entries.
+     */
+    public synchronized List<Entry> pending(Kind kind, long below) {
+        List<Entry> entries = new ArrayList<>();
+        new TreeMap<>(pending).forEach((sequence, location) -> {
+            if (location.kind() == kind && sequence < below) {
+                entries.add(read(location.segment().buffer, location.position(), location.length()));
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * @return The sequence number of the next entry.
+     */
+    public synchronized long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * @return The number of pending entries.
+     */
+    public synchronized long pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return The number of segment files.
+     */
+    public synchronized long segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Flushes the segments to the disk, to survive a crash of the host as well.
+     */
+    public synchronized void force() {
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Flushes the segments and stops appending; pending entries are kept for the next run.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            force();
+            closed = true;
+        }
+    }
+
+    /**
+     * Tags a received message with the sequence number of its journal entry.
+     *
+     * @param message  The message.
+     * @param sequence The sequence number.
+     */
+    public static void tag(MqttMessage message, long sequence) {
+        // Same user property encoding as the timestamps
+        Timestamps.stamp(message, ENTRY, sequence);
+    }
+
+    /**
+     * @param message A received message.
+     * @return The sequence number it was tagged with, or -1 if none.
+     */
+    public static long entryOf(MqttMessage message) {
+        return Timestamps.read(message, ENTRY);
+    }
+
+    /**
+     * Reads every entry stored in a journal directory, pending or settled, segment by segment
+     * in the order of the files. Meant for tools such as {@link JournalReplay}, while the
+     * owning process is stopped.
+     *
+     * @param directory    The directory of the segment files.
+     * @param pendingOnly  Whether to skip the settled entries.
+     * @param consumer     Receives the entries.
+     * @throws IOException if a segment cannot be read.
+     */
+    public static void read(Path directory, boolean pendingOnly, Consumer<Entry> consumer) throws IOException {
+        List<Path> paths = segmentFiles(directory);
+        Map<Long, Boolean> settled = new HashMap<>();
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        for (Path path : paths) {
+            MappedByteBuffer buffer = map(path, Files.size(path));
+            buffers.add(buffer);
+            if (pendingOnly) {
+                scan(buffer, (type, sequence, position, length) -> {
+                    if (type == RECORD_SETTLE) {
+                        settled.put(sequence, Boolean.TRUE);
+                    }
+                });
+            }
+        }
+        for (MappedByteBuffer buffer : buffers) {
+            scan(buffer, (type, sequence, position, length) -> {
+                if (type != RECORD_SETTLE && !settled.containsKey(sequence)) {
+                    consumer.accept(read(buffer, position, length));
+                }
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(byte type, long sequence, int position, int length);
+    }
+
+    private void recover(Segment segment, byte type, long sequence, int position, int length) {
+        nextSequence = Math.max(nextSequence, sequence + 1);
+        if (type == RECORD_SETTLE) {
+            Location location = pending.remove(sequence);
+            if (location != null) {
+                location.segment().pendingEntries--;
+                location.segment().pendingBytes -= location.length();
+                if (location.segment() != segment) {
+                    settled.put(sequence, location.segment());
+                    segment.settleBytes += length;
+                }
+            }
+            return;
+        }
+        Location previous = pending.put(sequence,
+                new Location(segment, position, length, type == RECORD_INBOUND ? Kind.INBOUND : Kind.OUTBOUND));
+        if (previous != null) {
+            // A copy made by a compaction interrupted before the old segment was deleted
+            previous.segment().pendingEntries--;
+            previous.segment().pendingBytes -= previous.length();
+        }
+        segment.pendingEntries++;
+        segment.pendingBytes += length;
+    }
+
+    private void ensureSpace(int length) {
+        if (closed) {
+            throw new IllegalStateException("journal closed");
+        }
+        // Keep room for the zero length ending the records
+        if (active.buffer.remaining() < length + 4) {
+            roll(length + 4);
+        }
+    }
+
+    /**
+     * Starts a new active segment, then compacts the older segments that are mostly settled,
+     * as far as they leave room for the record that rolled.
+     *
+     * @param minimumBytes The room the record that rolled needs, with the terminating zero.
+     */
+    private void roll(int minimumBytes) {
+        long index = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try {
+            active = new Segment(index, path, map(path, Math.max(segmentBytes, minimumBytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + path, e);
+        }
+        segments.put(index, active);
+        // Oldest first, so that the settle records of the entries of a compacted segment are not copied
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment != active && segment.pendingBytes < COMPACTION_THRESHOLD * segment.buffer.capacity()
+                    && fits(segment, minimumBytes)) {
+                compact(segment);
+            }
+        }
+    }
+
+    /**
+     * @param reserved The room to leave in the active segment, e.g. for the record that rolled.
+     * @return Whether the records that compacting a segment copies surely fit in the active one.
+     */
+    private boolean fits(Segment segment, int reserved) {
+        return active.buffer.remaining() > segment.pendingBytes + segment.settleBytes + 4 + reserved;
+    }
+
+    /**
+     * Copies the pending records of a segment, and the settle records still needed, to the
+     * active one and deletes the segment.
+     */
+    private void compact(Segment segment) {
+        for (Map.Entry<Long, Location> entry : pending.entrySet()) {
+            Location location = entry.getValue();
+            if (location.segment() == segment) {
+                entry.setValue(new Location(active, copy(segment, location.position(), location.length()),
+                        location.length(), location.kind()));
+                active.pendingEntries++;
+                active.pendingBytes += location.length();
+            }
+        }
+        // The oldest segment only settles entries of deleted segments or of its own
+        if (segment.settleBytes > 0 && segments.firstKey() != segment.index) {
+            scan(segment.buffer, (type, sequence, position, length) -> {
+                Segment holder = type == RECORD_SETTLE ? settled.get(sequence) : null;
+                if (holder != null && holder != segment) {
+                    copy(segment, position, length);
+                    active.settleBytes += length;
+                }
+            });
+        }
+        delete(segment);
+        compactedCount.increment();
+    }
+
+    /**
+     * Copies a record of a segment to the end of the active one.
+     *
+     * @return The position of the copy.
+     */
+    private int copy(Segment segment, int from, int length) {
+        MappedByteBuffer buffer = active.buffer;
+        int position = buffer.position();
+        ByteBuffer record = segment.buffer.duplicate().limit(from + length).position(from + 4);
+        buffer.position(position + 4).put(record);
+        buffer.putInt(buffer.position(), 0);
+        // The length last, as for a new record
+        buffer.putInt(position, length - 4);
+        return position;
+    }
+
+    private void write(byte type, long sequence, byte[] topic, byte[] payload) {
+        MappedByteBuffer buffer = active.buffer;
+        int position = buffer.position();
+        buffer.position(position + 8);
+        buffer.put(type).putLong(sequence).putShort((short) topic.length).put(topic).put(payload);
+        int end = buffer.position();
+        crc.reset();
+        crc.update(buffer.duplicate().position(position + 8).limit(end));
+        buffer.putInt(position + 4, (int) crc.getValue());
+        // Terminates the records until the next one is written
+        buffer.putInt(end, 0);
+        // The length last: the record only becomes visible to a scan once complete
+        buffer.putInt(position, end - position - 4);
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment.index);
+        settled.values().removeIf(holder -> holder == segment);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("segmentNotDeleted", "path", segment.path, "reason", e.getMessage());
+        }
+    }
+
+    private static void scan(MappedByteBuffer buffer, RecordVisitor visitor) {
+        CRC32C crc = new CRC32C();
+        int position = 0;
+        while (position + RECORD_HEADER <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length < RECORD_HEADER - 4 || position + 4 + length > buffer.limit()) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.duplicate().position(position + 8).limit(position + 4 + length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                log.warn("recordTorn", "position", position);
+                break;
+            }
+            visitor.visit(buffer.get(position + 8), buffer.getLong(position + 9), position, length + 4);
+            position += 4 + length;
+        }
+        buffer.position(position);
+    }
+
+    private static Entry read(MappedByteBuffer buffer, int position, int length) {
+        ByteBuffer record = buffer.duplicate().position(position + 8);
+        byte type = record.get();
+        long sequence = record.getLong();
+        byte[] topic = new byte[record.getShort() & 0xFFFF];
+        record.get(topic);
+        byte[] payload = new byte[position + length - record.position()];
+        record.get(payload);
+        return new Entry(sequence, type == RECORD_INBOUND ? Kind.INBOUND : Kind.OUTBOUND,
+                new String(topic, StandardCharsets.UTF_8), payload);
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        }
+    }
+
+    private static List<Path> segmentFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static long segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,102 @@
+package org.journal;
+
+import org.common.Config;
+import org.common.Metrics;
+import org.common.Transport;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A tool publishing the entries of a {@link Journal} in bulk, e.g. to backfill a display
+ * that was offline, or to feed the events of a crashed transformer to another instance.
+ * <p>
+ * The journal is only read, never modified, and must not be in use by its process. By
+ * default only the pending outbound messages are published, on their original topic;
+ * settings (see {@link Config}) select the kind of entries, include the settled ones, or redirect them
+ * to another topic. Publishes are pipelined within the adaptive window of a {@link Transport},
+ * at most {@code journalReplay.inflight} messages, as in the batch mode of the
+ * {@link org.KeyboardEntry.KeyboardEntry} sensor.
+ *
+ * @version 16.10.2026
+ */
+public class JournalReplay {
+    private static final Config config = Config.load();
+    private static final String server = config.string("morse.server", "tcp://localhost:1883");
+    private static final String directory = config.string("journalReplay.dir", null);
+    private static final Journal.Kind kind = config.choice("journalReplay.kind", Journal.Kind.OUTBOUND);
+    private static final boolean all = config.flag("journalReplay.all", false);
+    private static final String topic = config.string("journalReplay.topic", null);
+    private static final int inflight = config.integer("journalReplay.inflight", 64);
+
+    /**
+     * Publishes the selected entries of the journal in {@code journalReplay.dir}, waits for
+     * their acknowledgements and disconnects.
+     *
+     * @throws MqttException        if there is an error connecting to the broker or publishing messages.
+     * @throws IOException          if the journal cannot be read.
+     * @throws InterruptedException if interrupted while waiting for acknowledgements.
+     */
+    static void main() throws MqttException, IOException, InterruptedException {
+        if (directory == null) {
+            System.err.println("Set the journal directory with -DjournalReplay.dir=<path>");
+            return;
+        }
+        String clientId = "journalReplay-" + ProcessHandle.current().pid();
+        Transport transport = new Transport(config, new Metrics(clientId), inflight);
+        // The entries are Morse messages or source texts, published with the QoS of their class
+        int qos = transport.qos(kind == Journal.Kind.INBOUND ? Transport.Traffic.TEXT : Transport.Traffic.MORSE);
+        MqttAsyncClient client = new MqttAsyncClient(server, clientId, new MemoryPersistence());
+        MqttConnectionOptions options = transport.connectionOptions();
+        // The run ends with the journal; a lost connection fails the publishes rather than waiting
+        options.setAutomaticReconnect(false);
+        client.connect(options).waitForCompletion();
+
+        AtomicLong failures = new AtomicLong();
+        MqttActionListener acknowledged = new MqttActionListener() {
+            @Override
+            public void onSuccess(IMqttToken token) {
+                // Counted by the transport
+            }
+
+            @Override
+            public void onFailure(IMqttToken token, Throwable exception) {
+                failures.incrementAndGet();
+                System.err.println("Publish failed: " + exception.getMessage());
+            }
+        };
+        long[] published = new long[1];
+        long start = System.nanoTime();
+        try {
+            Journal.read(Path.of(directory), !all, entry -> {
+                if (entry.kind() != kind) {
+                    return;
+                }
+                MqttMessage message = new MqttMessage(entry.payload());
+                message.setQos(qos);
+                try {
+                    transport.publish(client, topic != null ? topic : entry.topic(), message, acknowledged);
+                    published[0]++;
+                } catch (MqttException e) {
+                    throw new IllegalStateException("Replay stopped after " + published[0] + " messages", e);
+                }
+            });
+            // Nothing in flight means every publish has been acknowledged or has failed
+            transport.awaitIdle();
+        } finally {
+            client.disconnect().waitForCompletion();
+            client.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d %s entries in %.2f s, %d failed%n", published[0], kind, seconds,
+                failures.get());
+    }
+}
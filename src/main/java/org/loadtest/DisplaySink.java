@@ -0,0 +1,140 @@
+package org.loadtest;
+
+import org.common.LatencyHistogram;
+import org.common.Metrics;
+import org.common.Timestamps;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttCallback;
+import org.eclipse.paho.mqttv5.client.MqttClient;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.MqttDisconnectResponse;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A headless stand-in for {@link org.display.MorseDisplay}: it subscribes to the Morse
+ * events like the display does, decodes them, and records how long they took instead of
+ * animating them.
+ * <p>
+ * The end-to-end latency runs from the {@link Timestamps#SENT} stamp of the source to the
+ * arrival here, the delivery latency from the {@link Timestamps#CONVERTED} stamp of the
+ * transformer to the arrival here.
+ *
+ * @version 16.10.2026
+ */
+final class DisplaySink implements AutoCloseable {
+    private final MqttClient client;
+    private final WireMessage morse = new WireMessage();
+    private final CountDownLatch converterOnline = new CountDownLatch(1);
+    private final LatencyHistogram endToEndLatency;
+    private final LatencyHistogram deliveryLatency;
+    private final LongAdder receivedCount;
+    private final LongAdder malformedCount;
+
+    /**
+     * Connects the sink and subscribes to the Morse events of every channel and the status of
+     * the transformer.
+     *
+     * @param server      The broker URI.
+     * @param morseTopic  The base topic of the Morse events.
+     * @param statusTopic The status topic of the transformer.
+     * @param metrics     Receives the latencies and the message counts.
+     * @throws MqttException if the sink cannot connect or subscribe.
+     */
+    DisplaySink(String server, String morseTopic, String statusTopic, Metrics metrics) throws MqttException {
+        this.endToEndLatency = metrics.histogram("endToEnd");
+        this.deliveryLatency = metrics.histogram("delivery");
+        this.receivedCount = metrics.counter("received");
+        this.malformedCount = metrics.counter("malformed");
+        client = new MqttClient(server, "loadTest-display", new MemoryPersistence());
+        client.setCallback(new MqttCallback() {
+            @Override
+            public void disconnected(MqttDisconnectResponse disconnectResponse) {
+                System.err.println("Display sink disconnected: " + disconnectResponse.getReasonString());
+            }
+
+            @Override
+            public void mqttErrorOccurred(MqttException exception) {
+                System.err.println("Display sink error: " + exception.getMessage());
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                if (topic.equals(morseTopic) || topic.startsWith(morseTopic + "/")) {
+                    received(message);
+                } else if ("Online".equals(new String(message.getPayload()))) {
+                    converterOnline.countDown();
+                }
+            }
+
+            @Override
+            public void deliveryComplete(IMqttToken token) {
+                // Nothing is published
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                // Subscriptions are made once below, the session does not reconnect
+            }
+
+            @Override
+            public void authPacketArrived(int reasonCode, MqttProperties properties) {
+                // Not used here
+            }
+        });
+        MqttConnectionOptions options = new MqttConnectionOptions();
+        options.setCleanStart(true);
+        client.connect(options);
+        client.subscribe(new String[]{morseTopic, morseTopic + "/+", statusTopic, statusTopic + "/+"},
+                new int[]{1, 1, 1, 1});
+    }
+
+    private void received(MqttMessage message) {
+        long nowMicros = Timestamps.nowMicros();
+        if (!morse.wrap(message.getPayload()) || !WireFormat.isMorse(morse.type())) {
+            malformedCount.increment();
+            return;
+        }
+        receivedCount.increment();
+        long sentMicros = Timestamps.read(message, Timestamps.SENT);
+        if (sentMicros >= 0) {
+            endToEndLatency.record((nowMicros - sentMicros) * 1_000);
+        }
+        long convertedMicros = Timestamps.read(message, Timestamps.CONVERTED);
+        if (convertedMicros >= 0) {
+            deliveryLatency.record((nowMicros - convertedMicros) * 1_000);
+        }
+    }
+
+    /**
+     * Waits for a transformer instance to report itself online.
+     *
+     * @param timeoutMillis The maximum time to wait.
+     * @return {@code true} if a transformer is online.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean awaitConverter(long timeoutMillis) throws InterruptedException {
+        return converterOnline.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return The number of Morse events received so far.
+     */
+    long received() {
+        return receivedCount.sum();
+    }
+
+    @Override
+    public void close() throws MqttException {
+        client.disconnect();
+        client.close();
+    }
+}
@@ -0,0 +1,242 @@
+package org.loadtest;
+
+import org.broker.EmbeddedBroker;
+import org.common.LatencyHistogram;
+import org.common.Metrics;
+import org.common.Timestamps;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttActionListener;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.protocol.WireFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the pipeline at a fixed offered load and reports the sustained throughput and the
+ * latency, without a Mosquitto installation or a display.
+ * <p>
+ * By default the run is self-contained: an {@link EmbeddedBroker} is started on a free port,
+ * a {@link org.TextToMorse.TextToMorse} process is launched against it, a {@link DisplaySink}
+ * replaces the display, and several {@code KeyboardEntry}-style publishers send text events
+ * at a fixed rate each. The events are spread over {@code loadTest.channels} sub-topics of
+ * {@code E/KeyboardEvent}, which the transformer converts in parallel and publishes as as many
+ * channels of the display. Setting {@code morse.server} runs against an existing broker instead,
+ * and {@code -DloadTest.transformer=false} relies on transformers started separately.
+ * <p>
+ * The publishers follow their schedule regardless of how the pipeline keeps up, and the
+ * events are stamped with the time they were due rather than the time they were sent, so a
+ * saturated pipeline shows up as growing latency instead of a silently lower offered rate.
+ * Figures are reset after a warm-up period. The settings are read from system properties
+ * prefixed with {@code loadTest.}; {@code textToMorse.} properties are passed on to the
+ * launched transformer.
+ *
+ * @version 16.10.2026
+ */
+public class LoadGenerator {
+    private static final String eventTopic = "E/KeyboardEvent";
+    private static final String morseTopic = "E/textInMorse";
+    private static final String converterStatusTopic = "S/textInMorse";
+
+    private static final int publisherCount = Integer.getInteger("loadTest.publishers", 4);
+    private static final int channelCount = Integer.getInteger("loadTest.channels", 4);
+    private static final int rate = Integer.getInteger("loadTest.rate", 500);
+    private static final int warmupSeconds = Integer.getInteger("loadTest.warmupSeconds", 5);
+    private static final int seconds = Integer.getInteger("loadTest.seconds", 20);
+    private static final int messageLength = Integer.getInteger("loadTest.messageLength", 32);
+    private static final int qos = Integer.getInteger("loadTest.qos", 1);
+    private static final boolean launchTransformer =
+            Boolean.parseBoolean(System.getProperty("loadTest.transformer", "true"));
+
+    private static final Metrics metrics = Metrics.start("loadTest");
+    private static final LatencyHistogram scheduleLag = metrics.histogram("scheduleLag");
+    private static final LongAdder publishedCount = metrics.counter("published");
+    private static final LongAdder failedCount = metrics.counter("failed");
+    private static volatile boolean running = true;
+
+    /**
+     * The main entry point of the load generator.
+     *
+     * @throws MqttException        if a client cannot connect.
+     * @throws IOException          if the broker or the transformer cannot be started.
+     * @throws InterruptedException if interrupted during the run.
+     */
+    static void main() throws MqttException, IOException, InterruptedException {
+        String server = System.getProperty("morse.server");
+        Metrics brokerMetrics = new Metrics("broker");
+        EmbeddedBroker broker = null;
+        if (server == null) {
+            broker = EmbeddedBroker.start(0, brokerMetrics);
+            server = broker.uri();
+            System.out.println("Embedded broker listening on " + server);
+        }
+        Process transformer = launchTransformer ? launchTransformer(server) : null;
+
+        DisplaySink sink = new DisplaySink(server, morseTopic, converterStatusTopic, metrics);
+        if (!sink.awaitConverter(30_000)) {
+            System.err.println("No transformer came online on " + converterStatusTopic + ", giving up.");
+            shutDown(null, sink, transformer, broker);
+            return;
+        }
+
+        List<Thread> publishers = new ArrayList<>();
+        List<MqttAsyncClient> clients = new ArrayList<>();
+        for (int i = 0; i < publisherCount; i++) {
+            MqttAsyncClient client = new MqttAsyncClient(server, "loadTest-publisher-" + i, new MemoryPersistence());
+            MqttConnectionOptions options = new MqttConnectionOptions();
+            options.setCleanStart(true);
+            client.connect(options).waitForCompletion();
+            clients.add(client);
+            long seed = i;
+            publishers.add(Thread.ofPlatform().name("loadTest-publisher-" + i).start(() -> publish(client, seed)));
+        }
+        metrics.exportJmx();
+        System.out.printf("Offering %d msg/s (%d publishers x %d msg/s) of %d characters at QoS %d on %d channels%n",
+                publisherCount * rate, publisherCount, rate, messageLength, qos, Math.max(1, channelCount));
+
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        metrics.reset();
+        brokerMetrics.reset();
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(seconds);
+        long receivedInWindow = sink.received();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        running = false;
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        long published = publishedCount.sum();
+        // Let the messages still in the pipeline arrive, as long as they keep coming
+        for (long last = -1; sink.received() < published && sink.received() != last; ) {
+            last = sink.received();
+            TimeUnit.SECONDS.sleep(1);
+        }
+
+        LatencyHistogram endToEnd = metrics.histogram("endToEnd");
+        System.out.printf("Published %d, received %d, %d missing, %d failed%n", published, sink.received(),
+                Math.max(0, published - sink.received()), failedCount.sum());
+        System.out.printf("Sustained throughput: %.0f msg/s over %.1f s%n", receivedInWindow / elapsed, elapsed);
+        System.out.printf("End-to-end latency (ms): p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                endToEnd.percentile(50) / 1e6, endToEnd.percentile(90) / 1e6, endToEnd.percentile(99) / 1e6,
+                endToEnd.percentile(99.9) / 1e6, endToEnd.max() / 1e6);
+        System.out.println(metrics.getSnapshot());
+        if (broker != null) {
+            System.out.println(brokerMetrics.getSnapshot());
+        }
+        shutDown(clients, sink, transformer, broker);
+    }
+
+    /**
+     * Publishes text events on a fixed schedule until the run ends.
+     *
+     * @param client The connected client of this publisher.
+     * @param seed   The seed of the generated texts.
+     */
+    private static void publish(MqttAsyncClient client, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        // The publishers take turns on the channels, so that every channel gets the same load
+        String[] topics = new String[Math.max(1, channelCount)];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = channelCount > 0 ? eventTopic + "/load" + i : eventTopic;
+        }
+        byte[][] texts = new byte[256][];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = text(random).getBytes(StandardCharsets.UTF_8);
+        }
+        MqttActionListener listener = new MqttActionListener() {
+            @Override
+            public void onSuccess(IMqttToken token) {
+                // Counted when handed to the client
+            }
+
+            @Override
+            public void onFailure(IMqttToken token, Throwable exception) {
+                failedCount.increment();
+            }
+        };
+        long period = 1_000_000_000L / rate;
+        long due = System.nanoTime();
+        for (int sequence = 0; running; sequence++) {
+            long now = System.nanoTime();
+            while (now < due) {
+                LockSupport.parkNanos(due - now);
+                now = System.nanoTime();
+            }
+            scheduleLag.record(now - due);
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            MqttMessage message = new MqttMessage(WireFormat.encodeText(id, texts[sequence & (texts.length - 1)]));
+            message.setQos(qos);
+            message.setRetained(false);
+            Timestamps.stamp(message, Timestamps.SENT, Timestamps.nowMicros() - (now - due) / 1_000);
+            try {
+                client.publish(topics[(int) ((seed + sequence) % topics.length)], message, null, listener);
+                publishedCount.increment();
+            } catch (MqttException e) {
+                // Typically too many messages in flight: the pipeline does not keep up
+                failedCount.increment();
+            }
+            due += period;
+        }
+    }
+
+    private static String text(SplittableRandom random) {
+        StringBuilder text = new StringBuilder(messageLength);
+        while (text.length() < messageLength) {
+            if (!text.isEmpty() && random.nextInt(6) == 0) {
+                text.append(' ');
+            }
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.substring(0, messageLength);
+    }
+
+    private static Process launchTransformer(String server) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Dmorse.server=" + server);
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("textToMorse.")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("org.TextToMorse.TextToMorse");
+        // The transformer logs every message, which would only slow the run down
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static void shutDown(List<MqttAsyncClient> clients, DisplaySink sink, Process transformer,
+                                 EmbeddedBroker broker) throws MqttException, InterruptedException {
+        if (clients != null) {
+            for (MqttAsyncClient client : clients) {
+                client.disconnect().waitForCompletion();
+                client.close();
+            }
+        }
+        sink.close();
+        if (transformer != null) {
+            transformer.destroy();
+            transformer.waitFor();
+        }
+        if (broker != null) {
+            broker.close();
+        }
+        metrics.close();
+    }
+}
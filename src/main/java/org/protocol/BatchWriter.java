@@ -0,0 +1,80 @@
+package org.protocol;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Packs several text messages into a single {@link WireFormat#TYPE_TEXT_BATCH} payload.
+ * <p>
+ * Records are appended to a growable buffer that is reused from one batch to the next:
+ * {@link #add} writes a complete text message after the batch header, {@link #toPayload()}
+ * returns a copy of the batch and {@link #reset()} starts a new one. Each record keeps its
+ * own id, so subscribers can detect duplicate lines individually. Not thread-safe.
+ *
+ * @version 16.10.2026
+ */
+public final class BatchWriter {
+    private byte[] buffer = new byte[4096];
+    private int position;
+    private int count;
+
+    /**
+     * Creates an empty batch.
+     */
+    public BatchWriter() {
+        reset();
+    }
+
+    /**
+     * Discards the records of the current batch.
+     */
+    public void reset() {
+        position = WireFormat.HEADER_LENGTH;
+        count = 0;
+    }
+
+    /**
+     * Appends a text message to the batch.
+     *
+     * @param id   The id of the text message.
+     * @param utf8 The UTF-8 encoded text.
+     */
+    public void add(UUID id, byte[] utf8) {
+        int required = position + WireFormat.HEADER_LENGTH + utf8.length;
+        if (buffer.length < required) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+        int bodyOffset = WireFormat.writeHeader(buffer, position, WireFormat.TYPE_TEXT,
+                id.getMostSignificantBits(), id.getLeastSignificantBits(), utf8.length);
+        System.arraycopy(utf8, 0, buffer, bodyOffset, utf8.length);
+        position = bodyOffset + utf8.length;
+        count++;
+    }
+
+    /**
+     * @return The number of records in the current batch.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return The size in bytes the current batch payload would have.
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * Completes the batch header with a fresh batch id and returns the payload.
+     *
+     * @return A copy of the batch payload, ready to be published.
+     */
+    public byte[] toPayload() {
+        UUID batchId = UUID.randomUUID();
+        WireFormat.writeHeader(buffer, 0, WireFormat.TYPE_TEXT_BATCH,
+                batchId.getMostSignificantBits(), batchId.getLeastSignificantBits(),
+                position - WireFormat.HEADER_LENGTH);
+        return Arrays.copyOf(buffer, position);
+    }
+}
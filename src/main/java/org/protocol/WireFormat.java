@@ -0,0 +1,308 @@
+package org.protocol;
+
+import java.util.UUID;
+
+/**
+ * Defines the versioned binary payload format exchanged on the event topics
+ * ({@code E/KeyboardEvent} and {@code E/textInMorse}) by all components of the system.
+ * <p>
+ * Every payload starts with a fixed 24 byte header followed by the body:
+ * <pre>
+ * offset  size  field
+ *      0     1  magic byte 'M'
+ *      1     1  format version
+ *      2     1  message type ({@link #TYPE_TEXT}, {@link #TYPE_MORSE}, {@link #TYPE_TEXT_BATCH},
+ *               {@link #TYPE_TEXT_CHUNK}, {@link #TYPE_MORSE_CHUNK} or {@link #TYPE_KEYING})
+ *      3     1  flags ({@link #FLAG_LAST_CHUNK} for chunks, 0 otherwise)
+ *      4    16  message id (UUID, most significant bits first, big-endian)
+ *     20     4  body length (big-endian): symbols for Morse, elements for keying, bytes otherwise
+ *     24     n  body
+ * </pre>
+ * A text body holds the UTF-8 encoded input. A Morse body packs one symbol
+ * ({@link #SYMBOL_DOT}, {@link #SYMBOL_DASH}, {@link #SYMBOL_LETTER_GAP} or
+ * {@link #SYMBOL_WORD_GAP}) into every 2 bits, the first symbol in the highest bits
+ * of the first byte. A text batch body is a sequence of complete text messages, header
+ * included, so that a publisher can pack several lines into a single publish; it is
+ * written with {@link BatchWriter}.
+ * <p>
+ * Long texts can be streamed as a sequence of chunks instead: text chunks and Morse chunks
+ * share the id of their stream, and a 4 byte sequence number (big-endian, from 0) sits between
+ * the header and the body. The last chunk of a stream carries {@link #FLAG_LAST_CHUNK}. A Morse
+ * chunk other than the first starts with the gap separating it from the previous chunk, so the
+ * chunks of a stream play back to back as a single message.
+ * <p>
+ * A keying message carries the timing of a Morse key, e.g. a hand key sampled by a sensor,
+ * and always is a chunk of the stream of its key. Its body is a sequence of 2 byte elements
+ * (big-endian), each the duration in milliseconds of a key-down or key-up period, flagged
+ * with {@link #KEY_DOWN} for the former and saturated at {@link #MAX_KEYING_MILLIS}.
+ * <p>
+ * Encoding is done with the static helpers of this class; decoding is done with the
+ * {@link WireMessage} flyweight directly over the received payload array.
+ *
+ * @version 16.10.2026
+ */
+public final class WireFormat {
+    public static final byte MAGIC = 'M';
+    public static final byte VERSION = 1;
+
+    public static final int TYPE_TEXT = 1;
+    public static final int TYPE_MORSE = 2;
+    public static final int TYPE_TEXT_BATCH = 3;
+    public static final int TYPE_TEXT_CHUNK = 4;
+    public static final int TYPE_MORSE_CHUNK = 5;
+    public static final int TYPE_KEYING = 6;
+
+    public static final int FLAG_LAST_CHUNK = 1;
+
+    public static final int SYMBOL_DOT = 0;
+    public static final int SYMBOL_DASH = 1;
+    public static final int SYMBOL_LETTER_GAP = 2;
+    public static final int SYMBOL_WORD_GAP = 3;
+
+    public static final int KEY_DOWN = 0x8000;
+    public static final int MAX_KEYING_MILLIS = 0x7FFF;
+    static final int KEYING_ELEMENT_LENGTH = 2;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 1;
+    static final int TYPE_OFFSET = 2;
+    static final int FLAGS_OFFSET = 3;
+    static final int ID_OFFSET = 4;
+    static final int LENGTH_OFFSET = 20;
+    public static final int HEADER_LENGTH = 24;
+    static final int SEQUENCE_LENGTH = 4;
+    public static final int CHUNK_HEADER_LENGTH = HEADER_LENGTH + SEQUENCE_LENGTH;
+
+    private WireFormat() {
+    }
+
+    /**
+     * Writes a message header into a buffer.
+     *
+     * @param buffer     The destination buffer.
+     * @param offset     The index of the first header byte in {@code buffer}.
+     * @param type       The message type.
+     * @param idMsb      The most significant bits of the message id.
+     * @param idLsb      The least significant bits of the message id.
+     * @param bodyLength The body length: bytes for text, symbols for Morse.
+     * @return The index right after the header, where the body starts.
+     */
+    public static int writeHeader(byte[] buffer, int offset, int type, long idMsb, long idLsb, int bodyLength) {
+        buffer[offset + MAGIC_OFFSET] = MAGIC;
+        buffer[offset + VERSION_OFFSET] = VERSION;
+        buffer[offset + TYPE_OFFSET] = (byte) type;
+        buffer[offset + FLAGS_OFFSET] = 0;
+        putLong(buffer, offset + ID_OFFSET, idMsb);
+        putLong(buffer, offset + ID_OFFSET + 8, idLsb);
+        putInt(buffer, offset + LENGTH_OFFSET, bodyLength);
+        return offset + HEADER_LENGTH;
+    }
+
+    /**
+     * Writes the header of a chunk, sequence number included, into a buffer.
+     *
+     * @param buffer     The destination buffer.
+     * @param offset     The index of the first header byte in {@code buffer}.
+     * @param type       {@link #TYPE_TEXT_CHUNK} or {@link #TYPE_MORSE_CHUNK}.
+     * @param idMsb      The most significant bits of the stream id.
+     * @param idLsb      The least significant bits of the stream id.
+     * @param sequence   The index of the chunk in the stream.
+     * @param last       Whether the chunk ends the stream.
+     * @param bodyLength The body length: bytes for text, symbols for Morse.
+     * @return The index right after the sequence number, where the body starts.
+     */
+    public static int writeChunkHeader(byte[] buffer, int offset, int type, long idMsb, long idLsb,
+                                       int sequence, boolean last, int bodyLength) {
+        int sequenceOffset = writeHeader(buffer, offset, type, idMsb, idLsb, bodyLength);
+        buffer[offset + FLAGS_OFFSET] = last ? (byte) FLAG_LAST_CHUNK : 0;
+        putInt(buffer, sequenceOffset, sequence);
+        return sequenceOffset + SEQUENCE_LENGTH;
+    }
+
+    /**
+     * Updates the body length of a header previously written by {@link #writeHeader}.
+     * Used when the length is only known once the body has been written.
+     *
+     * @param buffer     The buffer holding the header.
+     * @param offset     The index of the first header byte in {@code buffer}.
+     * @param bodyLength The body length: bytes for text, symbols for Morse.
+     */
+    public static void setBodyLength(byte[] buffer, int offset, int bodyLength) {
+        putInt(buffer, offset + LENGTH_OFFSET, bodyLength);
+    }
+
+    /**
+     * Replaces the message id of a header previously written by {@link #writeHeader}.
+     * Used to send a copy of a message as a new message.
+     *
+     * @param buffer The buffer holding the header.
+     * @param offset The index of the first header byte in {@code buffer}.
+     * @param idMsb  The most significant bits of the new message id.
+     * @param idLsb  The least significant bits of the new message id.
+     */
+    public static void setId(byte[] buffer, int offset, long idMsb, long idLsb) {
+        putLong(buffer, offset + ID_OFFSET, idMsb);
+        putLong(buffer, offset + ID_OFFSET + 8, idLsb);
+    }
+
+    /**
+     * Creates a complete text message.
+     *
+     * @param id   The message id.
+     * @param utf8 The UTF-8 encoded text.
+     * @return The payload, ready to be published.
+     */
+    public static byte[] encodeText(UUID id, byte[] utf8) {
+        byte[] payload = new byte[HEADER_LENGTH + utf8.length];
+        int bodyOffset = writeHeader(payload, 0, TYPE_TEXT,
+                id.getMostSignificantBits(), id.getLeastSignificantBits(), utf8.length);
+        System.arraycopy(utf8, 0, payload, bodyOffset, utf8.length);
+        return payload;
+    }
+
+    /**
+     * Creates a complete text chunk.
+     *
+     * @param stream   The stream id, shared by all chunks of the text.
+     * @param sequence The index of the chunk in the stream.
+     * @param last     Whether the chunk ends the stream.
+     * @param utf8     The array holding the UTF-8 encoded text of the chunk.
+     * @param offset   The index of the first text byte.
+     * @param length   The number of text bytes.
+     * @return The payload, ready to be published.
+     */
+    public static byte[] encodeTextChunk(UUID stream, int sequence, boolean last, byte[] utf8, int offset, int length) {
+        byte[] payload = new byte[CHUNK_HEADER_LENGTH + length];
+        int bodyOffset = writeChunkHeader(payload, 0, TYPE_TEXT_CHUNK,
+                stream.getMostSignificantBits(), stream.getLeastSignificantBits(), sequence, last, length);
+        System.arraycopy(utf8, offset, payload, bodyOffset, length);
+        return payload;
+    }
+
+    /**
+     * Creates a complete keying message.
+     *
+     * @param stream   The id of the stream of the key.
+     * @param sequence The index of the message in the stream.
+     * @param last     Whether the message ends the stream.
+     * @param elements The array holding the elements, see {@link #keyingElement}.
+     * @param offset   The index of the first element.
+     * @param length   The number of elements.
+     * @return The payload, ready to be published.
+     */
+    public static byte[] encodeKeying(UUID stream, int sequence, boolean last, int[] elements, int offset, int length) {
+        byte[] payload = new byte[CHUNK_HEADER_LENGTH + length * KEYING_ELEMENT_LENGTH];
+        int bodyOffset = writeChunkHeader(payload, 0, TYPE_KEYING,
+                stream.getMostSignificantBits(), stream.getLeastSignificantBits(), sequence, last, length);
+        for (int i = 0; i < length; i++) {
+            int element = elements[offset + i];
+            payload[bodyOffset + i * KEYING_ELEMENT_LENGTH] = (byte) (element >>> 8);
+            payload[bodyOffset + i * KEYING_ELEMENT_LENGTH + 1] = (byte) element;
+        }
+        return payload;
+    }
+
+    /**
+     * Builds a keying element.
+     *
+     * @param down   Whether the key was down.
+     * @param millis The duration of the period, saturated at {@link #MAX_KEYING_MILLIS}.
+     * @return The element.
+     */
+    public static int keyingElement(boolean down, long millis) {
+        return (down ? KEY_DOWN : 0) | Math.clamp(millis, 0, MAX_KEYING_MILLIS);
+    }
+
+    /**
+     * Reads an element of a keying body.
+     *
+     * @param buffer     The buffer holding the body.
+     * @param bodyOffset The index of the first body byte in {@code buffer}.
+     * @param index      The index of the element in the body.
+     * @return The element: {@link #KEY_DOWN} if the key was down, or-ed with the duration in milliseconds.
+     */
+    public static int keyingAt(byte[] buffer, int bodyOffset, int index) {
+        int position = bodyOffset + index * KEYING_ELEMENT_LENGTH;
+        return ((buffer[position] & 0xFF) << 8) | (buffer[position + 1] & 0xFF);
+    }
+
+    /**
+     * @param type A message type.
+     * @return {@code true} if messages of that type are chunks of a stream.
+     */
+    public static boolean isChunk(int type) {
+        return type == TYPE_TEXT_CHUNK || type == TYPE_MORSE_CHUNK || type == TYPE_KEYING;
+    }
+
+    /**
+     * @param type A message type.
+     * @return {@code true} if the body of messages of that type holds packed Morse symbols.
+     */
+    public static boolean isMorse(int type) {
+        return type == TYPE_MORSE || type == TYPE_MORSE_CHUNK;
+    }
+
+    /**
+     * Returns the number of bytes needed to store packed Morse symbols.
+     *
+     * @param symbolCount The number of symbols.
+     * @return The size of the packed body in bytes.
+     */
+    public static int packedLength(int symbolCount) {
+        return (symbolCount + 3) >>> 2;
+    }
+
+    /**
+     * Stores a 2-bit symbol into a packed Morse body.
+     *
+     * @param buffer     The buffer holding the body.
+     * @param bodyOffset The index of the first body byte in {@code buffer}.
+     * @param index      The index of the symbol in the body.
+     * @param symbol     The symbol to store.
+     */
+    public static void putSymbol(byte[] buffer, int bodyOffset, int index, int symbol) {
+        int position = bodyOffset + (index >>> 2);
+        int shift = 6 - ((index & 3) << 1);
+        buffer[position] = (byte) ((buffer[position] & ~(3 << shift)) | (symbol << shift));
+    }
+
+    /**
+     * Reads a 2-bit symbol from a packed Morse body.
+     *
+     * @param buffer     The buffer holding the body.
+     * @param bodyOffset The index of the first body byte in {@code buffer}.
+     * @param index      The index of the symbol in the body.
+     * @return The symbol.
+     */
+    public static int symbolAt(byte[] buffer, int bodyOffset, int index) {
+        int shift = 6 - ((index & 3) << 1);
+        return (buffer[bodyOffset + (index >>> 2)] >>> shift) & 3;
+    }
+
+    static void putLong(byte[] buffer, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            buffer[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    static long getLong(byte[] buffer, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    static int getInt(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16)
+                | ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,234 @@
+package org.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * A reusable, zero-copy view of a message in the {@link WireFormat} layout.
+ * <p>
+ * {@link #wrap(byte[])} only validates the header and remembers where the message lies
+ * in the given array; the accessors then read the fields straight from that array.
+ * Nothing is copied, so a subscriber can decode the payload of an {@code MqttMessage}
+ * without building any intermediate {@code String}. A view is not thread-safe and
+ * is meant to be reused by the thread that owns it.
+ *
+ * @version 16.10.2026
+ */
+public final class WireMessage {
+    private byte[] buffer;
+    private int offset;
+
+    /**
+     * Points this view to a payload holding a single message.
+     *
+     * @param payload The received payload.
+     * @return {@code true} if the payload holds a valid message of a supported version,
+     * {@code false} otherwise, in which case the view must not be read.
+     */
+    public boolean wrap(byte[] payload) {
+        return wrap(payload, 0, payload.length);
+    }
+
+    /**
+     * Points this view to a message stored in a region of a buffer.
+     *
+     * @param buffer The buffer holding the message.
+     * @param offset The index of the first header byte.
+     * @param length The number of bytes available from {@code offset}.
+     * @return {@code true} if the region holds a valid message of a supported version,
+     * {@code false} otherwise, in which case the view must not be read.
+     */
+    public boolean wrap(byte[] buffer, int offset, int length) {
+        this.buffer = null;
+        if (length < WireFormat.HEADER_LENGTH
+                || buffer[offset + WireFormat.MAGIC_OFFSET] != WireFormat.MAGIC
+                || buffer[offset + WireFormat.VERSION_OFFSET] != WireFormat.VERSION) {
+            return false;
+        }
+        int type = buffer[offset + WireFormat.TYPE_OFFSET];
+        int bodyLength = WireFormat.getInt(buffer, offset + WireFormat.LENGTH_OFFSET);
+        long bodyBytes;
+        if (type == WireFormat.TYPE_TEXT || type == WireFormat.TYPE_TEXT_BATCH || type == WireFormat.TYPE_TEXT_CHUNK) {
+            bodyBytes = bodyLength;
+        } else if (WireFormat.isMorse(type)) {
+            bodyBytes = WireFormat.packedLength(bodyLength);
+        } else if (type == WireFormat.TYPE_KEYING) {
+            bodyBytes = (long) bodyLength * WireFormat.KEYING_ELEMENT_LENGTH;
+        } else {
+            return false;
+        }
+        if (bodyLength < 0 || bodyStart(type) + bodyBytes > length) {
+            return false;
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        return true;
+    }
+
+    /**
+     * @return The message type, {@link WireFormat#TYPE_TEXT}, {@link WireFormat#TYPE_MORSE},
+     * {@link WireFormat#TYPE_TEXT_BATCH}, {@link WireFormat#TYPE_TEXT_CHUNK}, {@link WireFormat#TYPE_MORSE_CHUNK}
+     * or {@link WireFormat#TYPE_KEYING}.
+     */
+    public int type() {
+        return buffer[offset + WireFormat.TYPE_OFFSET];
+    }
+
+    /**
+     * @return {@code true} if the message is a chunk of a stream, the id being the stream id.
+     */
+    public boolean isChunk() {
+        return WireFormat.isChunk(type());
+    }
+
+    /**
+     * @return The index of the chunk in its stream. Only valid for chunks.
+     */
+    public int sequence() {
+        return WireFormat.getInt(buffer, offset + WireFormat.HEADER_LENGTH);
+    }
+
+    /**
+     * @return {@code true} if the message is the last chunk of its stream.
+     */
+    public boolean isLastChunk() {
+        return isChunk() && (buffer[offset + WireFormat.FLAGS_OFFSET] & WireFormat.FLAG_LAST_CHUNK) != 0;
+    }
+
+    /**
+     * @return The most significant bits of the message id.
+     */
+    public long idMostSignificantBits() {
+        return WireFormat.getLong(buffer, offset + WireFormat.ID_OFFSET);
+    }
+
+    /**
+     * @return The least significant bits of the message id.
+     */
+    public long idLeastSignificantBits() {
+        return WireFormat.getLong(buffer, offset + WireFormat.ID_OFFSET + 8);
+    }
+
+    /**
+     * @return The array this view reads from.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return The index in {@link #buffer()} of the first body byte.
+     */
+    public int bodyOffset() {
+        return offset + bodyStart(type());
+    }
+
+    /**
+     * @return The body length as stored in the header: symbols for Morse, elements for keying, bytes otherwise.
+     */
+    public int bodyLength() {
+        return WireFormat.getInt(buffer, offset + WireFormat.LENGTH_OFFSET);
+    }
+
+    /**
+     * @return The total number of bytes of the message, header included.
+     */
+    public int messageLength() {
+        int bodyLength = bodyLength();
+        if (type() == WireFormat.TYPE_KEYING) {
+            return bodyStart(type()) + bodyLength * WireFormat.KEYING_ELEMENT_LENGTH;
+        }
+        return bodyStart(type())
+                + (WireFormat.isMorse(type()) ? WireFormat.packedLength(bodyLength) : bodyLength);
+    }
+
+    /**
+     * Points this view to a message of a batch. The first record starts at the
+     * {@link #bodyOffset()} of the batch and each following one right after the
+     * {@link #messageLength()} of the previous record.
+     *
+     * @param batch    A view of the batch.
+     * @param position The index in the batch buffer of the record to read.
+     * @return {@code true} if a valid record lies at that position within the batch body,
+     * {@code false} at the end of the batch or if the record is malformed.
+     */
+    public boolean wrapRecord(WireMessage batch, int position) {
+        int end = batch.bodyOffset() + batch.bodyLength();
+        return position < end && wrap(batch.buffer(), position, end - position);
+    }
+
+    /**
+     * Reads a symbol of a Morse message.
+     *
+     * @param index The index of the symbol, between 0 and {@link #bodyLength()} excluded.
+     * @return The symbol.
+     */
+    public int symbolAt(int index) {
+        return WireFormat.symbolAt(buffer, bodyOffset(), index);
+    }
+
+    /**
+     * Reads an element of a keying message.
+     *
+     * @param index The index of the element, between 0 and {@link #bodyLength()} excluded.
+     * @return The element, see {@link WireFormat#keyingAt}.
+     */
+    public int keyingAt(int index) {
+        return WireFormat.keyingAt(buffer, bodyOffset(), index);
+    }
+
+    /**
+     * @return The message id as a {@code UUID}. Allocates, meant for logging.
+     */
+    public UUID id() {
+        return new UUID(idMostSignificantBits(), idLeastSignificantBits());
+    }
+
+    /**
+     * Renders the body in a human-readable form: the text itself, the Morse
+     * code using {@code '.'}, {@code '-'}, {@code ' '} and {@code " / "}, or the keying periods.
+     * Allocates, meant for logging.
+     *
+     * @return The readable body.
+     */
+    @Override
+    public String toString() {
+        if (buffer == null) {
+            return "<invalid>";
+        }
+        if (type() == WireFormat.TYPE_TEXT || type() == WireFormat.TYPE_TEXT_CHUNK) {
+            return new String(buffer, bodyOffset(), bodyLength(), StandardCharsets.UTF_8);
+        }
+        if (type() == WireFormat.TYPE_TEXT_BATCH) {
+            return "<batch of " + bodyLength() + " bytes>";
+        }
+        if (type() == WireFormat.TYPE_KEYING) {
+            // Key-down periods as +millis, key-up periods as -millis
+            StringBuilder builder = new StringBuilder(bodyLength() * 5);
+            for (int i = 0, count = bodyLength(); i < count; i++) {
+                int element = keyingAt(i);
+                builder.append(i == 0 ? "" : " ").append((element & WireFormat.KEY_DOWN) != 0 ? '+' : '-')
+                        .append(element & WireFormat.MAX_KEYING_MILLIS);
+            }
+            return builder.toString();
+        }
+        StringBuilder builder = new StringBuilder(bodyLength() + 8);
+        for (int i = 0, count = bodyLength(); i < count; i++) {
+            switch (symbolAt(i)) {
+                case WireFormat.SYMBOL_DOT -> builder.append('.');
+                case WireFormat.SYMBOL_DASH -> builder.append('-');
+                case WireFormat.SYMBOL_LETTER_GAP -> builder.append(' ');
+                default -> builder.append(" / ");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param type A message type.
+     * @return The distance from the first header byte to the body: the header and, for chunks, the sequence number.
+     */
+    private static int bodyStart(int type) {
+        return WireFormat.isChunk(type) ? WireFormat.CHUNK_HEADER_LENGTH : WireFormat.HEADER_LENGTH;
+    }
+}
@@ -0,0 +1,46 @@
+package org.supervisor;
+
+/**
+ * The components a {@link Supervisor} can run, with the status topic on which each one
+ * reports itself "Online" once connected, and "Offline" through its will.
+ *
+ * @version 16.10.2026
+ */
+public enum Service {
+    MORSE_DISPLAY("org.display.MorseDisplay", "S/morseDisplay"),
+    MORSE_TO_TEXT("org.MorseToText.MorseToText", "S/morseInText"),
+    TEXT_TO_MORSE("org.TextToMorse.TextToMorse", "S/textInMorse"),
+    KEYBOARD_ENTRY("org.KeyboardEntry.KeyboardEntry", "S/KeyboardEvent");
+
+    private final String mainClass;
+    private final String statusTopic;
+
+    Service(String mainClass, String statusTopic) {
+        this.mainClass = mainClass;
+        this.statusTopic = statusTopic;
+    }
+
+    /**
+     * @return The fully qualified name of the class holding the {@code main} method.
+     */
+    public String mainClass() {
+        return mainClass;
+    }
+
+    /**
+     * @return The status topic of the component.
+     */
+    public String statusTopic() {
+        return statusTopic;
+    }
+
+    /**
+     * @param topic A status topic.
+     * @return {@code true} if the component reports on that topic, including the per-instance
+     * sub-topics of a scaled-out transformer.
+     */
+    boolean reportsOn(String topic) {
+        return topic.startsWith(statusTopic)
+                && (topic.length() == statusTopic.length() || topic.charAt(statusTopic.length()) == '/');
+    }
+}
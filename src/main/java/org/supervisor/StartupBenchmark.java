@@ -0,0 +1,118 @@
+package org.supervisor;
+
+import org.broker.EmbeddedBroker;
+import org.common.LatencyHistogram;
+import org.common.Metrics;
+import org.eclipse.paho.mqttv5.common.MqttException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the components take to start, from the launch of their JVM to their
+ * "Online" status, which each one publishes right after connecting to the broker. This is
+ * the time a restarted component is missing from the pipeline.
+ * <p>
+ * Each component listed by {@code startupBenchmark.services} is launched
+ * {@code startupBenchmark.runs} times against an {@link EmbeddedBroker} on a free port, or
+ * the broker of {@code morse.server} when set, and stopped once online. With
+ * {@code startupBenchmark.aotCache} naming the cache of the {@code startup} Maven profile
+ * (see {@link TrainingRun}), every run is repeated from the cache, so the two can be
+ * compared. The display runs headless, and {@code startupBenchmark.jvmOptions} are passed to
+ * every component, e.g. a garbage collector to compare. The settings are read from system
+ * properties prefixed with {@code startupBenchmark.}; the class path is the one of this JVM,
+ * which must be the one the cache was trained with.
+ *
+ * @version 16.10.2026
+ */
+public class StartupBenchmark {
+    private static final String services = System.getProperty("startupBenchmark.services",
+            "MORSE_DISPLAY,MORSE_TO_TEXT,TEXT_TO_MORSE,KEYBOARD_ENTRY");
+    private static final int runs = Integer.getInteger("startupBenchmark.runs", 10);
+    private static final String aotCache = System.getProperty("startupBenchmark.aotCache");
+    private static final String jvmOptions = System.getProperty("startupBenchmark.jvmOptions", "");
+    private static final long timeoutMillis = Long.getLong("startupBenchmark.timeoutMillis", 20_000);
+
+    private static final Metrics metrics = new Metrics("startupBenchmark");
+
+    /**
+     * Launches the components, prints the startup times and exits.
+     *
+     * @throws IOException          if the broker or a component cannot be started.
+     * @throws MqttException        if the status monitor cannot connect to the broker.
+     * @throws InterruptedException if interrupted while waiting for a component.
+     */
+    static void main() throws IOException, MqttException, InterruptedException {
+        String server = System.getProperty("morse.server");
+        if (server == null) {
+            server = EmbeddedBroker.start(0, new Metrics("broker")).uri();
+        }
+        List<String> variants = new ArrayList<>(List.of("default"));
+        if (aotCache != null) {
+            variants.add("aotCache");
+        }
+        try (StatusMonitor monitor = new StatusMonitor(server, "startupBenchmark", metrics)) {
+            for (String name : services.split(",")) {
+                Service service = Service.valueOf(name.trim().toUpperCase(Locale.ROOT));
+                for (String variant : variants) {
+                    LatencyHistogram startup = metrics.histogram(service + "." + variant);
+                    // The first launch warms up the file system cache and the broker, it is not counted
+                    launch(monitor, service, server, variant);
+                    for (int run = 0; run < runs; run++) {
+                        long elapsed = launch(monitor, service, server, variant);
+                        if (elapsed >= 0) {
+                            startup.record(elapsed);
+                        }
+                    }
+                    System.out.printf("%-14s %-8s startup (ms): min %.0f, p50 %.0f, max %.0f, %d of %d online%n",
+                            service, variant, startup.percentile(0) / 1e6, startup.percentile(50) / 1e6,
+                            startup.max() / 1e6, startup.count(), runs);
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Launches a component, waits until it is online and stops it.
+     *
+     * @return The time from the launch to the "Online" status, or -1 on timeout.
+     */
+    private static long launch(StatusMonitor monitor, Service service, String server, String variant)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String option : jvmOptions.trim().split("\\s+")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        if (variant.equals("aotCache")) {
+            command.add("-XX:AOTCache=" + aotCache);
+        }
+        command.add("-Dmorse.server=" + server);
+        command.add("-Djava.awt.headless=true");
+        command.add("-DmorseDisplay.headless=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(service.mainClass());
+        long startedNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            return monitor.awaitOnline(service, startedNanos, timeoutMillis)
+                    ? System.nanoTime() - startedNanos : -1;
+        } finally {
+            process.destroy();
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
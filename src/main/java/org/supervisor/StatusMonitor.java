@@ -0,0 +1,163 @@
+package org.supervisor;
+
+import org.common.Log;
+import org.common.Metrics;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttCallback;
+import org.eclipse.paho.mqttv5.client.MqttClient;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.MqttDisconnectResponse;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Follows the {@code S/*} status topics of the supervised components, which is how the
+ * {@link Supervisor} tells that a component is ready and whether it is still healthy.
+ * <p>
+ * Only statuses published while the monitor is connected count: a retained "Online" left
+ * by a previous run says nothing about the component just started. A component is thus
+ * ready once it publishes "Online" after being started, and unhealthy while the broker
+ * reports its will, "Offline", as its latest status. Times are {@code System.nanoTime()}
+ * values.
+ *
+ * @version 16.10.2026
+ */
+final class StatusMonitor implements AutoCloseable {
+    private static final Log log = Log.get("StatusMonitor");
+
+    private final MqttClient client;
+    private final Map<Service, Long> lastOnline = new EnumMap<>(Service.class);
+    private final Map<Service, Long> lastOffline = new EnumMap<>(Service.class);
+
+    /**
+     * Connects the monitor and subscribes to the status topics, and to the metrics requests
+     * of the supervisor.
+     *
+     * @param server   The broker URI.
+     * @param clientId The client id of the supervisor.
+     * @param metrics  The metrics of the supervisor, sent on request.
+     * @throws MqttException if the monitor cannot connect or subscribe.
+     */
+    StatusMonitor(String server, String clientId, Metrics metrics) throws MqttException {
+        client = new MqttClient(server, clientId, new MemoryPersistence());
+        client.setCallback(new MqttCallback() {
+            @Override
+            public void disconnected(MqttDisconnectResponse disconnectResponse) {
+                log.warn("disconnected", "reason", disconnectResponse.getReasonString());
+            }
+
+            @Override
+            public void mqttErrorOccurred(MqttException exception) {
+                log.error("mqttError", "reason", exception.getMessage());
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) throws Exception {
+                if (topic.equals(metrics.requestTopic())) {
+                    client.publish(metrics.topic(), metrics.snapshotMessage());
+                } else if (!message.isRetained()) {
+                    statusChanged(topic, new String(message.getPayload()));
+                }
+            }
+
+            @Override
+            public void deliveryComplete(IMqttToken token) {
+                // Nothing is published but metrics snapshots
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                if (reconnect) {
+                    try {
+                        subscribe(metrics);
+                    } catch (MqttException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+
+            @Override
+            public void authPacketArrived(int reasonCode, MqttProperties properties) {
+                // Not used here
+            }
+        });
+        MqttConnectionOptions options = new MqttConnectionOptions();
+        options.setCleanStart(true);
+        options.setAutomaticReconnect(true);
+        client.connect(options);
+        // Subscribed before returning, so that no status of the components started next is missed
+        subscribe(metrics);
+    }
+
+    private void subscribe(Metrics metrics) throws MqttException {
+        client.subscribe(new String[]{"S/#", metrics.requestTopic()}, new int[]{1, 0});
+    }
+
+    private synchronized void statusChanged(String topic, String status) {
+        for (Service service : Service.values()) {
+            if (service.reportsOn(topic)) {
+                (status.equals("Online") ? lastOnline : lastOffline).put(service, System.nanoTime());
+                log.info("statusChanged", "service", service, "status", status);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until a component reports itself online.
+     *
+     * @param service       The component.
+     * @param sinceNanos    Only a status published after this time counts, e.g. its start.
+     * @param timeoutMillis The maximum time to wait.
+     * @return {@code true} if the component is online.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    synchronized boolean awaitOnline(Service service, long sinceNanos, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        while (!wasOnline(service, sinceNanos)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(Math.max(1, remaining / 1_000_000));
+        }
+        return true;
+    }
+
+    /**
+     * @param service    The component.
+     * @param sinceNanos Only statuses published after this time count.
+     * @return {@code true} if the component reported itself online since then.
+     */
+    synchronized boolean wasOnline(Service service, long sinceNanos) {
+        Long online = lastOnline.get(service);
+        return online != null && online - sinceNanos >= 0;
+    }
+
+    /**
+     * @param service    The component.
+     * @param sinceNanos Only statuses published after this time count.
+     * @return The time since which the component is reported offline, or -1 if its latest
+     * status since then is "Online" or if there is none.
+     */
+    synchronized long offlineSince(Service service, long sinceNanos) {
+        Long offline = lastOffline.get(service);
+        if (offline == null || offline - sinceNanos < 0) {
+            return -1;
+        }
+        Long online = lastOnline.get(service);
+        return online != null && online - offline > 0 ? -1 : offline;
+    }
+
+    @Override
+    public void close() throws MqttException {
+        client.disconnect();
+        client.close();
+    }
+}
@@ -0,0 +1,368 @@
+package org.supervisor;
+
+import org.broker.EmbeddedBroker;
+import org.common.Config;
+import org.common.LatencyHistogram;
+import org.common.Log;
+import org.common.Metrics;
+import org.eclipse.paho.mqttv5.common.MqttException;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts and watches the components of the system without a desktop, the headless
+ * counterpart of the {@link org.ProcessLauncher}.
+ * <p>
+ * The components listed by {@code supervisor.services} are started one after the other, each
+ * once the previous one has reported itself "Online" on its status topic (see
+ * {@link StatusMonitor}), so the consumers are subscribed before the producers publish. The
+ * {@code supervisor.mode} setting selects how they run:
+ * <ul>
+ *     <li>{@code PROCESSES} (default): each component is a child JVM. A child that exits with
+ *     an error, never becomes ready, or stays reported "Offline" is stopped and started again,
+ *     at once after a first failure, then with a delay doubling after each further failure;
+ *     a child that exits normally, e.g. the keyboard after "quit", is left stopped. Stopping
+ *     the supervisor stops the children.</li>
+ *     <li>{@code IN_PROCESS}: all components run in this JVM, each loaded by its own class
+ *     loader so that their settings, metrics and loggers stay as separate as in their own
+ *     processes. A single JVM starts much faster and uses far less memory, but a component
+ *     cannot be restarted on its own: failures are only logged.</li>
+ * </ul>
+ * With {@code supervisor.broker=true} an {@link EmbeddedBroker} is started first, so a node
+ * needs nothing but a JVM. The display runs headless unless {@code supervisor.headless} is
+ * false, animating its lights and recording its metrics without a window.
+ * <p>
+ * A restarted child rejoins within a JVM startup and a broker connection. With
+ * {@code supervisor.aotCache} naming the cache built by the {@code startup} Maven profile (see
+ * {@link TrainingRun}), the children start from its pre-loaded and pre-linked classes, which
+ * more than halves that time. The cache only serves the class path it was trained with, and
+ * only to child processes: the class loaders of the {@code IN_PROCESS} mode cannot use it.
+ *
+ * @version 16.10.2026
+ */
+public class Supervisor {
+    /**
+     * How the components run.
+     */
+    enum Mode {PROCESSES, IN_PROCESS}
+
+    private static final Config config = Config.load();
+    private static final String clientId = config.string("supervisor.clientId", "supervisor");
+    private static final Mode mode = config.choice("supervisor.mode", Mode.PROCESSES);
+    private static final String services = config.string("supervisor.services",
+            "MORSE_DISPLAY,TEXT_TO_MORSE,KEYBOARD_ENTRY");
+    private static final boolean embeddedBroker = config.flag("supervisor.broker", false);
+    private static final boolean headless = config.flag("supervisor.headless", true);
+    private static final String jvmOptions = config.string("supervisor.jvmOptions", "");
+    private static final String aotCache = config.string("supervisor.aotCache", null);
+    private static final long readyTimeoutMillis = config.longValue("supervisor.readyTimeoutMillis", 20_000);
+    // How long a running child may stay reported offline, e.g. while its client reconnects
+    private static final long offlineGraceMillis = config.longValue("supervisor.offlineGraceMillis", 10_000);
+    private static final long restartDelayMillis = config.longValue("supervisor.restartDelayMillis", 1_000);
+    private static final long MAX_RESTART_DELAY_MILLIS = 30_000;
+    // A child running this long is considered recovered, its next failure restarts it at once
+    private static final long STABLE_MILLIS = 60_000;
+    private static final long STOP_TIMEOUT_MILLIS = 5_000;
+    private static final long CHECK_INTERVAL_MILLIS = 500;
+    // Settings passed on to the children as system properties, by prefix
+    private static final Set<String> FORWARDED_PREFIXES = Set.of("morse", "log", "textToMorse", "morseToText",
+            "morseDisplay", "keyboardEntry");
+
+    private static final Metrics metrics = Metrics.start(clientId, config);
+    private static final LatencyHistogram readyLatency = metrics.histogram("ready");
+    private static final LongAdder restartCount = metrics.counter("restarts");
+    private static final Log log = Log.get("Supervisor");
+    // Notified when a child exits, so that it is restarted without waiting for the next check
+    private static final Object childExited = new Object();
+
+    /**
+     * The main entry point of the supervisor. Returns once the components are started, the
+     * children being watched by a non-daemon thread.
+     *
+     * @throws MqttException        if the status monitor cannot connect to the broker.
+     * @throws IOException          if the embedded broker or a child process cannot be started.
+     * @throws InterruptedException if interrupted while waiting for a component to be ready.
+     */
+    static void main() throws MqttException, IOException, InterruptedException {
+        Log.configure(config, metrics);
+        long start = System.nanoTime();
+        String server = config.string("morse.server", "tcp://localhost:1883");
+        if (embeddedBroker) {
+            EmbeddedBroker broker = EmbeddedBroker.start(config.integer("broker.port", 1883), new Metrics("broker"));
+            server = broker.uri();
+            log.info("brokerStarted", "uri", server);
+        }
+        StatusMonitor monitor = new StatusMonitor(server, clientId, metrics);
+        List<Service> order = new ArrayList<>();
+        for (String name : services.split(",")) {
+            order.add(Service.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        }
+        if (mode == Mode.IN_PROCESS) {
+            startInProcess(order, server, monitor);
+        } else {
+            startProcesses(order, server, monitor);
+        }
+        log.info("started", "services", order, "millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        // Not before, so the MBean server does not compete with the components starting up
+        metrics.exportJmx();
+    }
+
+    /**
+     * Waits for a component just started and records how long it took to be ready.
+     */
+    private static void awaitReady(StatusMonitor monitor, Service service, long startedNanos)
+            throws InterruptedException {
+        if (monitor.awaitOnline(service, startedNanos, readyTimeoutMillis)) {
+            long elapsed = System.nanoTime() - startedNanos;
+            readyLatency.record(elapsed);
+            log.info("ready", "service", service, "millis", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } else {
+            log.warn("notReady", "service", service, "timeoutMillis", readyTimeoutMillis);
+        }
+    }
+
+    // --- Components in this JVM ---
+
+    private static void startInProcess(List<Service> order, String server, StatusMonitor monitor)
+            throws MalformedURLException, InterruptedException {
+        // Seen by the components through their settings; system properties are shared by the JVM
+        System.setProperty("morse.server", server);
+        if (headless) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        URL[] classPath = classPath();
+        for (Service service : order) {
+            long startedNanos = System.nanoTime();
+            // Loaded apart from the supervisor and from each other, so that their static state is not shared
+            ClassLoader loader = new URLClassLoader(service.name(), classPath, ClassLoader.getPlatformClassLoader());
+            Thread.ofPlatform().name(service.name()).start(() -> runMain(service, loader));
+            awaitReady(monitor, service, startedNanos);
+        }
+    }
+
+    /**
+     * Runs the {@code main} method of a component on the calling thread, logging its failure.
+     *
+     * @param service The component.
+     * @param loader  The class loader to load the component from.
+     */
+    static void runMain(Service service, ClassLoader loader) {
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            Method main = Class.forName(service.mainClass(), true, loader).getDeclaredMethod("main");
+            main.setAccessible(true);
+            main.invoke(null);
+        } catch (InvocationTargetException e) {
+            log.error("serviceFailed", "service", service, "reason", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            log.error("serviceNotStarted", "service", service, "reason", e);
+        }
+    }
+
+    private static URL[] classPath() throws MalformedURLException {
+        String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+        URL[] urls = new URL[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            urls[i] = Path.of(entries[i]).toUri().toURL();
+        }
+        return urls;
+    }
+
+    // --- Child processes ---
+
+    private static void startProcesses(List<Service> order, String server, StatusMonitor monitor)
+            throws IOException, InterruptedException {
+        List<Child> children = new ArrayList<>();
+        for (Service service : order) {
+            Child child = new Child(service, command(service, server));
+            children.add(child);
+            child.start();
+            awaitReady(monitor, service, child.startedNanos);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // In reverse order, the producers first
+            for (int i = children.size() - 1; i >= 0; i--) {
+                children.get(i).stop();
+            }
+        }, "supervisor-stop"));
+        Thread.ofPlatform().name("supervisor-watch").start(() -> watch(children, monitor));
+    }
+
+    private static void watch(List<Child> children, StatusMonitor monitor) {
+        try {
+            while (true) {
+                synchronized (childExited) {
+                    childExited.wait(CHECK_INTERVAL_MILLIS);
+                }
+                for (Child child : children) {
+                    child.check(monitor);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> command(Service service, String server) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String option : jvmOptions.trim().split("\\s+")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        if (aotCache != null) {
+            if (Files.isRegularFile(Path.of(aotCache))) {
+                command.add("-XX:AOTCache=" + aotCache);
+            } else {
+                log.warn("aotCacheMissing", "path", aotCache);
+            }
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            int dot = name.indexOf('.');
+            if (dot > 0 && FORWARDED_PREFIXES.contains(name.substring(0, dot))) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-Dmorse.server=" + server);
+        if (headless && service == Service.MORSE_DISPLAY) {
+            command.add("-Djava.awt.headless=true");
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(service.mainClass());
+        return command;
+    }
+
+    /**
+     * A child process and its restart state, only touched by the thread starting the
+     * children and then by the watching thread.
+     */
+    private static final class Child {
+        private final Service service;
+        private final List<String> command;
+        private volatile Process process;
+        private volatile boolean finished;
+        private long startedNanos;
+        private long stoppingSinceNanos = -1;
+        private long restartAtNanos = -1;
+        private int failures;
+
+        Child(Service service, List<String> command) {
+            this.service = service;
+            this.command = command;
+        }
+
+        void start() throws IOException {
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT);
+            if (service == Service.KEYBOARD_ENTRY) {
+                // The only component reading its standard input
+                builder.redirectInput(ProcessBuilder.Redirect.INHERIT);
+            }
+            startedNanos = System.nanoTime();
+            process = builder.start();
+            process.onExit().thenRun(() -> {
+                synchronized (childExited) {
+                    childExited.notifyAll();
+                }
+            });
+            stoppingSinceNanos = -1;
+            restartAtNanos = -1;
+            log.info("serviceStarted", "service", service, "pid", process.pid());
+        }
+
+        void check(StatusMonitor monitor) {
+            long now = System.nanoTime();
+            if (!finished && process != null && !process.isAlive()) {
+                exited(now);
+            }
+            if (finished) {
+                return;
+            }
+            if (process == null) {
+                // Also right after the exit, when it is restarted without delay
+                if (now - restartAtNanos >= 0) {
+                    restart();
+                }
+                return;
+            }
+            if (stoppingSinceNanos >= 0) {
+                if (now - stoppingSinceNanos > TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MILLIS)) {
+                    process.destroyForcibly();
+                }
+            } else if (!monitor.wasOnline(service, startedNanos)
+                    && now - startedNanos > TimeUnit.MILLISECONDS.toNanos(readyTimeoutMillis)) {
+                unhealthy(now, "notReady");
+            } else {
+                long offline = monitor.offlineSince(service, startedNanos);
+                if (offline >= 0 && now - offline > TimeUnit.MILLISECONDS.toNanos(offlineGraceMillis)) {
+                    unhealthy(now, "offline");
+                }
+            }
+        }
+
+        private void exited(long now) {
+            int exitCode = process.exitValue();
+            process = null;
+            if (exitCode == 0 && stoppingSinceNanos < 0) {
+                finished = true;
+                log.info("serviceExited", "service", service);
+                return;
+            }
+            failures = now - startedNanos > TimeUnit.MILLISECONDS.toNanos(STABLE_MILLIS) ? 0 : failures + 1;
+            // A single crash is restarted at once, a crash loop is slowed down
+            long delay = failures <= 1 ? 0
+                    : Math.min(MAX_RESTART_DELAY_MILLIS, restartDelayMillis << Math.min(failures - 2, 16));
+            restartAtNanos = now + TimeUnit.MILLISECONDS.toNanos(delay);
+            log.warn("serviceFailed", "service", service, "exitCode", exitCode);
+        }
+
+        private void unhealthy(long now, String reason) {
+            log.warn("serviceUnhealthy", "service", service, "reason", reason);
+            stoppingSinceNanos = now;
+            process.destroy();
+        }
+
+        private void restart() {
+            restartCount.increment();
+            try {
+                start();
+            } catch (IOException e) {
+                log.error("serviceNotStarted", "service", service, "reason", e.getMessage());
+                restartAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_RESTART_DELAY_MILLIS);
+            }
+        }
+
+        void stop() {
+            Process running = process;
+            finished = true;
+            if (running != null && running.isAlive()) {
+                running.destroy();
+                try {
+                    if (!running.waitFor(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        running.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    running.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.supervisor;
+
+import org.broker.EmbeddedBroker;
+import org.common.Metrics;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttCallback;
+import org.eclipse.paho.mqttv5.client.MqttClient;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.MqttDisconnectResponse;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The training run of the {@code startup} Maven profile, which records the classes the
+ * components load and link while starting and handling their first messages, so that the
+ * JVM writes them to an AOT cache on exit ({@code -XX:AOTCacheOutput}).
+ * <p>
+ * Every component runs in this JVM, from the application class loader whose classes the
+ * cache can hold, against an {@link EmbeddedBroker} on a free port: the display headless
+ * and fast, the Morse decoder, the transformer, then the keyboard sensor publishing a few
+ * lines in batch mode. The run exits once the decoded texts are back, or after
+ * {@link #TIMEOUT_SECONDS} if the pipeline stalls; the cache is written either way, only
+ * less complete.
+ *
+ * @version 16.10.2026
+ */
+public class TrainingRun {
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final List<String> LINES = List.of(
+            "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG",
+            "SOS 1234567890",
+            "HELLO, WORLD? <AR>");
+    private static final String decodedTopic = "E/morseInText";
+
+    /**
+     * Runs the pipeline once and exits.
+     *
+     * @throws IOException          if the broker cannot be started or the input cannot be written.
+     * @throws MqttException        if a client cannot connect to the broker.
+     * @throws InterruptedException if interrupted while waiting for the components.
+     */
+    static void main() throws IOException, MqttException, InterruptedException {
+        EmbeddedBroker broker = EmbeddedBroker.start(0, new Metrics("broker"));
+        Path input = Files.createTempFile("training", ".txt");
+        input.toFile().deleteOnExit();
+        Files.write(input, LINES);
+        // Read by the components as they are loaded, and not before
+        System.setProperty("morse.server", broker.uri());
+        System.setProperty("java.awt.headless", "true");
+        System.setProperty("morseDisplay.headless", "true");
+        System.setProperty("morseDisplay.wpm", "600");
+        System.setProperty("morseDisplay.maxWpm", "600");
+        System.setProperty("keyboardEntry.input", input.toString());
+
+        CountDownLatch decoded = new CountDownLatch(LINES.size());
+        MqttClient receiver = receiver(broker.uri(), decoded);
+        Metrics metrics = new Metrics("trainingRun");
+        StatusMonitor monitor = new StatusMonitor(broker.uri(), "trainingRun", metrics);
+        ClassLoader loader = TrainingRun.class.getClassLoader();
+        for (Service service : List.of(Service.MORSE_DISPLAY, Service.MORSE_TO_TEXT, Service.TEXT_TO_MORSE,
+                Service.KEYBOARD_ENTRY)) {
+            long startedNanos = System.nanoTime();
+            Thread.ofPlatform().name(service.name()).daemon().start(() -> Supervisor.runMain(service, loader));
+            if (!monitor.awaitOnline(service, startedNanos, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS))) {
+                System.err.println(service + " not ready, the cache will be incomplete");
+            }
+        }
+        if (!decoded.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            System.err.println("Only " + (LINES.size() - decoded.getCount()) + " texts decoded");
+        }
+        // Lets the display play what it received
+        TimeUnit.SECONDS.sleep(1);
+        monitor.close();
+        receiver.disconnect();
+        System.out.println("Training run done");
+        System.exit(0);
+    }
+
+    /**
+     * Connects a client counting the texts decoded by {@link org.MorseToText.MorseToText}.
+     */
+    private static MqttClient receiver(String server, CountDownLatch decoded) throws MqttException {
+        MqttClient client = new MqttClient(server, "trainingRun-receiver", new MemoryPersistence());
+        client.setCallback(new MqttCallback() {
+            @Override
+            public void disconnected(MqttDisconnectResponse disconnectResponse) {
+            }
+
+            @Override
+            public void mqttErrorOccurred(MqttException exception) {
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                decoded.countDown();
+            }
+
+            @Override
+            public void deliveryComplete(IMqttToken token) {
+            }
+
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+            }
+
+            @Override
+            public void authPacketArrived(int reasonCode, MqttProperties properties) {
+            }
+        });
+        MqttConnectionOptions options = new MqttConnectionOptions();
+        options.setCleanStart(true);
+        client.connect(options);
+        client.subscribe(decodedTopic, 1);
+        return client;
+    }
+}
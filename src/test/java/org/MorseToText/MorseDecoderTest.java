@@ -0,0 +1,118 @@
+package org.MorseToText;
+
+import org.TextToMorse.MorseEncoder;
+import org.common.StreamTracker;
+import org.junit.jupiter.api.Test;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decoding of hand keying by the {@link MorseDecoder}, with every period off by up to
+ * {@link #JITTER} of its ideal length, and the estimate of the speed following the operator.
+ *
+ * @version 16.10.2026
+ */
+class MorseDecoderTest {
+    private static final double JITTER = 0.2;
+    private static final int INITIAL_WPM = 20;
+
+    private final MorseDecoder decoder = new MorseDecoder(INITIAL_WPM, 5);
+    private final StreamTracker tracker = new StreamTracker(4, decoder.initialState());
+    private final UUID id = UUID.randomUUID();
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Test
+    void decodesJitteredKeyingAtTheInitialSpeed() {
+        StreamTracker.Stream stream = tracker.accept(id.getMostSignificantBits(), id.getLeastSignificantBits(), 0, true);
+        assertEquals("PARIS CQ DE F4XYZ", decode(keying(0, true, "PARIS CQ DE F4XYZ", INITIAL_WPM), stream));
+        assertWpm(INITIAL_WPM, stream);
+    }
+
+    @Test
+    void followsAFasterOperator() {
+        assertAdapts(35);
+    }
+
+    @Test
+    void followsASlowerOperator() {
+        assertAdapts(10);
+    }
+
+    @Test
+    void keepsTheLetterInProgressAcrossMessages() {
+        StreamTracker.Stream stream = tracker.accept(id.getMostSignificantBits(), id.getLeastSignificantBits(), 0, false);
+        int[] sos = Arrays.stream(new int[]{1, 1, 1, 1, 1, 3, 3, 1, 3, 1, 3, 3, 1, 1, 1, 1, 1})
+                .map(units -> units * 60).toArray();
+        int[] elements = new int[sos.length];
+        for (int i = 0; i < sos.length; i++) {
+            elements[i] = WireFormat.keyingElement(i % 2 == 0, sos[i]);
+        }
+        // The O is split between the two messages
+        assertEquals("S", decode(WireFormat.encodeKeying(id, 0, false, elements, 0, 8), stream));
+        stream = tracker.accept(id.getMostSignificantBits(), id.getLeastSignificantBits(), 1, true);
+        assertEquals("OS", decode(WireFormat.encodeKeying(id, 1, true, elements, 8, sos.length - 8), stream));
+    }
+
+    /**
+     * Keys a first message at a new speed, which may be decoded wrong while the estimate
+     * catches up, then checks that the next message of the stream is decoded right.
+     */
+    private void assertAdapts(int wpm) {
+        StreamTracker.Stream stream = tracker.accept(id.getMostSignificantBits(), id.getLeastSignificantBits(), 0, false);
+        decode(keying(0, false, "PARIS PARIS PARIS ", wpm), stream);
+        assertWpm(wpm, stream);
+        stream = tracker.accept(id.getMostSignificantBits(), id.getLeastSignificantBits(), 1, true);
+        assertEquals("CQ DE F4XYZ", decode(keying(1, true, "CQ DE F4XYZ", wpm), stream));
+        assertWpm(wpm, stream);
+    }
+
+    private static void assertWpm(int expected, StreamTracker.Stream stream) {
+        int wpm = MorseDecoder.wpm(stream.state);
+        assertTrue(Math.abs(wpm - expected) <= expected * JITTER, "estimated " + wpm + " wpm");
+    }
+
+    private String decode(byte[] payload, StreamTracker.Stream stream) {
+        WireMessage keying = new WireMessage();
+        assertTrue(keying.wrap(payload));
+        byte[] out = new byte[MorseDecoder.maxDecodedLength(keying.bodyLength())];
+        int end = decoder.decodeKeying(keying, stream, out, 0);
+        return new String(out, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Keys a text: a dot lasts a unit, a dash 3, the gaps 1 within a letter, 3 between
+     * letters and 7 between words, each lengthened or shortened at random by up to the jitter.
+     */
+    private byte[] keying(int sequence, boolean last, String text, int wpm) {
+        double unit = 1200.0 / wpm;
+        int[] elements = new int[text.length() * 12];
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ' ') {
+                // Lengthens the letter gap written before into a word gap
+                elements[count - 1] = period(false, 7 * unit);
+                continue;
+            }
+            for (byte signal : MorseEncoder.codeOf(c)) {
+                elements[count++] = period(true, signal == '-' ? 3 * unit : unit);
+                elements[count++] = period(false, unit);
+            }
+            elements[count - 1] = period(false, 3 * unit);
+        }
+        return WireFormat.encodeKeying(id, sequence, last, elements, 0, count);
+    }
+
+    private int period(boolean down, double millis) {
+        double jittered = millis * (1 + JITTER * (2 * random.nextDouble() - 1));
+        return WireFormat.keyingElement(down, Math.round(jittered));
+    }
+}
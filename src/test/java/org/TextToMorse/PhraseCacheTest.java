@@ -0,0 +1,113 @@
+package org.TextToMorse;
+
+import org.common.Metrics;
+import org.junit.jupiter.api.Test;
+import org.protocol.WireFormat;
+import org.protocol.WireMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Hits and LRU eviction of the {@link PhraseCache}. The phrases are chosen by the hash of the
+ * cache so that they fall into the same stripe, which holds 2 phrases with {@link #ENTRIES}.
+ *
+ * @version 16.10.2026
+ */
+class PhraseCacheTest {
+    private static final int ENTRIES = 16 * 2;
+
+    private final Metrics metrics = new Metrics("test");
+    private final MorseConverter converter = new MorseConverter();
+
+    @Test
+    void hitCarriesTheIdOfTheTextLookedUp() {
+        PhraseCache cache = new PhraseCache(ENTRIES, 1 << 20, 64, metrics);
+        WireMessage first = text("SOS", UUID.randomUUID());
+        cache.put(first, converter.convert(first));
+        WireMessage again = text("SOS", UUID.randomUUID());
+        assertArrayEquals(converter.convert(again), cache.get(again));
+        assertEquals(1, metrics.counter("cacheHits").sum());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedPhraseOfTheStripe() {
+        PhraseCache cache = new PhraseCache(ENTRIES, 1 << 20, 64, metrics);
+        List<String> phrases = phrasesOfOneStripe(3);
+        put(cache, phrases.get(0));
+        put(cache, phrases.get(1));
+        // Uses the first phrase, so that the second one is the least recently used
+        assertNotNull(cache.get(text(phrases.get(0), UUID.randomUUID())));
+        put(cache, phrases.get(2));
+        assertNull(cache.get(text(phrases.get(1), UUID.randomUUID())));
+        assertNotNull(cache.get(text(phrases.get(0), UUID.randomUUID())));
+        assertNotNull(cache.get(text(phrases.get(2), UUID.randomUUID())));
+        assertEquals(1, metrics.counter("cacheEvictions").sum());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void evictsBeyondTheBytesOfTheStripe() {
+        List<String> phrases = phrasesOfOneStripe(3);
+        byte[] morse = converter.convert(text(phrases.get(0), UUID.randomUUID()));
+        // Room for two phrases of the same length per stripe, not three
+        long weight = 96 + phrases.get(0).length() + morse.length;
+        PhraseCache cache = new PhraseCache(1000, 16 * (2 * weight + weight / 2), 64, metrics);
+        for (String phrase : phrases) {
+            put(cache, phrase);
+        }
+        assertNull(cache.get(text(phrases.get(0), UUID.randomUUID())));
+        assertEquals(2, cache.size());
+        assertEquals(2 * weight, cache.bytes());
+    }
+
+    @Test
+    void skipsTextsLongerThanTheLimit() {
+        PhraseCache cache = new PhraseCache(ENTRIES, 1 << 20, 4, metrics);
+        put(cache, "CQ CQ DE F4XYZ");
+        assertNull(cache.get(text("CQ CQ DE F4XYZ", UUID.randomUUID())));
+        assertEquals(0, cache.size());
+    }
+
+    private void put(PhraseCache cache, String phrase) {
+        WireMessage text = text(phrase, UUID.randomUUID());
+        cache.put(text, converter.convert(text));
+    }
+
+    private static WireMessage text(String phrase, UUID id) {
+        WireMessage text = new WireMessage();
+        text.wrap(WireFormat.encodeText(id, phrase.getBytes(StandardCharsets.UTF_8)));
+        return text;
+    }
+
+    /**
+     * @return Phrases of the same length, all in the stripe of the first one.
+     */
+    private static List<String> phrasesOfOneStripe(int count) {
+        List<String> phrases = new ArrayList<>(count);
+        int stripe = -1;
+        for (int i = 100; phrases.size() < count; i++) {
+            String phrase = "K" + i;
+            // The stripe of PhraseCache: the hash of the UTF-8 bytes, spread
+            int hash = 1;
+            for (byte b : phrase.getBytes(StandardCharsets.UTF_8)) {
+                hash = 31 * hash + b;
+            }
+            int h = (hash * 0x9E3779B9) >>> 28;
+            if (stripe < 0) {
+                stripe = h;
+            }
+            if (h == stripe) {
+                phrases.add(phrase);
+            }
+        }
+        return phrases;
+    }
+}
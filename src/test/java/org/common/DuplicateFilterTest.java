@@ -0,0 +1,116 @@
+package org.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Eviction in the stripes of a {@link DuplicateFilter}. The ids are chosen by the hash of the
+ * filter, so that they fall into a given stripe and collide in its table: with a capacity of
+ * {@link #CAPACITY}, a stripe remembers 8 ids in a table of 16 slots.
+ *
+ * @version 16.10.2026
+ */
+class DuplicateFilterTest {
+    private static final int CAPACITY = 16 * 8;
+    private static final int STRIPE_CAPACITY = 8;
+    private static final int TABLE_MASK = 15;
+
+    @Test
+    void dropsRedeliveries() {
+        DuplicateFilter filter = new DuplicateFilter(CAPACITY);
+        assertFalse(filter.isDuplicate(1, 2));
+        assertFalse(filter.isDuplicate(2, 1));
+        assertTrue(filter.isDuplicate(1, 2));
+        assertTrue(filter.isDuplicate(2, 1));
+    }
+
+    @Test
+    void keepsCollidingIdsReachableWhenEvicting() {
+        // Ids of stripe 0 whose home slots are 0 to 2, so that they form one probe cluster
+        // which every eviction has to shift back
+        List<Long> pool = ids(0, 3, 20);
+        DuplicateFilter filter = new DuplicateFilter(CAPACITY);
+        assertShareAStripe(pool);
+        ArrayDeque<Long> remembered = new ArrayDeque<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 10_000; i++) {
+            long id = pool.get(random.nextInt(pool.size()));
+            boolean expected = remembered.contains(id);
+            assertEquals(expected, filter.isDuplicate(id, 0), "check " + i);
+            if (!expected) {
+                remembered.add(id);
+                if (remembered.size() > STRIPE_CAPACITY) {
+                    remembered.remove();
+                }
+            }
+        }
+    }
+
+    @Test
+    void evictsWithinTheStripeOnly() {
+        List<Long> stripe0 = ids(0, TABLE_MASK + 1, STRIPE_CAPACITY);
+        DuplicateFilter filter = new DuplicateFilter(CAPACITY);
+        for (long id : stripe0) {
+            assertFalse(filter.isDuplicate(id, 0));
+        }
+        for (int stripe = 1; stripe < 16; stripe++) {
+            for (long id : ids(stripe, TABLE_MASK + 1, STRIPE_CAPACITY)) {
+                assertFalse(filter.isDuplicate(id, 0));
+            }
+        }
+        for (long id : stripe0) {
+            assertTrue(filter.isDuplicate(id, 0));
+        }
+        // One more id in stripe 0 evicts its oldest
+        assertFalse(filter.isDuplicate(ids(0, TABLE_MASK + 1, STRIPE_CAPACITY + 1).getLast(), 0));
+        for (long id : stripe0.subList(1, STRIPE_CAPACITY)) {
+            assertTrue(filter.isDuplicate(id, 0));
+        }
+        assertFalse(filter.isDuplicate(stripe0.getFirst(), 0));
+    }
+
+    @Test
+    void forgetsIdsOlderThanTheWindow() throws InterruptedException {
+        DuplicateFilter filter = new DuplicateFilter(CAPACITY, 50);
+        assertFalse(filter.isDuplicate(1, 2));
+        assertTrue(filter.isDuplicate(1, 2));
+        Thread.sleep(100);
+        assertFalse(filter.isDuplicate(1, 2));
+        assertTrue(filter.isDuplicate(1, 2));
+    }
+
+    /**
+     * Checks that the ids really fill one stripe, by filling it with them and checking that
+     * the next one evicts the first, so that a change of the hash fails the test instead of
+     * spreading the ids.
+     */
+    private static void assertShareAStripe(List<Long> ids) {
+        DuplicateFilter filter = new DuplicateFilter(CAPACITY);
+        for (long id : ids.subList(0, STRIPE_CAPACITY + 1)) {
+            assertFalse(filter.isDuplicate(id, 0));
+        }
+        assertFalse(filter.isDuplicate(ids.getFirst(), 0), "the ids are not in one stripe");
+    }
+
+    /**
+     * @return The first ids {@code (msb, 0)} of a stripe whose home slot is below {@code slots}.
+     */
+    private static List<Long> ids(int stripe, int slots, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (long msb = 1; ids.size() < count; msb++) {
+            int hash = DuplicateFilter.hash(msb, 0);
+            if (hash >>> 28 == stripe && (hash & TABLE_MASK) < slots) {
+                ids.add(msb);
+            }
+        }
+        return ids;
+    }
+}
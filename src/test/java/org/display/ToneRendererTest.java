@@ -0,0 +1,65 @@
+package org.display;
+
+import org.common.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The silence a {@link ToneRenderer} writes while its track has nothing to play, against a
+ * sink that only counts the bytes.
+ *
+ * @version 16.10.2026
+ */
+class ToneRendererTest {
+    private static final int SAMPLE_RATE = 8_000;
+    private static final long LEAD_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    void writesAtMostTheGapWhileIdle() throws InterruptedException {
+        long gapNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        AtomicLong written = render(gapNanos, 400);
+        assertEquals(SAMPLE_RATE / 10 * ToneCache.FRAME_BYTES, written.get());
+    }
+
+    @Test
+    void keepsAnUnboundedGapFed() throws InterruptedException {
+        AtomicLong written = render(Long.MAX_VALUE, 400);
+        // At least the 400 ms slept, written ahead by the lead
+        assertTrue(written.get() >= SAMPLE_RATE * 4 / 10 * ToneCache.FRAME_BYTES, "written " + written.get());
+    }
+
+    private static AtomicLong render(long maxGapNanos, long idleMillis) throws InterruptedException {
+        AtomicLong written = new AtomicLong();
+        PcmSink sink = new PcmSink() {
+            @Override
+            public int available() {
+                return Integer.MAX_VALUE;
+            }
+
+            @Override
+            public void write(byte[] samples, int offset, int length) {
+                written.addAndGet(length);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Metrics metrics = new Metrics("test");
+        ToneCache tones = new ToneCache(SAMPLE_RATE, 600, TimeUnit.MILLISECONDS.toNanos(5), 4, new LongAdder());
+        try (AnimationScheduler scheduler = new AnimationScheduler(metrics.histogram("drift"));
+             ToneRenderer renderer = new ToneRenderer(scheduler, tones, label -> sink, 1, LEAD_NANOS, PERIOD_NANOS,
+                     maxGapNanos, metrics)) {
+            renderer.addTrack("E/textInMorse");
+            Thread.sleep(idleMillis);
+        }
+        return written;
+    }
+}
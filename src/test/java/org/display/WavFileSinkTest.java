@@ -0,0 +1,76 @@
+package org.display;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The files of a {@link WavFileSink}: the sizes of their headers, and the start of a new file
+ * when one is full, here after {@link #MAX_DATA_BYTES} instead of 4 GiB.
+ *
+ * @version 16.10.2026
+ */
+class WavFileSinkTest {
+    private static final int SAMPLE_RATE = 8_000;
+    private static final int MAX_DATA_BYTES = 100_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void completesTheHeaderOnClose() throws IOException {
+        Path path = directory.resolve("channel.wav");
+        byte[] samples = samples(1_000);
+        try (WavFileSink sink = new WavFileSink(path, SAMPLE_RATE)) {
+            sink.write(samples, 0, 600);
+            sink.write(samples, 600, 400);
+        }
+        assertFile(path, samples);
+    }
+
+    @Test
+    void startsANewFileBeforeTheDataIsFull() throws IOException {
+        Path path = directory.resolve("channel.wav");
+        byte[] samples = samples(2 * MAX_DATA_BYTES + 5_000);
+        try (WavFileSink sink = new WavFileSink(path, SAMPLE_RATE, MAX_DATA_BYTES)) {
+            // Writes straddling the limit and the buffer
+            for (int offset = 0; offset < samples.length; offset += 3_000) {
+                sink.write(samples, offset, Math.min(3_000, samples.length - offset));
+            }
+        }
+        assertFile(path, slice(samples, 0, MAX_DATA_BYTES));
+        assertFile(directory.resolve("channel-2.wav"), slice(samples, MAX_DATA_BYTES, 2 * MAX_DATA_BYTES));
+        assertFile(directory.resolve("channel-3.wav"), slice(samples, 2 * MAX_DATA_BYTES, samples.length));
+    }
+
+    private static void assertFile(Path path, byte[] samples) throws IOException {
+        byte[] file = Files.readAllBytes(path);
+        ByteBuffer header = ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(44 + samples.length, file.length);
+        assertEquals(36 + samples.length, header.getInt(4));
+        assertEquals(SAMPLE_RATE, header.getInt(24));
+        assertEquals(samples.length, header.getInt(40));
+        assertArrayEquals(samples, slice(file, 44, file.length));
+    }
+
+    private static byte[] samples(int bytes) {
+        byte[] samples = new byte[bytes];
+        for (int i = 0; i < bytes; i++) {
+            samples[i] = (byte) (i * 31);
+        }
+        return samples;
+    }
+
+    private static byte[] slice(byte[] bytes, int from, int to) {
+        return Arrays.copyOfRange(bytes, from, to);
+    }
+}
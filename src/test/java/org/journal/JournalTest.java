@@ -0,0 +1,176 @@
+package org.journal;
+
+import org.common.Metrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Recovery of the {@link Journal} across segment rolls, compactions and restarts. The segments
+ * hold four records of {@link #RECORD_BYTES} each, so that a few appends roll them.
+ *
+ * @version 16.10.2026
+ */
+class JournalTest {
+    private static final long SEGMENT_BYTES = 256;
+    private static final int RECORD_BYTES = 60;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversPendingEntriesAfterRestart() throws IOException {
+        long first;
+        long second;
+        try (Journal journal = open()) {
+            first = journal.append(Journal.Kind.INBOUND, "E/KeyboardEvent", payload('a'));
+            second = journal.append(Journal.Kind.OUTBOUND, "E/textInMorse", payload('b'));
+            journal.settle(journal.append(Journal.Kind.OUTBOUND, "E/textInMorse", payload('c')));
+        }
+        try (Journal journal = open()) {
+            assertEquals(List.of(first), sequences(journal.pending(Journal.Kind.INBOUND, Long.MAX_VALUE)));
+            assertEquals(List.of(second), sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+            assertEquals(second + 2, journal.nextSequence());
+            Journal.Entry entry = journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE).getFirst();
+            assertEquals("E/textInMorse", entry.topic());
+            assertEquals('b', entry.payload()[0]);
+        }
+    }
+
+    @Test
+    void keepsSettleRecordsOfEntriesInOlderSegmentsWhenRolling() throws IOException {
+        List<Long> kept;
+        try (Journal journal = open()) {
+            // Segment 0: two entries kept pending, enough to keep it from being compacted
+            kept = List.of(append(journal), append(journal));
+            long b = append(journal);
+            long c = append(journal);
+            // Segment 1, settling the entries of segment 0
+            long d = append(journal);
+            journal.settle(b);
+            journal.settle(c);
+            journal.settle(d);
+            // Segment 2, rolling compacts segment 1 which has nothing pending left
+            for (int i = 0; i < 3; i++) {
+                journal.settle(append(journal));
+            }
+            assertEquals(kept, sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+        }
+        try (Journal journal = open()) {
+            assertEquals(kept, sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void keepsSettleRecordsOfEntriesInOlderSegmentsWhenSettling() throws IOException {
+        List<Long> kept;
+        try (Journal journal = open()) {
+            long a1 = append(journal);
+            long a2 = append(journal);
+            long b = append(journal);
+            long c = append(journal);
+            // Segment 1, settling the entries of segment 0, with entries still pending past the roll
+            long d = append(journal);
+            journal.settle(b);
+            journal.settle(c);
+            long x = append(journal);
+            long y = append(journal);
+            // Segment 2
+            long z = append(journal);
+            journal.settle(x);
+            journal.settle(y);
+            // Settling the last pending entry of segment 1 compacts it
+            journal.settle(d);
+            kept = List.of(a1, a2, z);
+            assertEquals(kept, sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+        }
+        try (Journal journal = open()) {
+            assertEquals(kept, sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void compactsMostlySettledSegments() throws IOException {
+        long kept;
+        try (Journal journal = open()) {
+            kept = append(journal);
+            for (int i = 0; i < 3; i++) {
+                journal.settle(append(journal));
+            }
+            // Rolling copies the one pending entry of segment 0 and deletes it
+            journal.settle(append(journal));
+            assertEquals(1, journal.segmentCount());
+        }
+        try (Journal journal = open()) {
+            assertEquals(List.of(kept), sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+            assertEquals(kept + 5, journal.nextSequence());
+        }
+    }
+
+    @Test
+    void keepsRoomForTheRecordThatRolls() throws IOException {
+        long kept;
+        long large;
+        try (Journal journal = open()) {
+            kept = append(journal);
+            // Does not fit after the first record: the roll compacts segment 0 into the new
+            // segment, which must still hold this record
+            byte[] payload = new byte[200];
+            large = journal.append(Journal.Kind.INBOUND, "t", payload);
+            assertEquals(List.of(kept), sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+            assertEquals(List.of(large), sequences(journal.pending(Journal.Kind.INBOUND, Long.MAX_VALUE)));
+        }
+        try (Journal journal = open()) {
+            assertEquals(List.of(kept), sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+            assertEquals(List.of(large), sequences(journal.pending(Journal.Kind.INBOUND, Long.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    void recoversAfterCompactionsUntilEverythingIsSettled() throws IOException {
+        try (Journal journal = open()) {
+            long[] entries = new long[40];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = append(journal);
+                // Settle with a lag, so that settle records land in later segments than their entries
+                if (i >= 5) {
+                    journal.settle(entries[i - 5]);
+                }
+            }
+            for (int i = entries.length - 5; i < entries.length - 1; i++) {
+                journal.settle(entries[i]);
+            }
+            assertEquals(List.of(entries[entries.length - 1]),
+                    sequences(journal.pending(Journal.Kind.OUTBOUND, Long.MAX_VALUE)));
+        }
+        try (Journal journal = open()) {
+            assertEquals(1, journal.pendingCount());
+        }
+    }
+
+    private Journal open() throws IOException {
+        return Journal.open(directory, SEGMENT_BYTES, new Metrics("journalTest"));
+    }
+
+    private static long append(Journal journal) {
+        return journal.append(Journal.Kind.OUTBOUND, "t", payload('x'));
+    }
+
+    /**
+     * @return A payload making a record of {@link #RECORD_BYTES} on topic {@code t}.
+     */
+    private static byte[] payload(char fill) {
+        byte[] payload = new byte[RECORD_BYTES - 20];
+        java.util.Arrays.fill(payload, (byte) fill);
+        return payload;
+    }
+
+    private static List<Long> sequences(List<Journal.Entry> entries) {
+        return entries.stream().map(Journal.Entry::sequence).toList();
+    }
+}
@@ -0,0 +1,94 @@
+package org.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validation of received payloads by {@link WireMessage#wrap}: a header or a body cut short,
+ * or a body length beyond the payload, must be rejected before anything is read.
+ *
+ * @version 16.10.2026
+ */
+class WireMessageTest {
+    private static final UUID ID = UUID.randomUUID();
+    private static final byte[] TEXT = "CQ CQ DE F4XYZ".getBytes(StandardCharsets.UTF_8);
+
+    private final WireMessage message = new WireMessage();
+
+    @Test
+    void wrapsAMessageInARegionOfABuffer() {
+        byte[] payload = WireFormat.encodeText(ID, TEXT);
+        byte[] buffer = new byte[payload.length + 10];
+        System.arraycopy(payload, 0, buffer, 7, payload.length);
+        assertTrue(message.wrap(buffer, 7, payload.length));
+        assertEquals(WireFormat.TYPE_TEXT, message.type());
+        assertEquals(ID.getMostSignificantBits(), message.idMostSignificantBits());
+        assertEquals(ID.getLeastSignificantBits(), message.idLeastSignificantBits());
+        assertArrayEquals(TEXT, Arrays.copyOfRange(buffer, message.bodyOffset(),
+                message.bodyOffset() + message.bodyLength()));
+    }
+
+    @Test
+    void rejectsTruncatedHeaders() {
+        byte[] payload = WireFormat.encodeText(ID, new byte[0]);
+        for (int length = 0; length < WireFormat.HEADER_LENGTH; length++) {
+            assertFalse(message.wrap(Arrays.copyOf(payload, length)), "length " + length);
+        }
+        assertTrue(message.wrap(payload));
+    }
+
+    @Test
+    void rejectsTruncatedChunkHeaders() {
+        byte[] payload = WireFormat.encodeTextChunk(ID, 3, false, new byte[0], 0, 0);
+        for (int length = 0; length < WireFormat.CHUNK_HEADER_LENGTH; length++) {
+            assertFalse(message.wrap(Arrays.copyOf(payload, length)), "length " + length);
+        }
+        assertTrue(message.wrap(payload));
+    }
+
+    @Test
+    void rejectsTruncatedBodies() {
+        byte[] payload = WireFormat.encodeText(ID, TEXT);
+        assertFalse(message.wrap(Arrays.copyOf(payload, payload.length - 1)));
+        int[] elements = {WireFormat.keyingElement(true, 60), WireFormat.keyingElement(false, 60)};
+        byte[] keying = WireFormat.encodeKeying(ID, 0, true, elements, 0, elements.length);
+        assertFalse(message.wrap(Arrays.copyOf(keying, keying.length - 1)));
+        assertTrue(message.wrap(keying));
+    }
+
+    @Test
+    void rejectsOversizedBodyLengths() {
+        for (int bodyLength : new int[]{TEXT.length + 1, Integer.MAX_VALUE, -1, Integer.MIN_VALUE}) {
+            byte[] text = WireFormat.encodeText(ID, TEXT);
+            WireFormat.setBodyLength(text, 0, bodyLength);
+            assertFalse(message.wrap(text), "text of " + bodyLength);
+
+            byte[] keying = WireFormat.encodeKeying(ID, 0, true, new int[4], 0, 4);
+            WireFormat.setBodyLength(keying, 0, bodyLength);
+            assertFalse(message.wrap(keying), "keying of " + bodyLength);
+
+            byte[] morse = new byte[WireFormat.HEADER_LENGTH + 4];
+            WireFormat.writeHeader(morse, 0, WireFormat.TYPE_MORSE, 1, 2, bodyLength);
+            // 4 bytes hold 16 symbols
+            assertEquals(bodyLength <= 16 && bodyLength >= 0, message.wrap(morse), "morse of " + bodyLength);
+        }
+    }
+
+    @Test
+    void rejectsUnknownMagicVersionAndType() {
+        byte[] payload = WireFormat.encodeText(ID, TEXT);
+        for (int offset : new int[]{WireFormat.MAGIC_OFFSET, WireFormat.VERSION_OFFSET, WireFormat.TYPE_OFFSET}) {
+            byte[] altered = payload.clone();
+            altered[offset] = 0x7F;
+            assertFalse(message.wrap(altered), "byte " + offset);
+        }
+    }
+}